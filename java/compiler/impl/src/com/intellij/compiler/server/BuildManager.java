@@ -98,12 +98,14 @@ import org.jetbrains.jps.api.GlobalOptions;
 import org.jetbrains.jps.api.RequestFuture;
 import org.jetbrains.jps.cmdline.BuildMain;
 import org.jetbrains.jps.cmdline.ClasspathBootstrap;
+import org.jetbrains.jps.incremental.BuildStatistics;
 import org.jetbrains.jps.incremental.Utils;
 import org.jetbrains.jps.model.serialization.JpsGlobalLoader;
 
 import javax.tools.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
@@ -124,10 +126,12 @@ public class BuildManager implements ApplicationComponent{
 
   private static final Logger LOG = Logger.getInstance("#com.intellij.compiler.server.BuildManager");
   private static final String COMPILER_PROCESS_JDK_PROPERTY = "compiler.process.jdk";
+  private static final String COMPILER_PROCESS_KEEP_ALIVE_PROPERTY = "compiler.process.keep.alive.timeout";
   public static final String SYSTEM_ROOT = "compile-server";
   public static final String TEMP_DIR_NAME = "_temp_";
   private static final int MAKE_TRIGGER_DELAY = 300 /*300 ms*/;
   private static final int DOCUMENT_SAVE_TRIGGER_DELAY = 1500 /*1.5 sec*/;
+  private static final long KEEP_ALIVE_TIMEOUT_MARGIN = 5000L /*5 sec*/;
   private final boolean IS_UNIT_TEST_MODE;
   private static final String IWS_EXTENSION = ".iws";
   private static final String IPR_EXTENSION = ".ipr";
@@ -156,6 +160,7 @@ public class BuildManager implements ApplicationComponent{
   private final Executor myPooledThreadExecutor = new PooledThreadExecutor();
   private final SequentialTaskExecutor myRequestsProcessor = new SequentialTaskExecutor(myPooledThreadExecutor);
   private final Map<String, ProjectData> myProjectDataMap = Collections.synchronizedMap(new HashMap<String, ProjectData>());
+  private final Map<String, BuildProcess> myIdleProcesses = new HashMap<String, BuildProcess>();
 
   private final BuildManagerPeriodicTask myAutoMakeTask = new BuildManagerPeriodicTask() {
     @Override
@@ -376,6 +381,7 @@ public class BuildManager implements ApplicationComponent{
         data.dropChanges();
       }
     }
+    terminateIdleProcess(projectPath);
     scheduleAutoMake();
   }
 
@@ -592,30 +598,33 @@ public class BuildManager implements ApplicationComponent{
                     return;
                   }
                   myBuildsInProgress.put(projectPath, future);
-                  final OSProcessHandler processHandler = launchBuildProcess(project, myListenPort, sessionId);
-                  final StringBuilder stdErrOutput = new StringBuilder();
-                  processHandler.addProcessListener(new ProcessAdapter() {
-                    @Override
-                    public void onTextAvailable(ProcessEvent event, Key outputType) {
-                      // re-translate builder's output to idea.log
-                      final String text = event.getText();
-                      if (!StringUtil.isEmptyOrSpaces(text)) {
-                        LOG.info("BUILDER_PROCESS [" + outputType.toString() + "]: " + text.trim());
-                        if (stdErrOutput.length() < 1024 && ProcessOutputTypes.STDERR.equals(outputType)) {
-                          stdErrOutput.append(text);
-                        }
-                      }
+                  final int keepAliveTimeout = Registry.intValue(COMPILER_PROCESS_KEEP_ALIVE_PROPERTY, 0);
+                  final GeneralCommandLine cmdLine = createBuildProcessCommandLine(project, myListenPort, keepAliveTimeout);
+                  BuildProcess process = null;
+                  if (keepAliveTimeout > 0) {
+                    process = startSessionInIdleProcess(projectPath, cmdLine.getCommandLineString(), sessionId, keepAliveTimeout);
+                  }
+                  if (process == null) {
+                    process = launchBuildProcess(cmdLine, sessionId);
+                  }
+                  final OSProcessHandler processHandler = process.handler;
+                  final boolean terminated;
+                  if (keepAliveTimeout > 0) {
+                    terminated = process.waitForSessionEnd(future);
+                    if (!terminated) {
+                      keepIdleProcess(projectPath, process);
                     }
-                  });
-                  processHandler.startNotify();
-                  final boolean terminated = processHandler.waitFor();
+                  }
+                  else {
+                    terminated = processHandler.waitFor();
+                  }
                   if (terminated) {
                     final int exitValue = processHandler.getProcess().exitValue();
                     if (exitValue != 0) {
                       final StringBuilder msg = new StringBuilder();
                       msg.append("Abnormal build process termination: ");
-                      if (stdErrOutput.length() > 0) {
-                        msg.append("\n").append(stdErrOutput);
+                      if (process.stdErrOutput.length() > 0) {
+                        msg.append("\n").append(process.stdErrOutput);
                       }
                       else {
                         msg.append("unknown error");
@@ -623,7 +632,7 @@ public class BuildManager implements ApplicationComponent{
                       handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure(msg.toString(), null));
                     }
                   }
-                  else {
+                  else if (keepAliveTimeout <= 0) {
                     handler.handleFailure(sessionId, CmdlineProtoUtil.createFailure("Disconnected from build process", null));
                   }
                 }
@@ -682,7 +691,58 @@ public class BuildManager implements ApplicationComponent{
     return "com.intellij.compiler.server.BuildManager";
   }
 
-  private OSProcessHandler launchBuildProcess(Project project, final int port, final UUID sessionId) throws ExecutionException {
+  @Nullable
+  private BuildProcess startSessionInIdleProcess(String projectPath, String commandLine, UUID sessionId, int keepAliveTimeout) {
+    final BuildProcess process;
+    synchronized (myIdleProcesses) {
+      process = myIdleProcesses.remove(projectPath);
+    }
+    if (process == null) {
+      return null;
+    }
+    // the process terminates itself when the keep-alive timeout expires, so do not use it if the timeout is about to expire
+    final long idleTime = System.currentTimeMillis() - process.idleSince;
+    if (process.commandLine.equals(commandLine) && idleTime < keepAliveTimeout * 1000L - KEEP_ALIVE_TIMEOUT_MARGIN &&
+        process.startSession(sessionId)) {
+      return process;
+    }
+    process.terminate();
+    return null;
+  }
+
+  private void keepIdleProcess(String projectPath, BuildProcess process) {
+    process.idleSince = System.currentTimeMillis();
+    final BuildProcess previous;
+    synchronized (myIdleProcesses) {
+      previous = myIdleProcesses.put(projectPath, process);
+    }
+    if (previous != null) {
+      previous.terminate();
+    }
+  }
+
+  private void terminateIdleProcess(String projectPath) {
+    final BuildProcess process;
+    synchronized (myIdleProcesses) {
+      process = myIdleProcesses.remove(projectPath);
+    }
+    if (process != null) {
+      process.terminate();
+    }
+  }
+
+  private void terminateIdleProcesses() {
+    final List<BuildProcess> processes;
+    synchronized (myIdleProcesses) {
+      processes = new ArrayList<BuildProcess>(myIdleProcesses.values());
+      myIdleProcesses.clear();
+    }
+    for (BuildProcess process : processes) {
+      process.terminate();
+    }
+  }
+
+  private GeneralCommandLine createBuildProcessCommandLine(Project project, final int port, int keepAliveTimeout) throws ExecutionException {
     final String compilerPath;
     final String vmExecutablePath;
     JavaSdkVersion sdkVersion = null;
@@ -823,6 +883,9 @@ public class BuildManager implements ApplicationComponent{
     if (Registry.is("compiler.process.use.external.javac")) {
       cmdLine.addParameter("-D"+ GlobalOptions.USE_EXTERNAL_JAVAC_OPTION);
     }
+    if (keepAliveTimeout > 0) {
+      cmdLine.addParameter("-D"+ GlobalOptions.KEEP_ALIVE_TIMEOUT_OPTION + "=" + keepAliveTimeout);
+    }
 
     // javac's VM should use the same default locale that IDEA uses in order for javac to print messages in 'correct' language
     if (mySystemCharset != null) {
@@ -857,20 +920,39 @@ public class BuildManager implements ApplicationComponent{
     cmdLine.addParameter(BuildMain.class.getName());
     cmdLine.addParameter("127.0.0.1");
     cmdLine.addParameter(Integer.toString(port));
-    cmdLine.addParameter(sessionId.toString());
-
-    cmdLine.addParameter(FileUtil.toSystemIndependentName(workDirectory.getPath()));
-
     cmdLine.setWorkDirectory(workDirectory);
+    return cmdLine;
+  }
+
+  private BuildProcess launchBuildProcess(GeneralCommandLine cmdLine, final UUID sessionId) throws ExecutionException {
+    final String commandLine = cmdLine.getCommandLineString();
+    cmdLine.addParameter(sessionId.toString());
+    cmdLine.addParameter(FileUtil.toSystemIndependentName(getBuildSystemDirectory().getPath()));
 
     final Process process = cmdLine.createProcess();
 
-    return new OSProcessHandler(process, null, mySystemCharset) {
+    final OSProcessHandler processHandler = new OSProcessHandler(process, null, mySystemCharset) {
       @Override
       protected boolean shouldDestroyProcessRecursively() {
         return true;
       }
     };
+    final BuildProcess buildProcess = new BuildProcess(processHandler, commandLine);
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void onTextAvailable(ProcessEvent event, Key outputType) {
+        // re-translate builder's output to idea.log
+        final String text = event.getText();
+        if (!StringUtil.isEmptyOrSpaces(text)) {
+          LOG.info("BUILDER_PROCESS [" + outputType.toString() + "]: " + text.trim());
+          if (buildProcess.stdErrOutput.length() < 1024 && ProcessOutputTypes.STDERR.equals(outputType)) {
+            buildProcess.stdErrOutput.append(text);
+          }
+        }
+      }
+    });
+    processHandler.startNotify();
+    return buildProcess;
   }
 
   public File getBuildSystemDirectory() {
@@ -912,6 +994,7 @@ public class BuildManager implements ApplicationComponent{
   }
 
   public void stopListening() {
+    terminateIdleProcesses();
     final ChannelGroupFuture closeFuture = myAllOpenChannels.close();
     closeFuture.awaitUninterruptibly();
   }
@@ -1064,6 +1147,14 @@ public class BuildManager implements ApplicationComponent{
           scheduleAutoMake();
         }
       });
+      conn.subscribe(CustomBuilderMessageHandler.TOPIC, new CustomBuilderMessageHandler() {
+        @Override
+        public void messageReceived(String builderId, String messageType, String messageText) {
+          if (BuildStatistics.BUILDER_ID.equals(builderId) && BuildStatistics.MESSAGE_TYPE.equals(messageType)) {
+            LOG.info("Build statistics for " + project.getName() + ": " + messageText);
+          }
+        }
+      });
       final String projectPath = getProjectPath(project);
       Disposer.register(project, new Disposable() {
         @Override
@@ -1095,6 +1186,7 @@ public class BuildManager implements ApplicationComponent{
     @Override
     public void projectClosed(Project project) {
       myProjectDataMap.remove(getProjectPath(project));
+      terminateIdleProcess(getProjectPath(project));
       final MessageBusConnection conn = myConnections.remove(project);
       if (conn != null) {
         conn.disconnect();
@@ -1102,6 +1194,63 @@ public class BuildManager implements ApplicationComponent{
     }
   }
 
+  /**
+   * Build process launched in keep-alive mode: after the session is finished the process keeps the project model in memory
+   * and starts the next session when its id is written to the process input.
+   */
+  private static class BuildProcess {
+    final OSProcessHandler handler;
+    final String commandLine;
+    final StringBuffer stdErrOutput = new StringBuffer();
+    volatile long idleSince;
+
+    private BuildProcess(OSProcessHandler handler, String commandLine) {
+      this.handler = handler;
+      this.commandLine = commandLine;
+    }
+
+    public boolean startSession(UUID sessionId) {
+      if (handler.isProcessTerminating() || handler.isProcessTerminated()) {
+        return false;
+      }
+      final OutputStream input = handler.getProcessInput();
+      if (input == null) {
+        return false;
+      }
+      try {
+        input.write((sessionId.toString() + "\n").getBytes());
+        input.flush();
+        return true;
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        return false;
+      }
+    }
+
+    /**
+     * @return true if the process has terminated, false if the session is finished and the process waits for the next one
+     */
+    public boolean waitForSessionEnd(RequestFuture future) {
+      while (!future.waitFor(100, TimeUnit.MILLISECONDS)) {
+        if (handler.isProcessTerminated()) {
+          break;
+        }
+      }
+      if (handler.isProcessTerminated() || handler.isProcessTerminating()) {
+        handler.waitFor();
+        return true;
+      }
+      return false;
+    }
+
+    public void terminate() {
+      if (!handler.isProcessTerminated()) {
+        handler.destroyProcess();
+      }
+    }
+  }
+
   private static class ProjectData {
     final SequentialTaskExecutor taskQueue;
     private final Set<String> myChanged = new THashSet<String>(FileUtil.PATH_HASHING_STRATEGY);
@@ -34,7 +34,7 @@ import javax.swing.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class YourkitFilter implements Filter{
+public class YourkitFilter implements Filter, BackgroundFilter {
   private static final Logger LOG = Logger.getInstance("#com.intellij.execution.filters.YourkitFilter");
 
   private final Project myProject;
@@ -43,7 +43,7 @@ public class ExceptionExFilterFactory implements ExceptionFilterFactory {
     return new MyFilter(searchScope);
   }
 
-  private static class MyFilter implements Filter, FilterMixin {
+  private static class MyFilter implements Filter, FilterMixin, BackgroundFilter {
     private final GlobalSearchScope myScope;
 
     public MyFilter(@NotNull final GlobalSearchScope scope) {
@@ -19,7 +19,7 @@ import com.intellij.openapi.project.DumbAware;
 import com.intellij.psi.search.GlobalSearchScope;
 import org.jetbrains.annotations.NotNull;
 
-public class ExceptionFilter implements Filter, DumbAware {
+public class ExceptionFilter implements Filter, BackgroundFilter, DumbAware {
   private final GlobalSearchScope myScope;
 
   public ExceptionFilter(@NotNull final GlobalSearchScope scope) {
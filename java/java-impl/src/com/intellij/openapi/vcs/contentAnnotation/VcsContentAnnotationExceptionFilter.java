@@ -15,6 +15,7 @@
  */
 package com.intellij.openapi.vcs.contentAnnotation;
 
+import com.intellij.execution.filters.BackgroundFilter;
 import com.intellij.execution.filters.ExceptionWorker;
 import com.intellij.execution.filters.Filter;
 import com.intellij.execution.filters.FilterMixin;
@@ -51,7 +52,7 @@ import java.util.*;
  * Date: 8/5/11
  * Time: 8:39 PM
  */
-public class VcsContentAnnotationExceptionFilter implements Filter, FilterMixin {
+public class VcsContentAnnotationExceptionFilter implements Filter, FilterMixin, BackgroundFilter {
   private final Project myProject;
   private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.vcs.contentAnnotation.VcsContentAnnotationExceptionFilter");
   private final GlobalSearchScope myScope;
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.search.searches;
+
+import com.intellij.ide.highlighter.ArchiveFileType;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.fileTypes.LanguageFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts VFS changes which may change class hierarchies without any PSI events. Files whose PSI isn't loaded may be created, deleted,
+ * moved, renamed or changed by an external tool, and the java structure modification count doesn't reflect that. Changes of files
+ * which can't contain classes and changes saved from documents, which are already reported by PSI, aren't counted.
+ */
+public class ClassFilesModificationTracker implements ModificationTracker {
+  private final AtomicLong myModificationCount = new AtomicLong();
+
+  public ClassFilesModificationTracker(@NotNull Project project) {
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (mayChangeClasses(event)) {
+            myModificationCount.incrementAndGet();
+            return;
+          }
+        }
+      }
+    });
+  }
+
+  public static ClassFilesModificationTracker getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, ClassFilesModificationTracker.class);
+  }
+
+  @Override
+  public long getModificationCount() {
+    return myModificationCount.get();
+  }
+
+  private static boolean mayChangeClasses(@NotNull VFileEvent event) {
+    if (event instanceof VFileContentChangeEvent) {
+      return event.isFromRefresh() && mayContainClasses(event.getFile().getName());
+    }
+    if (event instanceof VFilePropertyChangeEvent) {
+      final VFilePropertyChangeEvent propertyEvent = (VFilePropertyChangeEvent)event;
+      if (!VirtualFile.PROP_NAME.equals(propertyEvent.getPropertyName())) {
+        return false;
+      }
+      return propertyEvent.getFile().isDirectory() ||
+             mayContainClasses((String)propertyEvent.getOldValue()) || mayContainClasses((String)propertyEvent.getNewValue());
+    }
+    if (event instanceof VFileCreateEvent) {
+      final VFileCreateEvent createEvent = (VFileCreateEvent)event;
+      return createEvent.isDirectory() || mayContainClasses(createEvent.getChildName());
+    }
+    // deletion, move or copy
+    final VirtualFile file = event.getFile();
+    return file == null || file.isDirectory() || mayContainClasses(file.getName());
+  }
+
+  private static boolean mayContainClasses(@NotNull String fileName) {
+    final FileType type = FileTypeRegistry.getInstance().getFileTypeByFileName(fileName);
+    return type instanceof LanguageFileType || type instanceof ArchiveFileType || FileUtilRt.extensionEquals(fileName, "class");
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2009 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,24 +20,36 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.PsiSearchScopeUtil;
 import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.reference.SoftReference;
 import com.intellij.util.Processor;
 import com.intellij.util.Query;
 import com.intellij.util.QueryExecutor;
+import com.intellij.util.containers.ConcurrentSoftValueHashMap;
 import com.intellij.util.containers.Stack;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -49,6 +61,11 @@ public class ClassInheritorsSearch extends ExtensibleQueryFactory<PsiClass, Clas
 
   public static final ClassInheritorsSearch INSTANCE = new ClassInheritorsSearch();
 
+  // all inheritors reached by the search from the base class holding the value, before scope and name filtering, by search flags;
+  // dropped on any java structure or roots change and on VFS changes of class files and sources
+  private static final Key<CachedValue<Map<String, List<PsiClass>>>> INHERITORS_CACHE_KEY =
+    Key.create("ClassInheritorsSearch.INHERITORS_CACHE");
+
   static {
     INSTANCE.registerExecutor(new QueryExecutor<PsiClass, SearchParameters>() {
       @Override
@@ -186,6 +203,26 @@ public class ClassInheritorsSearch extends ExtensibleQueryFactory<PsiClass, Clas
       });
     }
 
+    final Map<String, List<PsiClass>> cache = qname == null ? null : getInheritorsCache(baseClass);
+    final String cacheKey = parameters.isIncludeAnonymous() + ":" + parameters.isCheckInheritance() + ":" + parameters.isCheckDeep();
+    if (cache != null) {
+      final List<PsiClass> cached = cache.get(cacheKey);
+      if (cached != null && areValid(cached)) {
+        for (final PsiClass candidate : cached) {
+          ProgressIndicatorProvider.checkCanceled();
+          final boolean result = ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+            @Override
+            public Boolean compute() {
+              return !candidate.isValid() || processCandidate(candidate, consumer, searchScope, parameters);
+            }
+          }).booleanValue();
+          if (!result) return false;
+        }
+        return true;
+      }
+    }
+    final List<PsiClass> reached = cache == null ? null : Collections.synchronizedList(new ArrayList<PsiClass>());
+
     final Ref<PsiClass> currentBase = Ref.create(null);
     final Stack<Pair<Reference<PsiClass>, String>> stack = new Stack<Pair<Reference<PsiClass>, String>>();
     // there are two sets for memory optimization: it's cheaper to hold FQN than PsiClass
@@ -210,15 +247,10 @@ public class ClassInheritorsSearch extends ExtensibleQueryFactory<PsiClass, Clas
               }
             }
 
-            if (PsiSearchScopeUtil.isInScope(searchScope, candidate)) {
-              if (candidate instanceof PsiAnonymousClass) {
-                result.set(consumer.process(candidate));
-              }
-              else {
-                final String name = candidate.getName();
-                if (name != null && parameters.getNameCondition().value(name) && !consumer.process(candidate)) result.set(false);
-              }
+            if (reached != null) {
+              reached.add(candidate);
             }
+            if (!processCandidate(candidate, consumer, searchScope, parameters)) result.set(false);
           }
         });
         if (!result.isNull()) return result.get().booleanValue();
@@ -259,9 +291,51 @@ public class ClassInheritorsSearch extends ExtensibleQueryFactory<PsiClass, Clas
       currentBase.set(psiClass);
       if (!DirectClassInheritorsSearch.search(psiClass, projectScope, parameters.isIncludeAnonymous(), false).forEach(processor)) return false;
     }
+    if (cache != null) {
+      // the search wasn't stopped by the consumer, so the list contains the whole hierarchy
+      cache.put(cacheKey, new ArrayList<PsiClass>(reached));
+    }
     return true;
   }
 
+  private static boolean processCandidate(@NotNull PsiClass candidate,
+                                          @NotNull Processor<PsiClass> consumer,
+                                          @NotNull SearchScope searchScope,
+                                          @NotNull SearchParameters parameters) {
+    if (!PsiSearchScopeUtil.isInScope(searchScope, candidate)) return true;
+    if (candidate instanceof PsiAnonymousClass) {
+      return consumer.process(candidate);
+    }
+    final String name = candidate.getName();
+    return name == null || !parameters.getNameCondition().value(name) || consumer.process(candidate);
+  }
+
+  @NotNull
+  private static Map<String, List<PsiClass>> getInheritorsCache(@NotNull PsiClass baseClass) {
+    final Project project = baseClass.getProject();
+    final CachedValueProvider<Map<String, List<PsiClass>>> provider = new CachedValueProvider<Map<String, List<PsiClass>>>() {
+      @Override
+      public Result<Map<String, List<PsiClass>>> compute() {
+        Map<String, List<PsiClass>> map = new ConcurrentSoftValueHashMap<String, List<PsiClass>>();
+        return Result.create(map, PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT,
+                             ProjectRootModificationTracker.getInstance(project), ClassFilesModificationTracker.getInstance(project));
+      }
+    };
+    return CachedValuesManager.getManager(project).getCachedValue(baseClass, INHERITORS_CACHE_KEY, provider, false);
+  }
+
+  private static boolean areValid(@NotNull final List<PsiClass> classes) {
+    return ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+      @Override
+      public Boolean compute() {
+        for (PsiClass aClass : classes) {
+          if (!aClass.isValid()) return Boolean.FALSE;
+        }
+        return Boolean.TRUE;
+      }
+    }).booleanValue();
+  }
+
   private static Reference<PsiClass> createHardReference(final PsiClass candidate) {
     return new SoftReference<PsiClass>(candidate){
       @Override
@@ -28,7 +28,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.util.Set;
 
-public class JavaLexer extends LexerBase {
+public class JavaLexer extends LexerBase implements RestartableLexer {
   private static final HashTable[] TABLES = new HashTable[]{
     new HashTable(LanguageLevel.JDK_1_5),
     new HashTable(LanguageLevel.JDK_1_4),
@@ -48,6 +48,7 @@ public class JavaLexer extends LexerBase {
     return getTable(level).contains(id);
   }
 
+  private final LanguageLevel myLevel;
   private final _JavaLexer myFlexLexer;
   private final HashTable myTable;
   private CharSequence myBuffer;
@@ -58,6 +59,7 @@ public class JavaLexer extends LexerBase {
   private IElementType myTokenType;
 
   public JavaLexer(@NotNull final LanguageLevel level) {
+    myLevel = level;
     myFlexLexer = new _JavaLexer(level);
     myTable = getTable(level);
   }
@@ -189,6 +191,17 @@ public class JavaLexer extends LexerBase {
     return 0;
   }
 
+  @Override
+  public boolean isRestartableState(int state) {
+    return true;
+  }
+
+  @NotNull
+  @Override
+  public Object getConfiguration() {
+    return myLevel;
+  }
+
   @Override
   public final IElementType getTokenType() {
     if (myTokenType == null) _locateToken();
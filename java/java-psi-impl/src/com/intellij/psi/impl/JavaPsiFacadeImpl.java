@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2012 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,10 @@ import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileFilter;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.file.impl.JavaFileManager;
 import com.intellij.psi.impl.source.DummyHolderFactory;
@@ -40,6 +44,8 @@ import com.intellij.util.ConcurrencyUtil;
 import com.intellij.util.Processor;
 import com.intellij.util.SmartList;
 import com.intellij.util.containers.ConcurrentHashMap;
+import com.intellij.util.containers.ConcurrentHashSet;
+import com.intellij.util.containers.ConcurrentWeakHashMap;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.HashMap;
 import com.intellij.util.messages.MessageBus;
@@ -50,6 +56,7 @@ import org.jetbrains.annotations.TestOnly;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author max
@@ -59,6 +66,15 @@ public class JavaPsiFacadeImpl extends JavaPsiFacadeEx {
   private final PsiNameHelper myNameHelper;
   private final PsiConstantEvaluationHelper myConstantEvaluationHelper;
   private final ConcurrentMap<String, PsiPackage> myPackageCache = new ConcurrentHashMap<String, PsiPackage>();
+  /**
+   * scope -> qualified names of classes not found in it. Cleared when PSI changes outside of code blocks, where classes can appear,
+   * and on VFS changes other than the IDE's own writes of file contents, whose PSI changes are tracked anyway. Both happen in write
+   * actions, so a miss computed under read action can't be stored after the change which would invalidate it.
+   * Null if there's no message bus to listen to the changes.
+   */
+  private final ConcurrentMap<GlobalSearchScope, Set<String>> myMissingClasses;
+  private final AtomicInteger myMissingClassHits = new AtomicInteger();
+  private final AtomicInteger myMissingClassMisses = new AtomicInteger();
   private final Project myProject;
   private final JavaFileManager myFileManager;
 
@@ -73,10 +89,12 @@ public class JavaPsiFacadeImpl extends JavaPsiFacadeEx {
     myConstantEvaluationHelper = new PsiConstantEvaluationHelperImpl();
 
     final PsiModificationTracker modificationTracker = psiManager.getModificationTracker();
+    myMissingClasses = bus != null ? new ConcurrentWeakHashMap<GlobalSearchScope, Set<String>>() : null;
 
     if (bus != null) {
       bus.connect().subscribe(PsiModificationTracker.TOPIC, new PsiModificationTracker.Listener() {
         private long lastTimeSeen = -1L;
+        private long lastOutOfCodeBlockTimeSeen = -1L;
 
         @Override
         public void modificationCountChanged() {
@@ -85,6 +103,23 @@ public class JavaPsiFacadeImpl extends JavaPsiFacadeEx {
             lastTimeSeen = now;
             myPackageCache.clear();
           }
+          final long outOfCodeBlock = modificationTracker.getOutOfCodeBlockModificationCount();
+          if (lastOutOfCodeBlockTimeSeen != outOfCodeBlock) {
+            lastOutOfCodeBlockTimeSeen = outOfCodeBlock;
+            myMissingClasses.clear();
+          }
+        }
+      });
+      // files changed outside of the IDE don't produce PSI events unless their PSI is loaded
+      bus.connect().subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+          for (VFileEvent event : events) {
+            if (!(event instanceof VFileContentChangeEvent) || event.isFromRefresh()) {
+              myMissingClasses.clear();
+              return;
+            }
+          }
         }
       });
     }
@@ -105,14 +140,43 @@ public class JavaPsiFacadeImpl extends JavaPsiFacadeEx {
       return null;
     }
 
+    Set<String> missing = myMissingClasses == null ? null : myMissingClasses.get(scope);
+    if (missing != null && missing.contains(qualifiedName)) {
+      myMissingClassHits.incrementAndGet();
+      return null;
+    }
+
     for (PsiElementFinder finder : finders()) {
       PsiClass aClass = finder.findClass(qualifiedName, scope);
       if (aClass != null) return aClass;
     }
 
+    if (myMissingClasses != null) {
+      myMissingClassMisses.incrementAndGet();
+      if (missing == null) {
+        missing = ConcurrencyUtil.cacheOrGet(myMissingClasses, scope, new ConcurrentHashSet<String>());
+      }
+      missing.add(qualifiedName);
+    }
     return null;
   }
 
+  /**
+   * @return number of {@link #findClass} calls answered from the cache of classes missing in a scope
+   */
+  @TestOnly
+  public int getMissingClassCacheHits() {
+    return myMissingClassHits.get();
+  }
+
+  /**
+   * @return number of {@link #findClass} calls which found nothing and whose result has been put into the cache of missing classes
+   */
+  @TestOnly
+  public int getMissingClassCacheMisses() {
+    return myMissingClassMisses.get();
+  }
+
   @NotNull
   private PsiClass[] findClassesInDumbMode(@NotNull String qualifiedName, @NotNull GlobalSearchScope scope) {
     final String packageName = StringUtil.getPackageName(qualifiedName);
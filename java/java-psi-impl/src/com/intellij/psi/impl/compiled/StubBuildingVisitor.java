@@ -59,6 +59,10 @@ public class StubBuildingVisitor<T> extends ClassVisitor {
   @NonNls private static final String SYNTHETIC_CLASS_INIT_METHOD = "<clinit>";
   @NonNls private static final String SYNTHETIC_INIT_METHOD = "<init>";
 
+  private static final byte[] LOCAL_VARIABLE_TABLE =
+    {'L', 'o', 'c', 'a', 'l', 'V', 'a', 'r', 'i', 'a', 'b', 'l', 'e', 'T', 'a', 'b', 'l', 'e'};
+  private static final int CONSTANT_UTF8 = 1;
+
   private final InnerClassSourceStrategy<T> myInnersStrategy;
   private final StubElement myParent;
   private final int myAccess;
@@ -78,6 +82,30 @@ public class StubBuildingVisitor<T> extends ClassVisitor {
     return myResult;
   }
 
+  /**
+   * Method bodies are only needed to read parameter names from local variable tables. When a class is compiled without them,
+   * as the JDK classes are, its code isn't decoded at all.
+   */
+  public static int getParsingFlags(@NotNull ClassReader reader) {
+    return hasLocalVariableTable(reader) ? ClassReader.SKIP_FRAMES : ClassReader.SKIP_CODE;
+  }
+
+  private static boolean hasLocalVariableTable(@NotNull ClassReader reader) {
+    final byte[] bytes = reader.b;
+    final int length = LOCAL_VARIABLE_TABLE.length;
+    nextItem:
+    for (int i = 1; i < reader.getItemCount(); i++) {
+      final int offset = reader.getItem(i);
+      // the item following a long or a double constant has no offset
+      if (offset == 0 || bytes[offset - 1] != CONSTANT_UTF8 || reader.readUnsignedShort(offset) != length) continue;
+      for (int j = 0; j < length; j++) {
+        if (bytes[offset + 2 + j] != LOCAL_VARIABLE_TABLE[j]) continue nextItem;
+      }
+      return true;
+    }
+    return false;
+  }
+
   @Override
   public void visit(final int version,
                     final int access,
@@ -325,7 +353,7 @@ public class StubBuildingVisitor<T> extends ClassVisitor {
     if (reader == null) return;
 
     final StubBuildingVisitor<T> classVisitor = new StubBuildingVisitor<T>(innerSource, myInnersStrategy, myResult, access);
-    reader.accept(classVisitor, ClassReader.SKIP_FRAMES);
+    reader.accept(classVisitor, getParsingFlags(reader));
   }
 
   private static boolean isCorrectName(String name) {
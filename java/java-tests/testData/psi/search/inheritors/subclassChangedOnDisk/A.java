@@ -0,0 +1 @@
+public class A extends Base {}
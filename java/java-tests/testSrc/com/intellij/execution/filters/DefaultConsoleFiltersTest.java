@@ -0,0 +1,30 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.execution.filters;
+
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+public class DefaultConsoleFiltersTest extends LightCodeInsightFixtureTestCase {
+  public void testDefaultFiltersRunInBackground() {
+    Filter[] filters = new DefaultConsoleFiltersProvider().getDefaultFilters(getProject());
+    assertTrue(filters.length > 0);
+    CompositeFilter composite = new CompositeFilter(getProject());
+    for (Filter filter : filters) {
+      composite.addFilter(filter);
+    }
+    assertTrue(composite.canRunInBackground());
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.psi.impl.source.text.ReparseStatistics;
+import com.intellij.testFramework.PlatformTestCase;
+
+/**
+ * Checks that trees built by reparse of a changed range are the same as trees built from scratch for the new text
+ */
+@PlatformTestCase.WrapInCommand
+public class JavaIncrementalReparseTest extends AbstractReparseTestCase {
+  private static final String METHODS = "  void foo() {\n    int a = 1;\n  }\n\n  void bar() {\n    foo();\n  }\n";
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    setFileType(StdFileTypes.JAVA);
+  }
+
+  public void testEditInCodeBlockIsIncremental() throws Exception {
+    prepareFile("class A {\n  void foo() {\n    int a = 1;", "\n  }\n}\n");
+    int incremental = ReparseStatistics.getIncrementalReparseCount(JavaLanguage.INSTANCE);
+    int full = ReparseStatistics.getFullReparseCount(JavaLanguage.INSTANCE);
+
+    insert("\n    int b = a;");
+
+    assertEquals(incremental + 1, ReparseStatistics.getIncrementalReparseCount(JavaLanguage.INSTANCE));
+    assertEquals(full, ReparseStatistics.getFullReparseCount(JavaLanguage.INSTANCE));
+  }
+
+  public void testEditAfterUnchangedMembersIsFull() throws Exception {
+    prepareFile("import java.util.*;\n\nclass A {\n" + METHODS, "}\n");
+    int incremental = ReparseStatistics.getIncrementalReparseCount(JavaLanguage.INSTANCE);
+    int full = ReparseStatistics.getFullReparseCount(JavaLanguage.INSTANCE);
+
+    insert("  int field;\n");
+    insert("  List<String> list;\n");
+
+    assertEquals(incremental, ReparseStatistics.getIncrementalReparseCount(JavaLanguage.INSTANCE));
+    assertEquals(full + 2, ReparseStatistics.getFullReparseCount(JavaLanguage.INSTANCE));
+  }
+
+  public void testEditChangingParseOfUnchangedPrefix() throws Exception {
+    // the members before the edit keep their text, but become a part of another class
+    prepareFile("class A {\n" + METHODS, "}\nclass B {\n" + METHODS + "}\n");
+    insert("}\nclass C {\n");
+    remove(10);
+  }
+
+  public void testEditBreakingBraceBalance() throws Exception {
+    prepareFile("class A {\n  void foo() {\n", "\n  }\n" + METHODS + "}\n");
+    insert("if (true) {");
+    insert("}");
+  }
+
+  public void testEditAtFileStart() throws Exception {
+    prepareFile("", "class A {\n" + METHODS + "}\n");
+    insert("package p;\n");
+    insert("import java.util.List;\n");
+    remove(23);
+  }
+
+  public void testLexingAfterCommentEdits() throws Exception {
+    PsiFile file = prepareFileWithDocument("import java.util.*;\n\nclass A {\n" + METHODS + "  // end\n}\nclass B {\n" + METHODS + "}\n");
+    replaceInDocument(file, "  void bar", "  /* void bar");
+    replaceInDocument(file, "  // end", "  */ // end");
+    replaceInDocument(file, "/* ", "");
+    replaceInDocument(file, "*/ ", "");
+  }
+
+  public void testLexingAfterLiteralEdits() throws Exception {
+    PsiFile file = prepareFileWithDocument("class A {\n  String s = \"a\";\n" + METHODS + "  char c = 'c';\n}\n");
+    replaceInDocument(file, "\"a\"", "\"a");
+    replaceInDocument(file, "'c'", "'c");
+    replaceInDocument(file, "\"a", "\"a\" + \"b\"");
+    replaceInDocument(file, "'c", "'\\''");
+  }
+}
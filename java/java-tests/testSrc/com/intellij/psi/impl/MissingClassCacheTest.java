@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.impl;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+public class MissingClassCacheTest extends LightCodeInsightFixtureTestCase {
+  public void testMissingClassIsCached() {
+    JavaPsiFacadeImpl facade = getFacade();
+    int hits = facade.getMissingClassCacheHits();
+    int misses = facade.getMissingClassCacheMisses();
+
+    assertNull(facade.findClass("p.Missing", getScope()));
+    assertNull(facade.findClass("p.Missing", getScope()));
+
+    assertEquals(misses + 1, facade.getMissingClassCacheMisses());
+    assertEquals(hits + 1, facade.getMissingClassCacheHits());
+  }
+
+  public void testCacheIsClearedWhenFileIsCreatedInVfs() throws Exception {
+    JavaPsiFacadeImpl facade = getFacade();
+    assertNull(facade.findClass("p.Missing", getScope()));
+
+    // no PSI is loaded for the file, only VFS events tell about it
+    myFixture.getTempDirFixture().createFile("p/Missing.java", "package p; public class Missing {}");
+
+    assertNotNull(facade.findClass("p.Missing", getScope()));
+  }
+
+  public void testCacheSurvivesEditInCodeBlock() {
+    JavaPsiFacadeImpl facade = getFacade();
+    PsiFile file = myFixture.addFileToProject("A.java", "class A {\n  void foo() {\n  }\n}");
+    assertNull(facade.findClass("p.Missing", getScope()));
+    int hits = facade.getMissingClassCacheHits();
+
+    final Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.insertString(document.getText().indexOf("  }"), "    int i = 0;\n");
+      }
+    });
+    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+    assertNull(facade.findClass("p.Missing", getScope()));
+    assertEquals(hits + 1, facade.getMissingClassCacheHits());
+  }
+
+  private JavaPsiFacadeImpl getFacade() {
+    return (JavaPsiFacadeImpl)JavaPsiFacade.getInstance(getProject());
+  }
+
+  private GlobalSearchScope getScope() {
+    return GlobalSearchScope.allScope(getProject());
+  }
+}
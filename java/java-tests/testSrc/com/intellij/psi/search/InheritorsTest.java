@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2012 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,30 @@
 package com.intellij.psi.search;
 
 import com.intellij.JavaTestUtil;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.searches.ClassFilesModificationTracker;
 import com.intellij.psi.search.searches.ClassInheritorsSearch;
 import com.intellij.testFramework.IdeaTestUtil;
 import com.intellij.testFramework.PsiTestCase;
 import com.intellij.testFramework.PsiTestUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class InheritorsTest extends PsiTestCase{
@@ -53,6 +66,56 @@ public class InheritorsTest extends PsiTestCase{
     doTest("x.Test", "", true, "x.Goo", "x.Zoo");
   }
 
+  public void testSubclassChangedOnDisk() throws Exception {
+    doTest("Base", "", true, "A");
+
+    // PSI of B.java isn't loaded, so the change doesn't produce any PSI events
+    VirtualFile file = ModuleRootManager.getInstance(myModule).getSourceRoots()[0].findChild("B.java");
+    assertNotNull(file);
+    File ioFile = VfsUtilCore.virtualToIoFile(file);
+    FileUtil.writeToFile(ioFile, "public class B extends Base {}");
+    assertTrue(ioFile.setLastModified(file.getTimeStamp() + 2000));
+    file.refresh(false, false);
+
+    doTest("Base", "", true, "A", "B");
+  }
+
+  public void testTrackedVfsChanges() throws Exception {
+    final VirtualFile root = ModuleRootManager.getInstance(myModule).getSourceRoots()[0];
+    VirtualFile file = root.findChild("A.java");
+    assertNotNull(file);
+    ModificationTracker tracker = ClassFilesModificationTracker.getInstance(myProject);
+    long count = tracker.getModificationCount();
+
+    // a saved document is already reported by PSI
+    final Document document = FileDocumentManager.getInstance().getDocument(file);
+    assertNotNull(document);
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.insertString(0, "// comment\n");
+        PsiDocumentManager.getInstance(myProject).commitDocument(document);
+        FileDocumentManager.getInstance().saveDocument(document);
+      }
+    });
+    assertEquals(count, tracker.getModificationCount());
+
+    createChild(root, "data.bin");
+    assertEquals(count, tracker.getModificationCount());
+
+    createChild(root, "B.java");
+    assertTrue(tracker.getModificationCount() > count);
+  }
+
+  private static void createChild(final VirtualFile dir, final String name) throws IOException {
+    ApplicationManager.getApplication().runWriteAction(new ThrowableComputable<VirtualFile, IOException>() {
+      @Override
+      public VirtualFile compute() throws IOException {
+        return dir.createChildData(null, name);
+      }
+    });
+  }
+
   private void doTest(String className, String packageScopeName, final boolean deep, String... inheritorNames) throws Exception {
     final PsiClass aClass = myJavaFacade.findClass(className);
     assertNotNull(aClass);
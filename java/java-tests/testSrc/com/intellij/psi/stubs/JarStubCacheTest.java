@@ -0,0 +1,155 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.stubs;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.testFramework.PlatformTestCase;
+import com.intellij.testFramework.PsiTestUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class JarStubCacheTest extends PlatformTestCase {
+  private static final byte[] CLASS_BYTES = {(byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE, 0, 0, 0, 50};
+  private static final String CLASS_PATH = "a/A.class";
+
+  public void testIdenticalJarReusesStubs() throws Exception {
+    File dir = createTempDirectory();
+    File jar = createJar(new File(dir, "first/lib.jar"), CLASS_BYTES);
+    File copy = new File(dir, "second/lib.jar");
+    FileUtil.copy(jar, copy);
+
+    String key = getKeyInBackground(findClass(jar));
+    assertNotNull(key);
+    assertEquals(key, getKeyInBackground(findClass(copy)));
+
+    JarStubCache cache = new JarStubCache(new File(dir, "cache/jar_stubs"));
+    try {
+      byte[] stubs = {1, 2, 3, 4};
+      cache.put(key, stubs, 3);
+      assertTrue(Arrays.equals(new byte[]{1, 2, 3}, cache.get(getKeyInBackground(findClass(copy)))));
+    }
+    finally {
+      cache.dispose();
+    }
+  }
+
+  public void testDifferentJarGetsAnotherKey() throws Exception {
+    File dir = createTempDirectory();
+    File jar = createJar(new File(dir, "first/lib.jar"), CLASS_BYTES);
+    File other = createJar(new File(dir, "second/lib.jar"), Arrays.copyOf(CLASS_BYTES, CLASS_BYTES.length + 1));
+
+    String key = getKeyInBackground(findClass(jar));
+    assertNotNull(key);
+    assertFalse(key.equals(getKeyInBackground(findClass(other))));
+  }
+
+  public void testJarIsNotHashedUnderReadAction() throws Exception {
+    File jar = createJar(new File(createTempDirectory(), "lib.jar"), CLASS_BYTES);
+    VirtualFile file = findClass(jar);
+
+    assertTrue(ApplicationManager.getApplication().isReadAccessAllowed());
+    assertNull(JarStubCache.getKey(file));
+    assertNotNull(getKeyInBackground(file));
+  }
+
+  public void testStubIndexTakesStubsOfIdenticalJarFromCache() throws Exception {
+    String classPath = JarStubCacheTest.class.getName().replace('.', '/') + ".class";
+    InputStream classStream = JarStubCacheTest.class.getResourceAsStream("/" + classPath);
+    assertNotNull(classStream);
+    byte[] classBytes;
+    try {
+      classBytes = FileUtil.loadBytes(classStream);
+    }
+    finally {
+      classStream.close();
+    }
+    File dir = createTempDirectory();
+    File jar = createJar(new File(dir, "first/lib.jar"), classPath, classBytes);
+    File copy = new File(dir, "second/lib.jar");
+    FileUtil.copy(jar, copy);
+    VirtualFile file = findFile(jar, classPath);
+    VirtualFile copyFile = findFile(copy, classPath);
+    // files of jars which aren't hashed yet are indexed without the cache
+    assertNotNull(getKeyInBackground(file));
+    assertNotNull(getKeyInBackground(copyFile));
+
+    PsiTestUtil.addLibrary(myModule, "first", jar.getParent(), jar.getName());
+    ObjectStubTree tree = StubTreeLoader.getInstance().readFromVFile(myProject, file);
+    assertNotNull(tree);
+    int hits = JarStubCache.getHitCount();
+
+    PsiTestUtil.addLibrary(myModule, "second", copy.getParent(), copy.getName());
+    ObjectStubTree copyTree = StubTreeLoader.getInstance().readFromVFile(myProject, copyFile);
+    assertNotNull(copyTree);
+    assertEquals(hits + 1, JarStubCache.getHitCount());
+    assertEquals(DebugUtil.stubTreeToString(tree.getRoot()), DebugUtil.stubTreeToString(copyTree.getRoot()));
+  }
+
+  private static String getKeyInBackground(@NotNull final VirtualFile file) throws Exception {
+    return ApplicationManager.getApplication().executeOnPooledThread(new Callable<String>() {
+      @Override
+      public String call() {
+        return JarStubCache.getKey(file);
+      }
+    }).get();
+  }
+
+  @NotNull
+  private static VirtualFile findClass(@NotNull File jar) {
+    return findFile(jar, CLASS_PATH);
+  }
+
+  @NotNull
+  private static VirtualFile findFile(@NotNull File jar, @NotNull String pathInJar) {
+    assertNotNull(LocalFileSystem.getInstance().refreshAndFindFileByIoFile(jar));
+    VirtualFile file = JarFileSystem.getInstance().refreshAndFindFileByPath(jar.getPath() + JarFileSystem.JAR_SEPARATOR + pathInJar);
+    assertNotNull(file);
+    return file;
+  }
+
+  @NotNull
+  private static File createJar(@NotNull File jar, @NotNull byte[] classBytes) throws IOException {
+    return createJar(jar, CLASS_PATH, classBytes);
+  }
+
+  @NotNull
+  private static File createJar(@NotNull File jar, @NotNull String classPath, @NotNull byte[] classBytes) throws IOException {
+    assertTrue(jar.getParentFile().mkdirs());
+    JarOutputStream stream = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      stream.putNextEntry(new ZipEntry(classPath));
+      stream.write(classBytes);
+      stream.closeEntry();
+    }
+    finally {
+      stream.close();
+    }
+    return jar;
+  }
+}
@@ -3,6 +3,7 @@ package com.intellij.psi;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.psi.impl.DebugUtil;
 import com.intellij.psi.impl.source.SourceTreeToPsiMap;
@@ -10,6 +11,7 @@ import com.intellij.psi.text.BlockSupport;
 import com.intellij.testFramework.PsiTestCase;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * @author maxim
@@ -106,4 +108,36 @@ public abstract class AbstractReparseTestCase extends PsiTestCase {
     myDummyFile = createDummyFile(getName() + "." + myFileType.getDefaultExtension(), prefix + suffix);
     myInsertOffset = prefix.length();
   }
+
+  /**
+   * Creates a physical file with a document, so that tokens of its last parse are cached and reused on reparse of a changed file
+   */
+  @NotNull
+  protected PsiFile prepareFileWithDocument(@NonNls String text) throws Exception {
+    PsiFile file = createFile(getName() + "." + myFileType.getDefaultExtension(), text);
+    getDocument(file);
+    DebugUtil.treeToString(file.getNode(), false);
+    return file;
+  }
+
+  /**
+   * Replaces the first occurrence of {@code oldText} in the document of the file, commits it and checks that the reparsed tree
+   * is the same as the tree built from scratch, with the whole text lexed again
+   */
+  protected void replaceInDocument(@NotNull PsiFile file, @NonNls final String oldText, @NonNls final String newText) {
+    final Document document = getDocument(file);
+    final int offset = document.getText().indexOf(oldText);
+    assertTrue(oldText, offset >= 0);
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.replaceString(offset, offset + oldText.length(), newText);
+      }
+    });
+    commitDocument(document);
+
+    final PsiFile expected = createDummyFile(file.getName(), document.getText());
+    assertEquals(DebugUtil.treeToString(expected.getNode(), false), DebugUtil.treeToString(file.getNode(), false));
+    assertEquals(document.getText(), file.getText());
+  }
 }
@@ -27,4 +27,14 @@ public interface GlobalOptions {
   String COMPILE_PARALLEL_MAX_THREADS_OPTION = "compile.parallel.max.threads";
   String REBUILD_ON_DEPENDENCY_CHANGE_OPTION = "rebuild.on.dependency.change";
   String LOG_DIR_OPTION = "log.dir";
+  /**
+   * Number of seconds the build process waits for the next build session keeping the project model in memory; the process exits after
+   * the first session if the option is not specified
+   */
+  String KEEP_ALIVE_TIMEOUT_OPTION = "compile.process.keep.alive.timeout";
+  /**
+   * Path to directory where compiled classes are cached and looked up by the hash of module sources, compiler options and dependencies;
+   * the cache is disabled if the option is not specified
+   */
+  String BUILD_CACHE_DIR_OPTION = "compile.build.cache.dir";
 }
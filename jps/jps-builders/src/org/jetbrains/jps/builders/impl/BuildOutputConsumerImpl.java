@@ -20,6 +20,7 @@ import gnu.trove.THashSet;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildTarget;
 import org.jetbrains.jps.builders.storage.SourceToOutputMapping;
+import org.jetbrains.jps.incremental.BuildStatistics;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.messages.FileGeneratedEvent;
 
@@ -68,6 +69,7 @@ public class BuildOutputConsumerImpl implements BuildOutputConsumer {
   }
 
   public void fireFileGeneratedEvent() {
+    BuildStatistics.getInstance(myContext).addProcessedFiles(myTarget, myRegisteredSources.size());
     if (!myFileGeneratedEvent.getPaths().isEmpty()) {
       myContext.processMessage(myFileGeneratedEvent);
     }
@@ -68,6 +68,20 @@ public class JavaBuilderUtil {
                                        ModuleChunk chunk,
                                        Collection<File> filesToCompile,
                                        Collection<File> successfullyCompiled) throws IOException {
+    return updateMappings(context, delta, dirtyFilesHolder, chunk, filesToCompile, successfullyCompiled, false);
+  }
+
+  /**
+   * @param abiUnchanged true if the builder has checked that ABI of the classes compiled in this round is the same as before, so
+   *                     dependent files cannot be affected and the dependency analysis may be skipped
+   */
+  public static boolean updateMappings(CompileContext context,
+                                       final Mappings delta,
+                                       DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+                                       ModuleChunk chunk,
+                                       Collection<File> filesToCompile,
+                                       Collection<File> successfullyCompiled,
+                                       boolean abiUnchanged) throws IOException {
     try {
       boolean additionalPassRequired = false;
 
@@ -77,7 +91,14 @@ public class JavaBuilderUtil {
 
       final boolean errorsDetected = Utils.errorsDetected(context);
       if (!isForcedRecompilationAllJavaModules(context)) {
-        if (context.shouldDifferentiate(chunk)) {
+        if (abiUnchanged && !errorsDetected) {
+          final String messageText = "ABI of " + chunk.getName() + " is not changed, dependent modules are skipped";
+          LOG.info(messageText);
+          context.processMessage(new ProgressMessage(messageText));
+          getAllCompiledFilesContainer(context).addAll(successfullyCompiled);
+          globalMappings.differentiateOnNonIncrementalMake(delta, removedPaths, filesToCompile);
+        }
+        else if (context.shouldDifferentiate(chunk)) {
           context.processMessage(new ProgressMessage("Checking dependencies... [" + chunk.getName() + "]"));
           final Set<File> allCompiledFiles = getAllCompiledFilesContainer(context);
           final Set<File> allAffectedFiles = getAllAffectedFilesContainer(context);
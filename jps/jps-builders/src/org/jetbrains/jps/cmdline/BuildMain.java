@@ -59,6 +59,16 @@ public class BuildMain {
   }
 
   private static NioClientSocketChannelFactory ourChannelFactory;
+  /**
+   * In keep-alive mode the process is not terminated after the build session is finished. It keeps the project data in memory and
+   * waits for ids of the next sessions in its standard input stream; the process exits if no session is started within the timeout.
+   */
+  private static long ourKeepAliveTimeout;
+  private static final Object ourIdleLock = new Object();
+  private static long ourIdleSince;
+  private static boolean ourSessionRunning;
+  @Nullable
+  private static PreloadedProjectData ourPreloadedData;
 
   public static void main(String[] args){
     System.out.println("Build process started. Classpath: " + System.getProperty("java.class.path"));
@@ -67,8 +77,31 @@ public class BuildMain {
     final UUID sessionId = UUID.fromString(args[2]);
     final File systemDir = new File(FileUtil.toCanonicalPath(args[3]));
     Utils.setSystemRoot(systemDir);
+    ourKeepAliveTimeout = Long.getLong(GlobalOptions.KEEP_ALIVE_TIMEOUT_OPTION, 0L) * 1000L;
 
     ourChannelFactory = new NioClientSocketChannelFactory(SharedThreadPool.getInstance(), SharedThreadPool.getInstance(), 1);
+    if (!connect(host, port, sessionId)) {
+      System.err.println("Exiting.");
+      System.exit(-1);
+    }
+    if (ourKeepAliveTimeout > 0L) {
+      startIdleWatcher();
+      waitForNextSessions(host, port);
+    }
+  }
+
+  private static boolean connect(final String host, final int port, final UUID sessionId) {
+    synchronized (ourIdleLock) {
+      // sessions share the project data, so the next one may start only after the previous one is finished
+      while (ourSessionRunning) {
+        try {
+          ourIdleLock.wait();
+        }
+        catch (InterruptedException ignored) {
+        }
+      }
+      ourSessionRunning = true;
+    }
     final ClientBootstrap bootstrap = new ClientBootstrap(ourChannelFactory);
     bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
       public ChannelPipeline getPipeline() throws Exception {
@@ -98,8 +131,100 @@ public class BuildMain {
       if (reason != null) {
         reason.printStackTrace(System.err);
       }
-      System.err.println("Exiting.");
-      System.exit(-1);
+      setIdle();
+    }
+    return success;
+  }
+
+  private static void waitForNextSessions(String host, int port) {
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        final UUID sessionId;
+        try {
+          sessionId = UUID.fromString(line);
+        }
+        catch (IllegalArgumentException e) {
+          LOG.info("Unexpected input: " + line);
+          continue;
+        }
+        if (!connect(host, port, sessionId)) {
+          break;
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+    // the controlling process has closed the stream
+    shutdown();
+  }
+
+  private static void startIdleWatcher() {
+    final Thread watcher = new Thread("Idle build process watcher") {
+      public void run() {
+        while (true) {
+          try {
+            Thread.sleep(Math.min(ourKeepAliveTimeout, 10000L));
+          }
+          catch (InterruptedException ignored) {
+          }
+          synchronized (ourIdleLock) {
+            if (!ourSessionRunning && System.currentTimeMillis() - ourIdleSince > ourKeepAliveTimeout) {
+              LOG.info("No build requests within " + ourKeepAliveTimeout + " ms, exiting");
+              break;
+            }
+          }
+        }
+        shutdown();
+      }
+    };
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  private static void sessionFinished(BuildSession session) {
+    synchronized (ourIdleLock) {
+      ourPreloadedData = session.getPreloadedData();
+    }
+    setIdle();
+  }
+
+  private static void setIdle() {
+    synchronized (ourIdleLock) {
+      ourIdleSince = System.currentTimeMillis();
+      ourSessionRunning = false;
+      ourIdleLock.notifyAll();
+    }
+  }
+
+  @Nullable
+  private static PreloadedProjectData takePreloadedData() {
+    synchronized (ourIdleLock) {
+      final PreloadedProjectData data = ourPreloadedData;
+      ourPreloadedData = null;
+      return data;
+    }
+  }
+
+  private static void shutdown() {
+    final PreloadedProjectData data;
+    synchronized (ourIdleLock) {
+      data = ourSessionRunning? null : takePreloadedData();
+    }
+    try {
+      if (data != null) {
+        data.release();
+      }
+      ourChannelFactory.releaseExternalResources();
+    }
+    finally {
+      System.exit(0);
     }
   }
 
@@ -124,7 +249,10 @@ public class BuildMain {
           case BUILD_PARAMETERS: {
             if (mySession == null) {
               final CmdlineRemoteProto.Message.ControllerMessage.FSEvent delta = controllerMessage.hasFsEvent()? controllerMessage.getFsEvent() : null;
-              final BuildSession session = new BuildSession(mySessionId, channel, controllerMessage.getParamsMessage(), delta);
+              final boolean keepAlive = ourKeepAliveTimeout > 0L;
+              final BuildSession session = keepAlive ?
+                new BuildSession(mySessionId, channel, controllerMessage.getParamsMessage(), delta, takePreloadedData(), true) :
+                new BuildSession(mySessionId, channel, controllerMessage.getParamsMessage(), delta);
               mySession = session;
               SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
                 public void run() {
@@ -132,8 +260,14 @@ public class BuildMain {
                     session.run();
                   }
                   finally {
-                    channel.close();
-                    System.exit(0);
+                    if (keepAlive) {
+                      sessionFinished(session);
+                      channel.close();
+                    }
+                    else {
+                      channel.close();
+                      System.exit(0);
+                    }
                   }
                 }
               });
@@ -183,6 +317,18 @@ public class BuildMain {
         super.channelClosed(ctx, e);
       }
       finally {
+        if (ourKeepAliveTimeout > 0L) {
+          final BuildSession session = mySession;
+          if (session != null) {
+            // the session cannot report its results anymore
+            session.cancel();
+          }
+          else {
+            // the connection was closed before the session was started
+            setIdle();
+          }
+          return;
+        }
         new Thread("Shutdown thread") {
           public void run() {
             try {
@@ -31,6 +31,7 @@ import org.jetbrains.jps.api.*;
 import org.jetbrains.jps.builders.*;
 import org.jetbrains.jps.builders.java.JavaModuleBuildTargetType;
 import org.jetbrains.jps.builders.java.dependencyView.Callbacks;
+import org.jetbrains.jps.incremental.FSCache;
 import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.TargetTypeRegistry;
 import org.jetbrains.jps.incremental.Utils;
@@ -62,6 +63,7 @@ final class BuildSession implements Runnable, CanceledStatus {
   private final Channel myChannel;
   private volatile boolean myCanceled = false;
   private final String myProjectPath;
+  private final String myGlobalOptionsPath;
   @Nullable
   private CmdlineRemoteProto.Message.ControllerMessage.FSEvent myInitialFSDelta;
   // state
@@ -73,17 +75,38 @@ final class BuildSession implements Runnable, CanceledStatus {
   private final BuildRunner myBuildRunner;
   private final boolean myForceModelLoading;
   private BuildType myBuildType;
+  private final boolean myKeepProjectData;
+  @Nullable
+  private volatile PreloadedProjectData myPreloadedData;
+  @Nullable
+  private volatile Long myModelStampToKeep;
 
   BuildSession(UUID sessionId,
                Channel channel,
                CmdlineRemoteProto.Message.ControllerMessage.ParametersMessage params,
                @Nullable CmdlineRemoteProto.Message.ControllerMessage.FSEvent delta) {
+    this(sessionId, channel, params, delta, null, false);
+  }
+
+  /**
+   * @param preloaded project data kept in memory after the previous session; it is released if it cannot be reused by this session
+   * @param keepProjectData whether the project data should be kept in memory after the build instead of being released
+   */
+  BuildSession(UUID sessionId,
+               Channel channel,
+               CmdlineRemoteProto.Message.ControllerMessage.ParametersMessage params,
+               @Nullable CmdlineRemoteProto.Message.ControllerMessage.FSEvent delta,
+               @Nullable PreloadedProjectData preloaded,
+               boolean keepProjectData) {
     mySessionId = sessionId;
     myChannel = channel;
+    myPreloadedData = preloaded;
+    myKeepProjectData = keepProjectData;
 
     final CmdlineRemoteProto.Message.ControllerMessage.GlobalSettings globals = params.getGlobalSettings();
     myProjectPath = FileUtil.toCanonicalPath(params.getProjectId());
     String globalOptionsPath = FileUtil.toCanonicalPath(globals.getGlobalOptionsPath());
+    myGlobalOptionsPath = globalOptionsPath;
     myBuildType = convertCompileType(params.getBuildType());
     List<TargetTypeBuildScope> scopes = params.getScopeList();
     List<String> filePaths = params.getFilePathList();
@@ -164,12 +187,35 @@ final class BuildSession implements Runnable, CanceledStatus {
     }
   }
 
+  /**
+   * @return project data which may be reused by the next session, or {@code null} if the data was released
+   */
+  @Nullable
+  public PreloadedProjectData getPreloadedData() {
+    return myPreloadedData;
+  }
+
   private void runBuild(final MessageHandler msgHandler, CanceledStatus cs) throws Throwable{
+    final PreloadedProjectData preloaded = myPreloadedData;
+    myPreloadedData = null;
     final File dataStorageRoot = Utils.getDataStorageRoot(myProjectPath);
     if (dataStorageRoot == null) {
+      if (preloaded != null) {
+        preloaded.release();
+      }
       msgHandler.processMessage(new CompilerMessage("build", BuildMessage.Kind.ERROR, "Cannot determine build data storage root for project " + myProjectPath));
       return;
     }
+
+    if (preloaded != null) {
+      if (!myForceModelLoading && dataStorageRoot.exists() && myInitialFSDelta != null &&
+          preloaded.isValidFor(myProjectPath, myGlobalOptionsPath, myInitialFSDelta.getOrdinal())) {
+        runPreloadedBuild(preloaded, msgHandler, cs, dataStorageRoot);
+        return;
+      }
+      LOG.info("Preloaded project data cannot be reused, the model will be reloaded");
+      preloaded.release();
+    }
     if (!dataStorageRoot.exists()) {
       // invoked the very first time for this project
       myBuildRunner.setForceCleanCaches(true);
@@ -189,8 +235,11 @@ final class BuildSession implements Runnable, CanceledStatus {
 
     final BuildFSState fsState = new BuildFSState(false);
     try {
+      final long loadingStarted = System.currentTimeMillis();
+      final long projectStamp = myKeepProjectData? PreloadedProjectData.computeProjectStamp(myProjectPath, myGlobalOptionsPath) : 0L;
       final ProjectDescriptor pd = myBuildRunner.load(msgHandler, dataStorageRoot, fsState);
       myProjectDescriptor = pd;
+      final Long modulesStamp = myKeepProjectData? PreloadedProjectData.computeModulesStamp(pd.getProject(), loadingStarted) : null;
       if (fsStateStream != null) {
         try {
           try {
@@ -214,12 +263,46 @@ final class BuildSession implements Runnable, CanceledStatus {
       myEventsProcessor.startProcessing();
 
       myBuildRunner.runBuild(pd, cs, myConstantSearch, msgHandler, myBuildType);
+      if (modulesStamp != null) {
+        keepProjectData(projectStamp + modulesStamp);
+      }
     }
     finally {
       saveData(fsState, dataStorageRoot);
     }
   }
 
+  private void runPreloadedBuild(PreloadedProjectData preloaded, MessageHandler msgHandler, CanceledStatus cs, File dataStorageRoot) throws Throwable {
+    final long start = System.currentTimeMillis();
+    final ProjectDescriptor pd = preloaded.getProjectDescriptor();
+    myProjectDescriptor = pd;
+    try {
+      try {
+        applyFSEvent(pd, myInitialFSDelta, false);
+      }
+      catch (Throwable e) {
+        LOG.error(e);
+        pd.fsState.clearAll();
+      }
+      myLastEventOrdinal = myInitialFSDelta.getOrdinal();
+      myInitialFSDelta = null;
+      myEventsProcessor.startProcessing();
+      LOG.info("Reusing preloaded project data for " + myProjectPath + "; initialized in " + (System.currentTimeMillis() - start) + " ms");
+
+      myBuildRunner.runBuild(pd, cs, myConstantSearch, msgHandler, myBuildType);
+      keepProjectData(preloaded.getModelStamp());
+    }
+    finally {
+      saveData(pd.fsState, dataStorageRoot);
+    }
+  }
+
+  private void keepProjectData(long modelStamp) {
+    if (myKeepProjectData && !myCanceled) {
+      myModelStampToKeep = modelStamp;
+    }
+  }
+
   private static boolean scopeContainsModulesOnlyForIncrementalMake(List<TargetTypeBuildScope> scopes) {
     TargetTypeRegistry typeRegistry = null;
     for (TargetTypeBuildScope scope : scopes) {
@@ -255,7 +338,18 @@ final class BuildSession implements Runnable, CanceledStatus {
       saveFsState(dataStorageRoot, fsState);
       final ProjectDescriptor pd = myProjectDescriptor;
       if (pd != null) {
-        pd.release();
+        final Long modelStamp = myModelStampToKeep;
+        if (modelStamp != null) {
+          // storages stay open, so make sure all data is on disk in case the process is terminated
+          pd.setFSCache(FSCache.NO_CACHE);
+          pd.timestamps.getStorage().force();
+          pd.dataManager.flush(false);
+          pd.getTargetsState().save();
+          myPreloadedData = new PreloadedProjectData(myProjectPath, myGlobalOptionsPath, pd, myLastEventOrdinal, modelStamp);
+        }
+        else {
+          pd.release();
+        }
       }
     }
     finally {
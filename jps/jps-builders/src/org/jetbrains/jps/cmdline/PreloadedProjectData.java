@@ -0,0 +1,198 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.cmdline;
+
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.model.JpsProject;
+import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.model.serialization.JDomSerializationUtil;
+import org.jetbrains.jps.model.serialization.JpsModelSerializationDataService;
+import org.jetbrains.jps.model.serialization.JpsModelSerializerExtension;
+import org.jetbrains.jps.model.serialization.JpsProjectExtensionSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Project state kept in memory by the build process between build sessions: the loaded model, opened storages and the file system state.
+ * The data may be reused by the next session only if it has been built for the same project, no file system events were lost since
+ * the previous build and the project configuration files were not modified after the model had been loaded.
+ * <p/>
+ * Workspace files (workspace.xml, *.iws) are rewritten by the IDE all the time, so only the components the model is loaded from are
+ * taken into account for them.
+ */
+final class PreloadedProjectData {
+  private static final String WORKSPACE_FILE_NAME = JpsProjectExtensionSerializer.WORKSPACE_FILE;
+  private static final String RUN_MANAGER_COMPONENT = "RunManager";
+  /**
+   * Some file systems store timestamps with one second precision, so a file modified during loading may look older than the loading
+   */
+  private static final long TIMESTAMP_PRECISION = 1000L;
+
+  private final String myProjectPath;
+  private final String myGlobalOptionsPath;
+  private final ProjectDescriptor myProjectDescriptor;
+  private final long myLastEventOrdinal;
+  private final long myModelStamp;
+
+  PreloadedProjectData(String projectPath, String globalOptionsPath, ProjectDescriptor pd, long lastEventOrdinal, long modelStamp) {
+    myProjectPath = projectPath;
+    myGlobalOptionsPath = globalOptionsPath;
+    myProjectDescriptor = pd;
+    myLastEventOrdinal = lastEventOrdinal;
+    myModelStamp = modelStamp;
+  }
+
+  public ProjectDescriptor getProjectDescriptor() {
+    return myProjectDescriptor;
+  }
+
+  public long getModelStamp() {
+    return myModelStamp;
+  }
+
+  public boolean isValidFor(String projectPath, String globalOptionsPath, long nextEventOrdinal) {
+    if (!myProjectPath.equals(projectPath) || !myGlobalOptionsPath.equals(globalOptionsPath) || myLastEventOrdinal + 1L != nextEventOrdinal) {
+      return false;
+    }
+    final Long modulesStamp = computeModulesStamp(myProjectDescriptor.getProject(), Long.MAX_VALUE);
+    return modulesStamp != null && myModelStamp == computeProjectStamp(projectPath, globalOptionsPath) + modulesStamp;
+  }
+
+  public void release() {
+    myProjectDescriptor.release();
+  }
+
+  /**
+   * Computes a stamp of project-level configuration files and global options. Must be called before the model is loaded, so
+   * a modification made during loading results in a different stamp next time.
+   */
+  public static long computeProjectStamp(String projectPath, @Nullable String globalOptionsPath) {
+    final List<File> files = new ArrayList<File>();
+    final File projectFile = new File(projectPath);
+    long stamp;
+    if (projectFile.isFile()) {
+      files.add(projectFile);
+      stamp = computeWorkspaceStamp(new File(projectFile.getParentFile(), FileUtil.getNameWithoutExtension(projectFile) + ".iws"));
+    }
+    else {
+      final File dotIdea = new File(projectFile, ".idea");
+      collectFiles(dotIdea, files);
+      collectFiles(new File(dotIdea, "libraries"), files);
+      collectFiles(new File(dotIdea, "artifacts"), files);
+      collectFiles(new File(dotIdea, "runConfigurations"), files);
+      stamp = computeWorkspaceStamp(new File(dotIdea, WORKSPACE_FILE_NAME));
+    }
+    if (globalOptionsPath != null) {
+      collectFiles(new File(globalOptionsPath), files);
+    }
+    return stamp + computeFilesStamp(files);
+  }
+
+  /**
+   * Computes a stamp of module files of the loaded project.
+   *
+   * @param loadingStarted time when loading of the project has started
+   * @return stamp or {@code null} if some module file was modified after loading has started, so the loaded model may be inconsistent
+   * with the stamp
+   */
+  @Nullable
+  public static Long computeModulesStamp(@NotNull JpsProject project, long loadingStarted) {
+    final List<File> files = new ArrayList<File>();
+    for (JpsModule module : project.getModules()) {
+      final File baseDir = JpsModelSerializationDataService.getBaseDirectory(module);
+      if (baseDir != null) {
+        final File moduleFile = new File(baseDir, module.getName() + ".iml");
+        if (moduleFile.lastModified() > loadingStarted - TIMESTAMP_PRECISION) {
+          return null;
+        }
+        files.add(moduleFile);
+      }
+    }
+    return computeFilesStamp(files);
+  }
+
+  private static long computeFilesStamp(List<File> files) {
+    // the order of files returned by listFiles() is not specified, so the stamp should not depend on it
+    long stamp = files.size();
+    for (File file : files) {
+      long fileStamp = FileUtil.pathHashCode(file.getPath());
+      fileStamp = 31 * fileStamp + file.lastModified();
+      fileStamp = 31 * fileStamp + file.length();
+      stamp += fileStamp;
+    }
+    return stamp;
+  }
+
+  private static long computeWorkspaceStamp(File workspaceFile) {
+    if (!workspaceFile.isFile()) {
+      return 0;
+    }
+    final Element root;
+    try {
+      root = JDOMUtil.loadDocument(workspaceFile).getRootElement();
+    }
+    catch (JDOMException e) {
+      return workspaceFile.lastModified();
+    }
+    catch (IOException e) {
+      return workspaceFile.lastModified();
+    }
+    long stamp = 0;
+    for (String componentName : getWorkspaceComponentNames()) {
+      final Element component = JDomSerializationUtil.findComponent(root, componentName);
+      if (component != null) {
+        stamp = 31 * stamp + JDOMUtil.writeElement(component, "\n").hashCode();
+      }
+    }
+    return stamp;
+  }
+
+  private static Set<String> getWorkspaceComponentNames() {
+    final Set<String> names = new LinkedHashSet<String>();
+    for (JpsModelSerializerExtension extension : JpsModelSerializerExtension.getExtensions()) {
+      for (JpsProjectExtensionSerializer serializer : extension.getProjectExtensionSerializers()) {
+        if (WORKSPACE_FILE_NAME.equals(serializer.getConfigFileName())) {
+          names.add(serializer.getComponentName());
+        }
+      }
+      if (!extension.getRunConfigurationPropertiesSerializers().isEmpty()) {
+        names.add(RUN_MANAGER_COMPONENT);
+      }
+    }
+    return names;
+  }
+
+  private static void collectFiles(File dir, List<File> result) {
+    final File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isFile() && !child.getName().equals(WORKSPACE_FILE_NAME)) {
+          result.add(child);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.builders.BuildTarget;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counters collected during a build: time spent by each builder and for each target, time of individual build phases
+ * (e.g. java compilation and dependency analysis) and the number of processed files. The storage phase covers flushing and closing
+ * of build storages only. All methods are thread-safe.
+ */
+public class BuildStatistics {
+  public static final String BUILDER_ID = "jps.build.statistics";
+  public static final String MESSAGE_TYPE = "report";
+
+  public static final String JAVAC_PHASE = "javac";
+  public static final String BUILD_CACHE_PHASE = "build cache";
+  public static final String DEPENDENCY_ANALYSIS_PHASE = "dependency analysis";
+  public static final String STORAGE_FLUSH_PHASE = "storage flush/close";
+  public static final String CLEAN_OUTPUT_PHASE = "clean output";
+  public static final String BEFORE_TASKS_PHASE = "before tasks";
+  public static final String AFTER_TASKS_PHASE = "after tasks";
+
+  private static final GlobalContextKey<BuildStatistics> KEY = GlobalContextKey.create("_build_statistics_");
+
+  private final ConcurrentMap<String, Counter> myBuilders = new ConcurrentHashMap<String, Counter>();
+  private final ConcurrentMap<String, Counter> myTargets = new ConcurrentHashMap<String, Counter>();
+  private final ConcurrentMap<String, Counter> myPhases = new ConcurrentHashMap<String, Counter>();
+  private final long myStartTime = System.currentTimeMillis();
+  private volatile long myTotalTime;
+
+  /**
+   * @return statistics of the current build; if the context doesn't collect statistics the data is collected into a throwaway instance
+   */
+  @NotNull
+  public static BuildStatistics getInstance(@NotNull CompileContext context) {
+    final BuildStatistics statistics = KEY.get(context);
+    return statistics != null ? statistics : new BuildStatistics();
+  }
+
+  static void install(@NotNull CompileContext context, @NotNull BuildStatistics statistics) {
+    KEY.set(context, statistics);
+  }
+
+  public void addBuilderTime(@NotNull String builderName, long nanos) {
+    getCounter(myBuilders, builderName).add(nanos, 0);
+  }
+
+  public void addTargetTime(@NotNull BuildTarget<?> target, long nanos) {
+    getCounter(myTargets, getTargetName(target)).add(nanos, 0);
+  }
+
+  public void addProcessedFiles(@NotNull BuildTarget<?> target, int filesCount) {
+    if (filesCount > 0) {
+      getCounter(myTargets, getTargetName(target)).addFiles(filesCount);
+    }
+  }
+
+  public void addPhaseTime(@NotNull String phase, long nanos) {
+    getCounter(myPhases, phase).add(nanos, 0);
+  }
+
+  public void addPhaseTime(@NotNull String phase, long nanos, int filesCount) {
+    getCounter(myPhases, phase).add(nanos, filesCount);
+  }
+
+  public void buildFinished() {
+    myTotalTime = System.currentTimeMillis() - myStartTime;
+  }
+
+  public boolean isEmpty() {
+    return myBuilders.isEmpty() && myTargets.isEmpty() && myPhases.isEmpty();
+  }
+
+  private static String getTargetName(BuildTarget<?> target) {
+    return target.getTargetType().getTypeId() + ":" + target.getId();
+  }
+
+  private static Counter getCounter(ConcurrentMap<String, Counter> map, String name) {
+    Counter counter = map.get(name);
+    if (counter == null) {
+      counter = new Counter();
+      final Counter existing = map.putIfAbsent(name, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  public String toJson() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append("{\"startTime\":").append(myStartTime);
+    builder.append(",\"totalTimeMs\":").append(myTotalTime);
+    appendJson(builder, "builders", myBuilders);
+    appendJson(builder, "targets", myTargets);
+    appendJson(builder, "phases", myPhases);
+    builder.append("}");
+    return builder.toString();
+  }
+
+  private static void appendJson(StringBuilder builder, String name, Map<String, Counter> counters) {
+    builder.append(",\"").append(name).append("\":[");
+    boolean first = true;
+    for (Map.Entry<String, Counter> entry : new TreeMap<String, Counter>(counters).entrySet()) {
+      if (!first) {
+        builder.append(",");
+      }
+      first = false;
+      final Counter counter = entry.getValue();
+      builder.append("{\"name\":\"").append(StringUtil.escapeStringCharacters(entry.getKey())).append("\"");
+      builder.append(",\"timeMs\":").append(counter.getTimeMs());
+      builder.append(",\"invocations\":").append(counter.myInvocations.get());
+      builder.append(",\"files\":").append(counter.myFiles.get());
+      builder.append("}");
+    }
+    builder.append("]");
+  }
+
+  /**
+   * @return the statistics in CSV format, one line per builder, target and phase: {@code kind,name,timeMs,invocations,files}
+   */
+  public String toCsv() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append("kind,name,timeMs,invocations,files\n");
+    builder.append("total,build,").append(myTotalTime).append(",1,0\n");
+    appendCsv(builder, "builder", myBuilders);
+    appendCsv(builder, "target", myTargets);
+    appendCsv(builder, "phase", myPhases);
+    return builder.toString();
+  }
+
+  private static void appendCsv(StringBuilder builder, String kind, Map<String, Counter> counters) {
+    for (Map.Entry<String, Counter> entry : new TreeMap<String, Counter>(counters).entrySet()) {
+      final Counter counter = entry.getValue();
+      builder.append(kind).append(",\"").append(StringUtil.replace(entry.getKey(), "\"", "\"\"")).append("\",");
+      builder.append(counter.getTimeMs()).append(",").append(counter.myInvocations.get()).append(",").append(counter.myFiles.get());
+      builder.append("\n");
+    }
+  }
+
+  private static class Counter {
+    private final AtomicLong myNanos = new AtomicLong();
+    private final AtomicInteger myInvocations = new AtomicInteger();
+    private final AtomicInteger myFiles = new AtomicInteger();
+
+    public void add(long nanos, int filesCount) {
+      myNanos.addAndGet(nanos);
+      myInvocations.incrementAndGet();
+      myFiles.addAndGet(filesCount);
+    }
+
+    public void addFiles(int filesCount) {
+      myFiles.addAndGet(filesCount);
+    }
+
+    public long getTimeMs() {
+      return TimeUnit.NANOSECONDS.toMillis(myNanos.get());
+    }
+  }
+}
@@ -174,6 +174,7 @@ public class IncProjectBuilder {
     
     startTempDirectoryCleanupTask();
     
+    final long storageFlushStart = myProjectDescriptor.dataManager.getStorageFlushTime();
     CompileContextImpl context = null;
     try {
       context = createContext(scope);
@@ -231,9 +232,20 @@ public class IncProjectBuilder {
           waitForTask(status, task);
         }
       }
+      reportStatistics(context, storageFlushStart);
     }
   }
 
+  private void reportStatistics(@Nullable CompileContext context, long storageFlushStart) {
+    if (context == null) {
+      return;
+    }
+    final BuildStatistics statistics = BuildStatistics.getInstance(context);
+    statistics.addPhaseTime(BuildStatistics.STORAGE_FLUSH_PHASE, myProjectDescriptor.dataManager.getStorageFlushTime() - storageFlushStart);
+    statistics.buildFinished();
+    myMessageDispatcher.processMessage(new BuildStatisticsMessage(statistics));
+  }
+
   private static void waitForTask(@NotNull CanceledStatus status, Future task) {
     try {
       while (true) {
@@ -328,18 +340,25 @@ public class IncProjectBuilder {
     }
 
     try {
+      final BuildStatistics statistics = BuildStatistics.getInstance(context);
       if (context.isProjectRebuild() || forceCleanCaches) {
+        final long cleanStart = System.nanoTime();
         cleanOutputRoots(context);
+        statistics.addPhaseTime(BuildStatistics.CLEAN_OUTPUT_PHASE, System.nanoTime() - cleanStart);
       }
 
       context.processMessage(new ProgressMessage("Running 'before' tasks"));
+      final long beforeTasksStart = System.nanoTime();
       runTasks(context, myBuilderRegistry.getBeforeTasks());
+      statistics.addPhaseTime(BuildStatistics.BEFORE_TASKS_PHASE, System.nanoTime() - beforeTasksStart);
 
       context.processMessage(new ProgressMessage("Checking sources"));
       buildChunks(context);
 
       context.processMessage(new ProgressMessage("Running 'after' tasks"));
+      final long afterTasksStart = System.nanoTime();
       runTasks(context, myBuilderRegistry.getAfterTasks());
+      statistics.addPhaseTime(BuildStatistics.AFTER_TASKS_PHASE, System.nanoTime() - afterTasksStart);
     }
     finally {
       for (TargetBuilder builder : myBuilderRegistry.getTargetBuilders()) {
@@ -388,6 +407,7 @@ public class IncProjectBuilder {
     // in project rebuild mode performance gain is hard to observe, so it is better to save memory
     // in make mode it is critical to traverse file system as fast as possible, so we choose speed over memory savings
     myProjectDescriptor.setFSCache(context.isProjectRebuild() ? FSCache.NO_CACHE : new FSCache());
+    BuildStatistics.install(context, new BuildStatistics());
     JavaBuilderUtil.CONSTANT_SEARCH_SERVICE.set(context, myConstantSearch);
     return context;
   }
@@ -793,8 +813,17 @@ public class IncProjectBuilder {
     }
 
     final List<TargetBuilder<?, ?>> builders = BuilderRegistry.getInstance().getTargetBuilders();
+    final BuildStatistics statistics = BuildStatistics.getInstance(context);
     for (TargetBuilder<?, ?> builder : builders) {
-      BuildOperations.buildTarget(target, context, builder);
+      final long start = System.nanoTime();
+      try {
+        BuildOperations.buildTarget(target, context, builder);
+      }
+      finally {
+        if (builder.getTargetTypes().contains(target.getTargetType())) {
+          statistics.addBuilderTime(builder.getPresentableName(), System.nanoTime() - start);
+        }
+      }
       updateDoneFraction(context, 1.0f / builders.size());
     }
     return true;
@@ -808,6 +837,7 @@ public class IncProjectBuilder {
 
   private void buildTargetsChunk(CompileContext context, final BuildTargetChunk chunk) throws ProjectBuildException {
     boolean doneSomething;
+    final long start = System.nanoTime();
     try {
       Utils.ERRORS_DETECTED_KEY.set(context, Boolean.FALSE);
 
@@ -839,6 +869,11 @@ public class IncProjectBuilder {
       throw new ProjectBuildException(e);
     }
     finally {
+      final Set<? extends BuildTarget<?>> targets = chunk.getTargets();
+      final long targetTime = (System.nanoTime() - start) / targets.size();
+      for (BuildTarget<?> target : targets) {
+        BuildStatistics.getInstance(context).addTargetTime(target, targetTime);
+      }
       for (BuildRootDescriptor rd : context.getProjectDescriptor().getBuildRootIndex().clearTempRoots(context)) {
         context.getProjectDescriptor().fsState.clearRecompile(rd);
       }
@@ -1042,7 +1077,14 @@ public class IncProjectBuilder {
 
           for (ModuleLevelBuilder builder : builders) {
             processDeletedPaths(context, chunk.getTargets());
-            final ModuleLevelBuilder.ExitCode buildResult = builder.build(context, chunk, dirtyFilesHolder, outputConsumer);
+            final long start = System.nanoTime();
+            final ModuleLevelBuilder.ExitCode buildResult;
+            try {
+              buildResult = builder.build(context, chunk, dirtyFilesHolder, outputConsumer);
+            }
+            finally {
+              BuildStatistics.getInstance(context).addBuilderTime(builder.getPresentableName(), System.nanoTime() - start);
+            }
 
             doneSomething |= (buildResult != ModuleLevelBuilder.ExitCode.NOTHING_DONE);
 
@@ -129,6 +129,7 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
         }
       });
 
+      final Map<String, File> previousJars = movePreviousJars(target, context, filesToDelete.keySet());
       BuildOperations.cleanOutputsCorrespondingToChangedFiles(context, holder);
       for (String outputPath : changedOutputPaths) {
         outSrcMapping.remove(outputPath);
@@ -171,8 +172,9 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
       }
       context.checkCanceled();
 
-      JarsBuilder builder = new JarsBuilder(changedJars, context, outputConsumer, outSrcMapping);
+      JarsBuilder builder = new JarsBuilder(changedJars, context, outputConsumer, outSrcMapping, previousJars);
       builder.buildJars();
+      deletePreviousJars(target, context);
       runArtifactTasks(context, artifact, ArtifactBuildTaskProvider.ArtifactBuildPhase.POST_PROCESSING);
     }
     catch (IOException e) {
@@ -180,6 +182,51 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
     }
   }
 
+  /**
+   * Moves archives which are going to be rebuilt to a temporary location instead of deleting them, so unchanged entries can be taken
+   * from them without compressing their content again. An archive which cannot be moved (e.g. the output is on another volume) is
+   * deleted as usual and rebuilt from scratch.
+   */
+  private static Map<String, File> movePreviousJars(ArtifactBuildTarget target, CompileContext context, Collection<String> outdatedPaths) {
+    deletePreviousJars(target, context);
+    if (outdatedPaths.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    final ProjectDescriptor pd = context.getProjectDescriptor();
+    final Set<String> jarPaths = new THashSet<String>(FileUtil.PATH_HASHING_STRATEGY);
+    for (ArtifactRootDescriptor descriptor : pd.getBuildRootIndex().getTargetRoots(target, context)) {
+      if (descriptor.getDestinationInfo() instanceof JarDestinationInfo) {
+        jarPaths.add(descriptor.getDestinationInfo().getOutputFilePath());
+      }
+    }
+
+    final Map<String, File> previousJars = new HashMap<String, File>();
+    final File previousJarsDir = getPreviousJarsDir(target, context);
+    for (String path : outdatedPaths) {
+      final File jarFile = new File(path);
+      if (jarPaths.contains(path) && jarFile.isFile()) {
+        final File previous = new File(previousJarsDir, previousJars.size() + ".jar");
+        FileUtil.createParentDirs(previous);
+        if (jarFile.renameTo(previous)) {
+          previousJars.put(path, previous);
+        }
+        else {
+          LOG.debug("Cannot move previous version of " + path + " to " + previous);
+        }
+      }
+    }
+    return previousJars;
+  }
+
+  private static void deletePreviousJars(ArtifactBuildTarget target, CompileContext context) {
+    FileUtil.delete(getPreviousJarsDir(target, context));
+  }
+
+  private static File getPreviousJarsDir(ArtifactBuildTarget target, CompileContext context) {
+    return new File(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target), "previous-jars");
+  }
+
   private static void runArtifactTasks(CompileContext context, JpsArtifact artifact, ArtifactBuildTaskProvider.ArtifactBuildPhase phase)
     throws ProjectBuildException {
     for (ArtifactBuildTaskProvider provider : JpsServiceManager.getInstance().getExtensions(ArtifactBuildTaskProvider.class)) {
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.artifacts.impl;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.concurrency.BoundedTaskExecutor;
+import com.intellij.util.io.zip.JBZipEntry;
+import com.intellij.util.io.zip.JBZipFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes entries of a single archive. New content is compressed on pooled threads while entries are appended to the archive in the
+ * order they were added. Entries taken from other archives and unchanged entries of the previous version of the archive are copied
+ * as is, without inflating and deflating them again. The archive file is opened on the first written entry, so no archive is written
+ * if no entries were added.
+ */
+class JarWriter {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.artifacts.impl.JarWriter");
+  private static final int MAX_PENDING_ENTRIES = 256;
+  private static final long MAX_PENDING_BYTES = 32 * 1024 * 1024;
+  private final File myJarFile;
+  private JBZipFile myOutput;
+  @Nullable private final JBZipFile myPreviousVersion;
+  private final BoundedTaskExecutor myCompressionExecutor;
+  private final Deque<PendingEntry> myPendingEntries = new ArrayDeque<PendingEntry>();
+  private long myPendingBytes;
+  private int myReusedEntriesCount;
+
+  public JarWriter(@NotNull File jarFile, @Nullable File previousVersion, @NotNull BoundedTaskExecutor compressionExecutor) throws IOException {
+    myCompressionExecutor = compressionExecutor;
+    myJarFile = jarFile;
+    myPreviousVersion = previousVersion != null && previousVersion.isFile() ? openPreviousVersion(previousVersion) : null;
+  }
+
+  @Nullable
+  private static JBZipFile openPreviousVersion(File file) {
+    try {
+      return new JBZipFile(file, "UTF-8", true);
+    }
+    catch (IOException e) {
+      LOG.debug("Cannot open previous version of archive " + file.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  public void addManifest(@NotNull Manifest manifest) throws IOException {
+    final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream();
+    manifest.write(out);
+    addBytes(JarFile.MANIFEST_NAME, Arrays.copyOf(out.getInternalBuffer(), out.size()), System.currentTimeMillis());
+  }
+
+  public void addDirectory(@NotNull String pathInJar) throws IOException {
+    enqueue(new PendingEntry(pathInJar, -1, 0, new CompressedContent(ZipEntry.STORED, 0, 0, ArrayUtil.EMPTY_BYTE_ARRAY)));
+  }
+
+  public void addFile(@NotNull String pathInJar, @NotNull final File file) throws IOException {
+    final long timestamp = file.lastModified();
+    final JBZipEntry previous = myPreviousVersion != null ? myPreviousVersion.getEntry(pathInJar) : null;
+    if (previous != null && previous.getSize() == file.length()) {
+      final byte[] bytes = FileUtil.loadFileBytes(file);
+      if (computeCrc(bytes) == previous.getCrc()) {
+        myReusedEntriesCount++;
+        enqueueCopied(pathInJar, timestamp, copyCompressedContent(previous));
+        return;
+      }
+      addBytes(pathInJar, bytes, timestamp);
+      return;
+    }
+
+    final long length = file.length();
+    myPendingBytes += length;
+    enqueue(new PendingEntry(pathInJar, timestamp, length, myCompressionExecutor.submit(new Callable<CompressedContent>() {
+      @Override
+      public CompressedContent call() throws Exception {
+        return compress(FileUtil.loadFileBytes(file));
+      }
+    })));
+  }
+
+  /**
+   * Copies an entry from another archive. Content compressed with a standard method is copied without recompression.
+   */
+  public void addEntry(@NotNull String pathInJar, @NotNull JBZipEntry entry, long timestamp) throws IOException {
+    final int method = entry.getMethod();
+    if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+      enqueueCopied(pathInJar, timestamp, copyCompressedContent(entry));
+    }
+    else {
+      addBytes(pathInJar, entry.getData(), timestamp);
+    }
+  }
+
+  private void addBytes(@NotNull String pathInJar, @NotNull final byte[] bytes, long timestamp) throws IOException {
+    myPendingBytes += bytes.length;
+    enqueue(new PendingEntry(pathInJar, timestamp, bytes.length, myCompressionExecutor.submit(new Callable<CompressedContent>() {
+      @Override
+      public CompressedContent call() throws Exception {
+        return compress(bytes);
+      }
+    })));
+  }
+
+  public int getReusedEntriesCount() {
+    return myReusedEntriesCount;
+  }
+
+  private void enqueueCopied(@NotNull String pathInJar, long timestamp, @NotNull CompressedContent content) throws IOException {
+    final int length = content.myCompressedBytes.length;
+    myPendingBytes += length;
+    enqueue(new PendingEntry(pathInJar, timestamp, length, content));
+  }
+
+  private void enqueue(PendingEntry entry) throws IOException {
+    myPendingEntries.addLast(entry);
+    if (myPendingEntries.size() > MAX_PENDING_ENTRIES || myPendingBytes > MAX_PENDING_BYTES) {
+      flushPendingEntries(myPendingEntries.size() / 2);
+    }
+  }
+
+  private void flushPendingEntries(int count) throws IOException {
+    for (int i = 0; i < count && !myPendingEntries.isEmpty(); i++) {
+      final PendingEntry pending = myPendingEntries.removeFirst();
+      final CompressedContent content = pending.getContent();
+      myPendingBytes -= pending.myPendingBytes;
+      if (myOutput == null) {
+        myOutput = new JBZipFile(myJarFile);
+      }
+      final JBZipEntry entry = myOutput.getOrCreateEntry(pending.myPath);
+      entry.setMethod(content.myMethod);
+      entry.setSize(content.mySize);
+      entry.setCrc(content.myCrc);
+      if (pending.myTimestamp != -1) {
+        entry.setTime(pending.myTimestamp);
+      }
+      entry.setCompressedData(content.myCompressedBytes);
+    }
+  }
+
+  public void close() throws IOException {
+    try {
+      flushPendingEntries(myPendingEntries.size());
+    }
+    finally {
+      cancelPendingEntries();
+      try {
+        if (myOutput != null) {
+          myOutput.close();
+        }
+      }
+      finally {
+        if (myPreviousVersion != null) {
+          myPreviousVersion.close();
+        }
+      }
+    }
+  }
+
+  private void cancelPendingEntries() {
+    for (PendingEntry entry : myPendingEntries) {
+      if (entry.myFuture != null) {
+        entry.myFuture.cancel(false);
+      }
+    }
+    myPendingEntries.clear();
+    myPendingBytes = 0;
+  }
+
+  private static CompressedContent copyCompressedContent(JBZipEntry entry) throws IOException {
+    return new CompressedContent(entry.getMethod(), entry.getSize(), entry.getCrc(), entry.getCompressedData());
+  }
+
+  private static CompressedContent compress(byte[] bytes) {
+    final long crc = computeCrc(bytes);
+    if (bytes.length == 0) {
+      return new CompressedContent(ZipEntry.STORED, 0, crc, bytes);
+    }
+
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream(Math.max(64, bytes.length / 2));
+      final byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        final int count = deflater.deflate(buffer);
+        out.write(buffer, 0, count);
+      }
+      return new CompressedContent(ZipEntry.DEFLATED, bytes.length, crc, Arrays.copyOf(out.getInternalBuffer(), out.size()));
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  private static long computeCrc(byte[] bytes) {
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private static class CompressedContent {
+    private final int myMethod;
+    private final long mySize;
+    private final long myCrc;
+    private final byte[] myCompressedBytes;
+
+    private CompressedContent(int method, long size, long crc, byte[] compressedBytes) {
+      myMethod = method;
+      mySize = size;
+      myCrc = crc;
+      myCompressedBytes = compressedBytes;
+    }
+  }
+
+  private static class PendingEntry {
+    private final String myPath;
+    private final long myTimestamp;
+    // bytes this entry added to JarWriter.myPendingBytes: uncompressed size of content which is compressed here, compressed size of
+    // content which is copied as is; the compressed output of the former isn't counted, so the bound on held memory is approximate
+    private final long myPendingBytes;
+    private final CompressedContent myContent;
+    private final Future<CompressedContent> myFuture;
+
+    private PendingEntry(String path, long timestamp, long pendingBytes, CompressedContent content) {
+      myPath = path;
+      myTimestamp = timestamp;
+      myPendingBytes = pendingBytes;
+      myContent = content;
+      myFuture = null;
+    }
+
+    private PendingEntry(String path, long timestamp, long pendingBytes, Future<CompressedContent> future) {
+      myPath = path;
+      myTimestamp = timestamp;
+      myPendingBytes = pendingBytes;
+      myContent = null;
+      myFuture = future;
+    }
+
+    public CompressedContent getContent() throws IOException {
+      if (myContent != null) {
+        return myContent;
+      }
+      try {
+        return myFuture.get();
+      }
+      catch (InterruptedException e) {
+        throw new IOException("Compression of " + myPath + " was interrupted", e);
+      }
+      catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException)cause;
+        }
+        throw new IOException("Cannot compress " + myPath, cause);
+      }
+    }
+  }
+}
@@ -23,10 +23,11 @@ import com.intellij.openapi.util.io.FileSystemUtil;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.concurrency.BoundedTaskExecutor;
 import com.intellij.util.graph.CachingSemiGraph;
 import com.intellij.util.graph.DFSTBuilder;
 import com.intellij.util.graph.GraphGenerator;
-import com.intellij.util.io.ZipUtil;
+import com.intellij.util.io.zip.JBZipEntry;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -41,30 +42,48 @@ import org.jetbrains.jps.incremental.artifacts.instructions.*;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.incremental.messages.ProgressMessage;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * @author nik
  */
 public class JarsBuilder {
   private static final Logger LOG = Logger.getInstance("#com.intellij.compiler.impl.packagingCompiler.JarsBuilder");
+  private static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
   private final Set<JarInfo> myJarsToBuild;
   private final CompileContext myContext;
   private Map<JarInfo, File> myBuiltJars;
   private final BuildOutputConsumer myOutputConsumer;
   private final ArtifactOutputToSourceMapping myOutSrcMapping;
+  private final Map<String, File> myPreviousJars;
+  private final Object myOutputConsumerLock = new Object();
+  private final BoundedTaskExecutor myJarsExecutor = new BoundedTaskExecutor(SharedThreadPool.getInstance(), MAX_THREADS);
+  private final BoundedTaskExecutor myCompressionExecutor = new BoundedTaskExecutor(SharedThreadPool.getInstance(), MAX_THREADS);
 
   public JarsBuilder(Set<JarInfo> jarsToBuild, CompileContext context, BuildOutputConsumer outputConsumer,
                      ArtifactOutputToSourceMapping outSrcMapping) {
+    this(jarsToBuild, context, outputConsumer, outSrcMapping, Collections.<String, File>emptyMap());
+  }
+
+  /**
+   * @param previousJars previous versions of the archives (output path -> file); entries which weren't changed since the previous build
+   *                     are copied from them without recompression
+   */
+  public JarsBuilder(Set<JarInfo> jarsToBuild, CompileContext context, BuildOutputConsumer outputConsumer,
+                     ArtifactOutputToSourceMapping outSrcMapping, @NotNull Map<String, File> previousJars) {
     myOutputConsumer = outputConsumer;
     myOutSrcMapping = outSrcMapping;
+    myPreviousJars = previousJars;
     DependentJarsEvaluator evaluator = new DependentJarsEvaluator();
     for (JarInfo jarInfo : jarsToBuild) {
       evaluator.addJarWithDependencies(jarInfo);
@@ -81,11 +100,10 @@ public class JarsBuilder {
       return false;
     }
 
-    myBuiltJars = new HashMap<JarInfo, File>();
+    myBuiltJars = new ConcurrentHashMap<JarInfo, File>();
     try {
-      for (JarInfo jar : sortedJars) {
-        myContext.checkCanceled();
-        buildJar(jar);
+      for (List<JarInfo> independentJars : groupIndependentJars(sortedJars)) {
+        buildJarsInParallel(independentJars);
       }
 
       myContext.processMessage(new ProgressMessage("Copying archives..."));
@@ -117,6 +135,72 @@ public class JarsBuilder {
     }
   }
 
+  /**
+   * Splits sorted jars into groups such that all jars included into a jar from some group belong to preceding groups, so jars from
+   * the same group can be built concurrently.
+   */
+  private static List<List<JarInfo>> groupIndependentJars(JarInfo[] sortedJars) {
+    final Map<JarInfo, Integer> levels = new HashMap<JarInfo, Integer>();
+    final List<List<JarInfo>> groups = new ArrayList<List<JarInfo>>();
+    for (JarInfo jar : sortedJars) {
+      int level = 0;
+      for (Pair<String, Object> pair : jar.getContent()) {
+        final Integer nestedLevel = pair.getSecond() instanceof JarInfo ? levels.get((JarInfo)pair.getSecond()) : null;
+        if (nestedLevel != null) {
+          level = Math.max(level, nestedLevel + 1);
+        }
+      }
+      levels.put(jar, level);
+      while (groups.size() <= level) {
+        groups.add(new ArrayList<JarInfo>());
+      }
+      groups.get(level).add(jar);
+    }
+    return groups;
+  }
+
+  private void buildJarsInParallel(List<JarInfo> jars) throws IOException, ProjectBuildException {
+    if (jars.size() == 1) {
+      myContext.checkCanceled();
+      buildJar(jars.get(0));
+      return;
+    }
+
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(jars.size());
+    for (final JarInfo jar : jars) {
+      futures.add(myJarsExecutor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          myContext.checkCanceled();
+          buildJar(jar);
+          return null;
+        }
+      }));
+    }
+
+    Throwable error = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        if (error == null) error = e;
+      }
+      catch (ExecutionException e) {
+        if (error == null) error = e.getCause();
+      }
+    }
+    if (error instanceof IOException) {
+      throw (IOException)error;
+    }
+    if (error instanceof ProjectBuildException) {
+      throw (ProjectBuildException)error;
+    }
+    if (error != null) {
+      throw new ProjectBuildException(error);
+    }
+  }
+
   @Nullable
   private JarInfo[] sortJars() {
     final DFSTBuilder<JarInfo> builder = new DFSTBuilder<JarInfo>(GraphGenerator.create(CachingSemiGraph.create(new JarsGraph())));
@@ -149,11 +233,13 @@ public class JarsBuilder {
     final String targetJarPath = jar.getDestination().getOutputFilePath();
     List<String> packedFilePaths = new ArrayList<String>();
     Manifest manifest = loadManifest(jar, packedFilePaths);
-    final JarOutputStream jarOutputStream = createJarOutputStream(jarFile, manifest);
+    final File previousJar = jar.getDestination() instanceof ExplodedDestinationInfo ? myPreviousJars.get(targetJarPath) : null;
+    final JarWriter jarOutputStream = new JarWriter(jarFile, previousJar, myCompressionExecutor);
 
     final THashSet<String> writtenPaths = new THashSet<String>();
     try {
       if (manifest != null) {
+        jarOutputStream.addManifest(manifest);
         writtenPaths.add(JarFile.MANIFEST_NAME);
       }
 
@@ -191,11 +277,16 @@ public class JarsBuilder {
         return;
       }
 
-      final ProjectBuilderLogger logger = myContext.getLoggingManager().getProjectBuilderLogger();
-      if (logger.isEnabled()) {
-        logger.logCompiledPaths(packedFilePaths, IncArtifactBuilder.BUILDER_NAME, "Packing files:");
+      synchronized (myOutputConsumerLock) {
+        final ProjectBuilderLogger logger = myContext.getLoggingManager().getProjectBuilderLogger();
+        if (logger.isEnabled()) {
+          logger.logCompiledPaths(packedFilePaths, IncArtifactBuilder.BUILDER_NAME, "Packing files:");
+        }
+        myOutputConsumer.registerOutputFile(new File(targetJarPath), packedFilePaths);
+      }
+      if (LOG.isDebugEnabled() && jarOutputStream.getReusedEntriesCount() > 0) {
+        LOG.debug(jarOutputStream.getReusedEntriesCount() + " unchanged entries copied from the previous version of " + targetJarPath);
       }
-      myOutputConsumer.registerOutputFile(new File(targetJarPath), packedFilePaths);
 
     }
     finally {
@@ -214,14 +305,6 @@ public class JarsBuilder {
     }
   }
 
-  private static JarOutputStream createJarOutputStream(File jarFile, @Nullable Manifest manifest) throws IOException {
-    final BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(jarFile));
-    if (manifest != null) {
-      return new JarOutputStream(outputStream, manifest);
-    }
-    return new JarOutputStream(outputStream);
-  }
-
   @Nullable
   private Manifest loadManifest(JarInfo jar, List<String> packedFilePaths) throws IOException {
     for (Pair<String, Object> pair : jar.getContent()) {
@@ -278,37 +361,28 @@ public class JarsBuilder {
     }
   }
 
-  private static void extractFileAndAddToJar(final JarOutputStream jarOutputStream, final JarBasedArtifactRootDescriptor root,
+  private static void extractFileAndAddToJar(final JarWriter jarOutputStream, final JarBasedArtifactRootDescriptor root,
                                              final String relativeOutputPath, final Set<String> writtenPaths)
     throws IOException {
     final long timestamp = FileSystemUtil.lastModified(root.getRootFile());
-    root.processEntries(new JarBasedArtifactRootDescriptor.EntryProcessor() {
+    root.processRawEntries(new JarBasedArtifactRootDescriptor.RawEntryProcessor() {
       @Override
-      public void process(@Nullable InputStream inputStream, @NotNull String relativePath, ZipEntry entry) throws IOException {
+      public void process(@NotNull String relativePath, @NotNull JBZipEntry entry) throws IOException {
         String pathInJar = addParentDirectories(jarOutputStream, writtenPaths, JpsArtifactPathUtil
           .appendToPath(relativeOutputPath, relativePath));
 
-        if (inputStream == null) {
+        if (entry.isDirectory()) {
           addDirectoryEntry(jarOutputStream, pathInJar + "/", writtenPaths);
         }
         else if (writtenPaths.add(pathInJar)) {
-          ZipEntry newEntry = new ZipEntry(pathInJar);
-          newEntry.setTime(timestamp);
-          if (entry.getMethod() == ZipEntry.STORED) {
-            newEntry.setMethod(ZipEntry.STORED);
-            newEntry.setSize(entry.getSize());
-            newEntry.setCrc(entry.getCrc());
-          }
-          jarOutputStream.putNextEntry(newEntry);
-          FileUtil.copy(inputStream, jarOutputStream);
-          jarOutputStream.closeEntry();
+          jarOutputStream.addEntry(pathInJar, entry, timestamp);
         }
       }
     });
 
   }
 
-  private void addFileToJar(final @NotNull JarOutputStream jarOutputStream, final @NotNull File jarFile, @NotNull File file,
+  private void addFileToJar(final @NotNull JarWriter jarOutputStream, final @NotNull File jarFile, @NotNull File file,
                             SourceFileFilter filter, @NotNull String relativePath, String targetJarPath,
                             final @NotNull Set<String> writtenPaths, List<String> packedFilePaths, final int rootIndex) throws IOException {
     if (!file.exists() || FileUtil.isAncestor(file, jarFile, false)) {
@@ -319,7 +393,7 @@ public class JarsBuilder {
     addFileOrDirRecursively(jarOutputStream, file, filter, relativePath, targetJarPath, writtenPaths, packedFilePaths, rootIndex);
   }
 
-  private void addFileOrDirRecursively(@NotNull ZipOutputStream jarOutputStream,
+  private void addFileOrDirRecursively(@NotNull JarWriter jarOutputStream,
                                        @NotNull File file,
                                        SourceFileFilter filter,
                                        @NotNull String relativePath,
@@ -347,7 +421,10 @@ public class JarsBuilder {
       return;
     }
 
-    final boolean added = ZipUtil.addFileToZip(jarOutputStream, file, relativePath, writtenItemRelativePaths, null);
+    final boolean added = writtenItemRelativePaths.add(relativePath);
+    if (added) {
+      jarOutputStream.addFile(relativePath, file);
+    }
     if (rootIndex != -1) {
       myOutSrcMapping.appendData(targetJarPath, rootIndex, filePath);
       if (added) {
@@ -357,7 +434,7 @@ public class JarsBuilder {
   }
 
 
-  private static String addParentDirectories(JarOutputStream jarOutputStream, Set<String> writtenPaths, String relativePath) throws IOException {
+  private static String addParentDirectories(JarWriter jarOutputStream, Set<String> writtenPaths, String relativePath) throws IOException {
     while (StringUtil.startsWithChar(relativePath, '/')) {
       relativePath = relativePath.substring(1);
     }
@@ -372,15 +449,10 @@ public class JarsBuilder {
     return relativePath;
   }
 
-  private static void addDirectoryEntry(final ZipOutputStream output, @NonNls final String relativePath, Set<String> writtenPaths) throws IOException {
+  private static void addDirectoryEntry(final JarWriter output, @NonNls final String relativePath, Set<String> writtenPaths) throws IOException {
     if (!writtenPaths.add(relativePath)) return;
 
-    ZipEntry e = new ZipEntry(relativePath);
-    e.setMethod(ZipEntry.STORED);
-    e.setSize(0);
-    e.setCrc(0);
-    output.putNextEntry(e);
-    output.closeEntry();
+    output.addDirectory(relativePath);
   }
 
   private class JarsGraph implements GraphGenerator.SemiGraph<JarInfo> {
@@ -17,6 +17,8 @@ package org.jetbrains.jps.incremental.artifacts.instructions;
 
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.io.zip.JBZipEntry;
+import com.intellij.util.io.zip.JBZipFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
@@ -50,11 +52,7 @@ public class JarBasedArtifactRootDescriptor extends ArtifactRootDescriptor {
   }
 
   public void processEntries(EntryProcessor processor) throws IOException {
-    String prefix = StringUtil.trimStart(myPathInJar, "/");
-    if (!StringUtil.endsWithChar(prefix, '/')) prefix += "/";
-    if (prefix.equals("/")) {
-      prefix = "";
-    }
+    String prefix = getEntriesPrefix();
 
     ZipFile zipFile = new ZipFile(myRoot);
     try {
@@ -74,6 +72,35 @@ public class JarBasedArtifactRootDescriptor extends ArtifactRootDescriptor {
     }
   }
 
+  /**
+   * Processes entries without decompressing their content, so they can be copied to another archive as is.
+   */
+  public void processRawEntries(RawEntryProcessor processor) throws IOException {
+    String prefix = getEntriesPrefix();
+
+    JBZipFile zipFile = new JBZipFile(myRoot, "UTF-8", true);
+    try {
+      for (JBZipEntry entry : zipFile.getEntries()) {
+        final String name = entry.getName();
+        if (name.startsWith(prefix)) {
+          processor.process(name.substring(prefix.length()), entry);
+        }
+      }
+    }
+    finally {
+      zipFile.close();
+    }
+  }
+
+  private String getEntriesPrefix() {
+    String prefix = StringUtil.trimStart(myPathInJar, "/");
+    if (!StringUtil.endsWithChar(prefix, '/')) prefix += "/";
+    if (prefix.equals("/")) {
+      prefix = "";
+    }
+    return prefix;
+  }
+
   @Override
   protected String getFullPath() {
     return myRoot.getPath() + JarPathUtil.JAR_SEPARATOR + myPathInJar;
@@ -120,4 +147,8 @@ public class JarBasedArtifactRootDescriptor extends ArtifactRootDescriptor {
   public interface EntryProcessor {
     void process(@Nullable InputStream inputStream, @NotNull String relativePath, ZipEntry entry) throws IOException;
   }
+
+  public interface RawEntryProcessor {
+    void process(@NotNull String relativePath, @NotNull JBZipEntry entry) throws IOException;
+  }
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.java;
+
+import org.jetbrains.asm4.*;
+
+import java.lang.reflect.Array;
+
+/**
+ * Computes a fingerprint of the part of a class visible to other classes: class header, signatures of non-private fields and methods,
+ * values of constants and annotations. Method bodies, private members and debug information don't affect the fingerprint, so classes
+ * compiled from sources which differ only in these parts have the same fingerprint.
+ */
+class AbiFingerprint {
+  private static final long PRIME = 1099511628211L;
+  private long myHash = -3750763034362895579L;
+
+  private AbiFingerprint() {
+  }
+
+  public static long compute(byte[] bytes, int offset, int length) {
+    final AbiFingerprint fingerprint = new AbiFingerprint();
+    new ClassReader(bytes, offset, length).accept(fingerprint.new ClassCrawler(), ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return fingerprint.myHash;
+  }
+
+  private void update(int value) {
+    myHash = (myHash ^ value) * PRIME;
+  }
+
+  private void update(Object value) {
+    if (value == null) {
+      update(0);
+    }
+    else if (value instanceof String) {
+      update((String)value);
+    }
+    else if (value instanceof String[]) {
+      final String[] array = (String[])value;
+      update(array.length);
+      for (String s : array) {
+        update(s);
+      }
+    }
+    else if (value instanceof Long) {
+      update(((Long)value).longValue());
+    }
+    else if (value instanceof Double) {
+      update(Double.doubleToLongBits((Double)value));
+    }
+    else if (value instanceof Float) {
+      update(Float.floatToIntBits((Float)value));
+    }
+    else if (value instanceof Number) {
+      update(((Number)value).intValue());
+    }
+    else if (value instanceof Character) {
+      update(((Character)value).charValue());
+    }
+    else if (value instanceof Boolean) {
+      update(((Boolean)value).booleanValue() ? 1 : 2);
+    }
+    else {
+      update(value.toString());
+    }
+  }
+
+  // strings are hashed char by char: names with equal String.hashCode() (e.g. "Aa" and "BB") must give different fingerprints
+  private void update(String value) {
+    if (value == null) {
+      update(0);
+      return;
+    }
+    final int length = value.length();
+    update(length + 1);
+    for (int i = 0; i < length; i++) {
+      update(value.charAt(i));
+    }
+  }
+
+  private void update(long value) {
+    update((int)(value >>> 32));
+    update((int)value);
+  }
+
+  private static boolean isPrivate(int access) {
+    return (access & Opcodes.ACC_PRIVATE) != 0;
+  }
+
+  private class ClassCrawler extends ClassVisitor {
+    private ClassCrawler() {
+      super(Opcodes.ASM4);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+      update(version);
+      update(access);
+      update(name);
+      update(signature);
+      update(superName);
+      update(interfaces);
+    }
+
+    @Override
+    public void visitOuterClass(String owner, String name, String desc) {
+      update(owner);
+      update(name);
+      update(desc);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+      update(desc);
+      return new AnnotationCrawler();
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+      update(name);
+      update(outerName);
+      update(innerName);
+      update(access);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      if (isPrivate(access)) {
+        return null;
+      }
+      update(access);
+      update(name);
+      update(desc);
+      update(signature);
+      update(value);
+      return new FieldVisitor(Opcodes.ASM4) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+          update(desc);
+          return new AnnotationCrawler();
+        }
+      };
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      if (isPrivate(access)) {
+        return null;
+      }
+      update(access);
+      update(name);
+      update(desc);
+      update(signature);
+      update(exceptions);
+      return new MethodVisitor(Opcodes.ASM4) {
+        @Override
+        public AnnotationVisitor visitAnnotationDefault() {
+          update(1);
+          return new AnnotationCrawler();
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+          update(desc);
+          return new AnnotationCrawler();
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+          update(parameter);
+          update(desc);
+          return new AnnotationCrawler();
+        }
+      };
+    }
+  }
+
+  private class AnnotationCrawler extends AnnotationVisitor {
+    private AnnotationCrawler() {
+      super(Opcodes.ASM4);
+    }
+
+    @Override
+    public void visit(String name, Object value) {
+      update(name);
+      if (value instanceof Type) {
+        update(((Type)value).getDescriptor());
+      }
+      else if (value != null && value.getClass().isArray()) {
+        final int length = Array.getLength(value);
+        update(length);
+        for (int i = 0; i < length; i++) {
+          update(Array.get(value, i));
+        }
+      }
+      else {
+        update(value);
+      }
+    }
+
+    @Override
+    public void visitEnum(String name, String desc, String value) {
+      update(name);
+      update(desc);
+      update(value);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String name, String desc) {
+      update(name);
+      update(desc);
+      return this;
+    }
+
+    @Override
+    public AnnotationVisitor visitArray(String name) {
+      update(name);
+      return this;
+    }
+
+    @Override
+    public void visitEnd() {
+      update(2);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.java;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataExternalizer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.builders.storage.StorageProvider;
+import org.jetbrains.jps.incremental.storage.AbstractStateStorage;
+import org.jetbrains.jps.incremental.storage.PathStringDescriptor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Stores ABI fingerprints of classes compiled from each source file of a module target and the fingerprint of the whole target, which is
+ * the sum of fingerprints of its classes.
+ */
+class AbiFingerprintStorage extends AbstractStateStorage<String, Long> {
+  public static final StorageProvider<AbiFingerprintStorage> PROVIDER = new StorageProvider<AbiFingerprintStorage>() {
+    @NotNull
+    @Override
+    public AbiFingerprintStorage createStorage(File targetDataDir) throws IOException {
+      return new AbiFingerprintStorage(new File(targetDataDir, "abi" + File.separator + "data"));
+    }
+  };
+  // source paths are never empty, so this key cannot clash with them
+  private static final String TARGET_KEY = "";
+
+  private AbiFingerprintStorage(File storePath) throws IOException {
+    super(storePath, new PathStringDescriptor(), new LongExternalizer());
+  }
+
+  /**
+   * @param compiled fingerprints of sources compiled in the current round
+   * @param removed  paths of removed sources
+   * @return true if the target has a fingerprint and it won't be changed by the update
+   */
+  public boolean isUnchanged(@NotNull Map<File, Long> compiled, @NotNull Collection<String> removed) throws IOException {
+    synchronized (myDataLock) {
+      final Long targetFingerprint = getState(TARGET_KEY);
+      return targetFingerprint != null && targetFingerprint == computeTargetFingerprint(targetFingerprint, compiled, removed);
+    }
+  }
+
+  /**
+   * Replaces fingerprints of the given compiled and removed sources and updates the fingerprint of the target
+   */
+  public void update(@NotNull Map<File, Long> compiled, @NotNull Collection<String> removed) throws IOException {
+    synchronized (myDataLock) {
+      final Long oldTargetFingerprint = getState(TARGET_KEY);
+      final long targetFingerprint = computeTargetFingerprint(oldTargetFingerprint != null ? oldTargetFingerprint : 0L, compiled, removed);
+      for (String path : removed) {
+        remove(FileUtil.toSystemIndependentName(path));
+      }
+      for (Map.Entry<File, Long> entry : compiled.entrySet()) {
+        update(FileUtil.toSystemIndependentName(entry.getKey().getPath()), entry.getValue());
+      }
+      update(TARGET_KEY, targetFingerprint);
+    }
+  }
+
+  private long computeTargetFingerprint(long targetFingerprint, Map<File, Long> compiled, Collection<String> removed) throws IOException {
+    for (String path : removed) {
+      final Long old = getState(FileUtil.toSystemIndependentName(path));
+      if (old != null) {
+        targetFingerprint -= old;
+      }
+    }
+    for (Map.Entry<File, Long> entry : compiled.entrySet()) {
+      final Long old = getState(FileUtil.toSystemIndependentName(entry.getKey().getPath()));
+      if (old != null) {
+        targetFingerprint -= old;
+      }
+      targetFingerprint += entry.getValue();
+    }
+    return targetFingerprint;
+  }
+
+  private static class LongExternalizer implements DataExternalizer<Long> {
+    @Override
+    public void save(DataOutput out, Long value) throws IOException {
+      out.writeLong(value);
+    }
+
+    @Override
+    public Long read(DataInput in) throws IOException {
+      return in.readLong();
+    }
+  }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.java;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.ClassReader;
+import org.jetbrains.jps.ModuleChunk;
+import org.jetbrains.jps.api.GlobalOptions;
+import org.jetbrains.jps.builders.BuildRootIndex;
+import org.jetbrains.jps.builders.java.JavaSourceRootDescriptor;
+import org.jetbrains.jps.builders.storage.SourceToOutputMapping;
+import org.jetbrains.jps.incremental.BinaryContent;
+import org.jetbrains.jps.incremental.BuildStatistics;
+import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.ModuleBuildTarget;
+import org.jetbrains.jps.incremental.Utils;
+import org.jetbrains.jps.incremental.messages.ProgressMessage;
+import org.jetbrains.jps.javac.OutputFileConsumer;
+import org.jetbrains.jps.javac.OutputFileObject;
+
+import javax.tools.JavaFileObject;
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed cache of class files produced by javac. An entry is keyed by a hash of the chunk's sources, compilation options,
+ * compiler version and contents of the compilation classpath, and contains the compiled classes together with the paths of the sources
+ * they were compiled from. The cache is used only if all java files of the chunk are going to be compiled (e.g. on rebuild or for a fresh
+ * checkout); restored classes are passed to the same output sink as classes produced by javac, so the source-to-output mappings and
+ * the dependency information are updated as if the sources were compiled.
+ * <p/>
+ * The cache is enabled by {@link GlobalOptions#BUILD_CACHE_DIR_OPTION} system property; the directory may be shared between several
+ * build processes, entries are written to temporary files and renamed so a reader never sees a partially written entry.
+ * <p/>
+ * Hashes of sources and classpath files are remembered together with the file's length and timestamp, so a file is read again only
+ * if it was modified.
+ */
+final class JavaBuildOutputCache {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.java.JavaBuildOutputCache");
+  private static final int VERSION = 1;
+  private static final String CLASS_EXTENSION = ".class";
+  // file path -> hash of the file content; there is at most one entry per file, so stale hashes are replaced rather than accumulated
+  private static final Map<String, FileHash> ourFileHashes = new ConcurrentHashMap<String, FileHash>();
+
+  private final File myCacheDir;
+
+  private JavaBuildOutputCache(File cacheDir) {
+    myCacheDir = cacheDir;
+  }
+
+  /**
+   * @return the cache or null if it is not enabled
+   */
+  @Nullable
+  public static JavaBuildOutputCache getInstance() {
+    final String path = System.getProperty(GlobalOptions.BUILD_CACHE_DIR_OPTION);
+    return StringUtil.isEmpty(path) ? null : new JavaBuildOutputCache(new File(path));
+  }
+
+  /**
+   * @return the key of the cache entry for the chunk or null if the cache cannot be used for this compilation round
+   */
+  @Nullable
+  public String computeKey(CompileContext context, ModuleChunk chunk, Collection<File> files, List<String> options,
+                           Collection<File> classpath, Collection<File> platformCp) throws IOException {
+    final BuildRootIndex index = context.getProjectDescriptor().getBuildRootIndex();
+    // check that the whole chunk is compiled before reading anything, so incremental rounds don't pay for hashing
+    final List<ModuleBuildTarget> targets = sortTargets(chunk);
+    final Map<JavaSourceRootDescriptor, List<File>> sourcesByRoot = new LinkedHashMap<JavaSourceRootDescriptor, List<File>>();
+    int javaFilesCount = 0;
+    for (ModuleBuildTarget target : targets) {
+      if (!index.getTempTargetRoots(target, context).isEmpty()) {
+        return null;
+      }
+      for (JavaSourceRootDescriptor rd : getSourceRoots(context, target)) {
+        final List<File> sources = new ArrayList<File>();
+        collectSources(index, rd, rd.root, sources);
+        for (File source : sources) {
+          if (JavaBuilder.JAVA_SOURCES_FILTER.accept(source)) {
+            if (!files.contains(source)) {
+              // only a part of the chunk is compiled, the output depends on classes compiled before
+              return null;
+            }
+            javaFilesCount++;
+          }
+        }
+        sourcesByRoot.put(rd, sources);
+      }
+    }
+    if (javaFilesCount != files.size()) {
+      return null;
+    }
+
+    final MessageDigest digest = createDigest();
+    update(digest, String.valueOf(VERSION));
+    update(digest, System.getProperty("java.version"));
+    update(digest, String.valueOf(JavaBuilder.USE_EMBEDDED_JAVAC));
+    for (String option : options) {
+      update(digest, option);
+    }
+    for (ModuleBuildTarget target : targets) {
+      update(digest, target.getId());
+      // paths of the roots are not included so the entry may be reused in another checkout of the project
+      for (JavaSourceRootDescriptor rd : getSourceRoots(context, target)) {
+        update(digest, rd.getPackagePrefix());
+        for (File source : sourcesByRoot.get(rd)) {
+          update(digest, getRelativePath(rd.root, source));
+          update(digest, getFileHash(source));
+        }
+      }
+    }
+    for (File file : platformCp) {
+      updateWithClasspathEntry(digest, file);
+    }
+    for (File file : classpath) {
+      updateWithClasspathEntry(digest, file);
+    }
+    return toHexString(digest.digest());
+  }
+
+  /**
+   * Passes classes from the cache entry to the output sink
+   *
+   * @return true if the entry was found and all classes were restored
+   */
+  public boolean restore(CompileContext context, ModuleChunk chunk, String key, OutputFileConsumer outputSink) {
+    final long start = System.nanoTime();
+    final File entryFile = getEntryFile(key);
+    if (!entryFile.isFile()) {
+      return false;
+    }
+    final Map<String, ModuleBuildTarget> targets = new HashMap<String, ModuleBuildTarget>();
+    for (ModuleBuildTarget target : chunk.getTargets()) {
+      targets.put(target.getId(), target);
+    }
+
+    final List<OutputFileObject> restored = new ArrayList<OutputFileObject>();
+    try {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(entryFile))));
+      try {
+        if (input.readInt() != VERSION) {
+          return false;
+        }
+        final int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+          final ModuleBuildTarget target = targets.get(input.readUTF());
+          final int rootIndex = input.readInt();
+          final String sourcePath = input.readUTF();
+          final String relativePath = input.readUTF();
+          final byte[] bytes = new byte[input.readInt()];
+          input.readFully(bytes);
+          if (target == null) {
+            return false;
+          }
+          final List<JavaSourceRootDescriptor> roots = getSourceRoots(context, target);
+          final File outputDir = target.getOutputDir();
+          if (outputDir == null || rootIndex >= roots.size()) {
+            return false;
+          }
+          final File sourceFile = new File(roots.get(rootIndex).root, sourcePath);
+          final String className = new ClassReader(bytes).getClassName();
+          restored.add(new OutputFileObject(null, outputDir, relativePath, new File(outputDir, relativePath), JavaFileObject.Kind.CLASS,
+                                            className, Utils.toURI(sourceFile.getPath()), new BinaryContent(bytes)));
+        }
+      }
+      finally {
+        input.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read build cache entry " + entryFile.getPath(), e);
+      return false;
+    }
+    catch (RuntimeException e) {
+      // corrupted class file
+      LOG.info("Cannot read build cache entry " + entryFile.getPath(), e);
+      return false;
+    }
+
+    context.processMessage(new ProgressMessage("Restoring classes from build cache... [" + chunk.getName() + "]"));
+    for (OutputFileObject fileObject : restored) {
+      outputSink.save(fileObject);
+    }
+    LOG.info("Restored " + restored.size() + " classes of " + chunk.getName() + " from build cache");
+    BuildStatistics.getInstance(context).addPhaseTime(BuildStatistics.BUILD_CACHE_PHASE, System.nanoTime() - start, restored.size());
+    return true;
+  }
+
+  /**
+   * Stores classes compiled from the given sources to the cache entry
+   */
+  public void store(CompileContext context, ModuleChunk chunk, String key, Collection<File> sources) {
+    final File entryFile = getEntryFile(key);
+    if (entryFile.exists()) {
+      return;
+    }
+    final File tempFile = new File(entryFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+    try {
+      FileUtil.createParentDirs(tempFile);
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+      try {
+        final List<CachedClass> classes = new ArrayList<CachedClass>();
+        for (ModuleBuildTarget target : sortTargets(chunk)) {
+          final File outputDir = target.getOutputDir();
+          if (outputDir == null) {
+            continue;
+          }
+          final String outputDirPath = FileUtil.toSystemIndependentName(outputDir.getPath());
+          final SourceToOutputMapping mapping = context.getProjectDescriptor().dataManager.getSourceToOutputMap(target);
+          final List<JavaSourceRootDescriptor> roots = getSourceRoots(context, target);
+          for (int rootIndex = 0; rootIndex < roots.size(); rootIndex++) {
+            final File root = roots.get(rootIndex).root;
+            for (File source : sources) {
+              final String sourcePath = FileUtil.getRelativePath(root, source);
+              if (sourcePath == null || sourcePath.startsWith("..")) {
+                continue;
+              }
+              final Collection<String> outputs = mapping.getOutputs(FileUtil.toSystemIndependentName(source.getPath()));
+              if (outputs == null) {
+                continue;
+              }
+              for (String outputPath : outputs) {
+                final String relativePath = FileUtil.getRelativePath(outputDirPath, outputPath, '/');
+                if (relativePath != null && !relativePath.startsWith("../") && StringUtil.endsWithIgnoreCase(outputPath, CLASS_EXTENSION)) {
+                  classes.add(new CachedClass(target.getId(), rootIndex, FileUtil.toSystemIndependentName(sourcePath), relativePath,
+                                              new File(outputPath)));
+                }
+              }
+            }
+          }
+        }
+        output.writeInt(VERSION);
+        output.writeInt(classes.size());
+        for (CachedClass cachedClass : classes) {
+          final byte[] bytes = FileUtil.loadFileBytes(cachedClass.myOutputFile);
+          output.writeUTF(cachedClass.myTargetId);
+          output.writeInt(cachedClass.myRootIndex);
+          output.writeUTF(cachedClass.mySourcePath);
+          output.writeUTF(cachedClass.myRelativePath);
+          output.writeInt(bytes.length);
+          output.write(bytes);
+        }
+      }
+      finally {
+        output.close();
+      }
+      if (!tempFile.renameTo(entryFile)) {
+        FileUtil.delete(tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot write build cache entry " + entryFile.getPath(), e);
+      FileUtil.delete(tempFile);
+    }
+  }
+
+  private File getEntryFile(String key) {
+    return new File(new File(myCacheDir, key.substring(0, 2)), key);
+  }
+
+  private static List<JavaSourceRootDescriptor> getSourceRoots(CompileContext context, ModuleBuildTarget target) {
+    final BuildRootIndex index = context.getProjectDescriptor().getBuildRootIndex();
+    final List<JavaSourceRootDescriptor> roots = new ArrayList<JavaSourceRootDescriptor>(index.getTargetRoots(target, context));
+    Collections.sort(roots, new Comparator<JavaSourceRootDescriptor>() {
+      @Override
+      public int compare(JavaSourceRootDescriptor o1, JavaSourceRootDescriptor o2) {
+        return FileUtil.comparePaths(o1.root.getPath(), o2.root.getPath());
+      }
+    });
+    return roots;
+  }
+
+  private static List<ModuleBuildTarget> sortTargets(ModuleChunk chunk) {
+    final List<ModuleBuildTarget> targets = new ArrayList<ModuleBuildTarget>(chunk.getTargets());
+    Collections.sort(targets, new Comparator<ModuleBuildTarget>() {
+      @Override
+      public int compare(ModuleBuildTarget o1, ModuleBuildTarget o2) {
+        return o1.getId().compareTo(o2.getId());
+      }
+    });
+    return targets;
+  }
+
+  private static void collectSources(BuildRootIndex index, JavaSourceRootDescriptor rd, File file, List<File> result) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      if (index.isDirectoryAccepted(file, rd)) {
+        Arrays.sort(children);
+        for (File child : children) {
+          collectSources(index, rd, child, result);
+        }
+      }
+    }
+    else if (file.isFile() && index.isFileAccepted(file, rd)) {
+      result.add(file);
+    }
+  }
+
+  private static void updateWithClasspathEntry(MessageDigest digest, File file) throws IOException {
+    if (file.isDirectory()) {
+      // output of another module: include the compiled classes so the entry depends on the dependencies' content, not on their paths
+      update(digest, "dir");
+      updateWithDirectory(digest, file, "");
+    }
+    else if (file.isFile()) {
+      update(digest, getFileHash(file));
+    }
+    else {
+      update(digest, "none");
+    }
+  }
+
+  private static void updateWithDirectory(MessageDigest digest, File dir, String relativePath) throws IOException {
+    final File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    Arrays.sort(children);
+    for (File child : children) {
+      final String childPath = relativePath + "/" + child.getName();
+      if (child.isDirectory()) {
+        updateWithDirectory(digest, child, childPath);
+      }
+      else {
+        update(digest, childPath);
+        update(digest, getFileHash(child));
+      }
+    }
+  }
+
+  private static String getFileHash(File file) throws IOException {
+    final String path = file.getPath();
+    final long length = file.length();
+    final long timestamp = file.lastModified();
+    final FileHash cached = ourFileHashes.get(path);
+    if (cached != null && cached.myLength == length && cached.myTimestamp == timestamp) {
+      return cached.myHash;
+    }
+    final MessageDigest fileDigest = createDigest();
+    fileDigest.update(FileUtil.loadFileBytes(file));
+    final String hash = toHexString(fileDigest.digest());
+    ourFileHashes.put(path, new FileHash(length, timestamp, hash));
+    return hash;
+  }
+
+  private static String getRelativePath(File base, File file) {
+    final String relativePath = FileUtil.getRelativePath(base, file);
+    return FileUtil.toSystemIndependentName(relativePath != null ? relativePath : file.getPath());
+  }
+
+  private static void update(MessageDigest digest, String text) {
+    try {
+      digest.update(text.getBytes("UTF-8"));
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+    digest.update((byte)0);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toHexString(byte[] bytes) {
+    final StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return builder.toString();
+  }
+
+  private static class FileHash {
+    private final long myLength;
+    private final long myTimestamp;
+    private final String myHash;
+
+    private FileHash(long length, long timestamp, String hash) {
+      myLength = length;
+      myTimestamp = timestamp;
+      myHash = hash;
+    }
+  }
+
+  private static class CachedClass {
+    private final String myTargetId;
+    private final int myRootIndex;
+    private final String mySourcePath;
+    private final String myRelativePath;
+    private final File myOutputFile;
+
+    private CachedClass(String targetId, int rootIndex, String sourcePath, String relativePath, File outputFile) {
+      myTargetId = targetId;
+      myRootIndex = rootIndex;
+      mySourcePath = sourcePath;
+      myRelativePath = relativePath;
+      myOutputFile = outputFile;
+    }
+  }
+}
@@ -236,6 +236,8 @@ public class JavaBuilder extends ModuleLevelBuilder {
     final Mappings delta = pd.dataManager.getMappings().createDelta();
     final Callbacks.Backend mappingsCallback = delta.getCallback();
     final OutputFilesSink outputSink = new OutputFilesSink(context, outputConsumer, mappingsCallback, chunk.getName());
+    Map<ModuleBuildTarget, Map<File, Long>> abiFingerprints = null;
+    boolean abiUnchanged = false;
     try {
       if (hasSourcesToCompile) {
         final AtomicReference<String> ref = COMPILER_VERSION_INFO.get(context);
@@ -291,16 +293,75 @@ public class JavaBuilder extends ModuleLevelBuilder {
           );
         }
       }
+      abiFingerprints = collectAbiFingerprints(context, chunk, files, outputSink);
+      abiUnchanged = abiFingerprints != null && isAbiUnchanged(context, dirtyFilesHolder, abiFingerprints);
     }
     finally {
-      if (JavaBuilderUtil.updateMappings(context, delta, dirtyFilesHolder, chunk, files, outputSink.getSuccessfullyCompiled())) {
+      final long analysisStart = System.nanoTime();
+      if (JavaBuilderUtil.updateMappings(context, delta, dirtyFilesHolder, chunk, files, outputSink.getSuccessfullyCompiled(), abiUnchanged)) {
         exitCode = ExitCode.ADDITIONAL_PASS_REQUIRED;
       }
+      BuildStatistics.getInstance(context).addPhaseTime(BuildStatistics.DEPENDENCY_ANALYSIS_PHASE, System.nanoTime() - analysisStart);
+    }
+    if (abiFingerprints != null && !Utils.errorsDetected(context)) {
+      // saved only after the dependency analysis so the change is not lost if the build is interrupted before dependants are marked
+      saveAbiFingerprints(context, dirtyFilesHolder, abiFingerprints);
     }
 
     return exitCode;
   }
 
+  /**
+   * @return ABI fingerprints of sources compiled in this round grouped by targets or null if the compilation failed
+   */
+  @Nullable
+  private static Map<ModuleBuildTarget, Map<File, Long>> collectAbiFingerprints(CompileContext context,
+                                                                                ModuleChunk chunk,
+                                                                                Collection<File> files,
+                                                                                OutputFilesSink outputSink) {
+    if (Utils.errorsDetected(context)) {
+      return null;
+    }
+    final BuildRootIndex index = context.getProjectDescriptor().getBuildRootIndex();
+    final Map<File, Long> fingerprints = outputSink.getAbiFingerprints();
+    final Map<ModuleBuildTarget, Map<File, Long>> result = new THashMap<ModuleBuildTarget, Map<File, Long>>();
+    for (ModuleBuildTarget target : chunk.getTargets()) {
+      result.put(target, new THashMap<File, Long>(FileUtil.FILE_HASHING_STRATEGY));
+    }
+    for (File file : files) {
+      final JavaSourceRootDescriptor rd = index.findJavaRootDescriptor(context, file);
+      final Map<File, Long> targetFingerprints = rd != null ? result.get(rd.target) : null;
+      if (targetFingerprints != null) {
+        final Long fingerprint = fingerprints.get(file);
+        targetFingerprints.put(file, fingerprint != null ? fingerprint : 0L);
+      }
+    }
+    return result;
+  }
+
+  private static boolean isAbiUnchanged(CompileContext context,
+                                        DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+                                        Map<ModuleBuildTarget, Map<File, Long>> fingerprints) throws IOException {
+    for (Map.Entry<ModuleBuildTarget, Map<File, Long>> entry : fingerprints.entrySet()) {
+      final ModuleBuildTarget target = entry.getKey();
+      final AbiFingerprintStorage storage = context.getProjectDescriptor().dataManager.getStorage(target, AbiFingerprintStorage.PROVIDER);
+      if (!storage.isUnchanged(entry.getValue(), dirtyFilesHolder.getRemovedFiles(target))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void saveAbiFingerprints(CompileContext context,
+                                          DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+                                          Map<ModuleBuildTarget, Map<File, Long>> fingerprints) throws IOException {
+    for (Map.Entry<ModuleBuildTarget, Map<File, Long>> entry : fingerprints.entrySet()) {
+      final ModuleBuildTarget target = entry.getKey();
+      final AbiFingerprintStorage storage = context.getProjectDescriptor().dataManager.getStorage(target, AbiFingerprintStorage.PROVIDER);
+      storage.update(entry.getValue(), dirtyFilesHolder.getRemovedFiles(target));
+    }
+  }
+
   private boolean compileJava(
     final CompileContext context,
     ModuleChunk chunk,
@@ -354,12 +415,21 @@ public class JavaBuilder extends ModuleLevelBuilder {
 
     final Map<File, Set<File>> outs = buildOutputDirectoriesMap(context, chunk);
     final List<String> options = getCompilationOptions(context, chunk, profile);
+    final JavaBuildOutputCache cache = JavaBuildOutputCache.getInstance();
+    String cacheKey = null;
+    if (cache != null && (profile == null || !profile.isEnabled())) {
+      cacheKey = cache.computeKey(context, chunk, files, options, classpath, platformCp);
+      if (cacheKey != null && cache.restore(context, chunk, cacheKey, outputSink)) {
+        return true;
+      }
+    }
     final ClassProcessingConsumer classesConsumer = new ClassProcessingConsumer(context, outputSink);
     if (LOG.isDebugEnabled()) {
       LOG.debug("Compiling chunk [" + chunk.getName() + "] with options: \"" + StringUtil.join(options, " ") + "\"");
     }
+    final long compileStart = System.nanoTime();
+    boolean rc = false;
     try {
-      final boolean rc;
       if (USE_EMBEDDED_JAVAC) {
         final boolean useEclipse = useEclipseCompiler(context);
         rc = JavacMain.compile(
@@ -378,11 +448,15 @@ public class JavaBuilder extends ModuleLevelBuilder {
         }
         rc = future.getMessageHandler().isTerminatedSuccessfully();
       }
-      return rc;
     }
     finally {
       counter.await();
+      BuildStatistics.getInstance(context).addPhaseTime(BuildStatistics.JAVAC_PHASE, System.nanoTime() - compileStart, files.size());
+    }
+    if (cacheKey != null && rc && !Utils.errorsDetected(context)) {
+      cache.store(context, chunk, cacheKey, files);
     }
+    return rc;
   }
 
   private static boolean useEclipseCompiler(CompileContext context) {
@@ -17,6 +17,7 @@ package org.jetbrains.jps.incremental.java;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
+import gnu.trove.THashMap;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.asm4.ClassReader;
@@ -33,6 +34,7 @@ import javax.tools.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -46,6 +48,7 @@ class OutputFilesSink implements OutputFileConsumer {
   private final Callbacks.Backend myMappingsCallback;
   private final String myChunkName;
   private final Set<File> mySuccessfullyCompiled = new THashSet<File>(FileUtil.FILE_HASHING_STRATEGY);
+  private final Map<File, Long> myAbiFingerprints = new THashMap<File, Long>(FileUtil.FILE_HASHING_STRATEGY);
 
   public OutputFilesSink(CompileContext context,
                          ModuleLevelBuilder.OutputConsumer outputConsumer,
@@ -89,6 +92,7 @@ class OutputFilesSink implements OutputFileConsumer {
         try {
           final ClassReader reader = new ClassReader(content.getBuffer(), content.getOffset(), content.getLength());
           myMappingsCallback.associate(FileUtil.toSystemIndependentName(fileObject.getFile().getPath()), sourcePath, reader);
+          addAbiFingerprint(srcFile, AbiFingerprint.compute(content.getBuffer(), content.getOffset(), content.getLength()));
         }
         catch (Throwable e) {
           // need this to make sure that unexpected errors in, for example, ASM will not ruin the compilation  
@@ -116,6 +120,18 @@ class OutputFilesSink implements OutputFileConsumer {
     return Collections.unmodifiableSet(mySuccessfullyCompiled);
   }
 
+  private synchronized void addAbiFingerprint(File srcFile, long fingerprint) {
+    final Long current = myAbiFingerprints.get(srcFile);
+    myAbiFingerprints.put(srcFile, current != null ? current + fingerprint : fingerprint);
+  }
+
+  /**
+   * @return sum of ABI fingerprints of classes compiled from each source file
+   */
+  public synchronized Map<File, Long> getAbiFingerprints() {
+    return new THashMap<File, Long>(myAbiFingerprints, FileUtil.FILE_HASHING_STRATEGY);
+  }
+
   private void writeToDisk(@NotNull OutputFileObject fileObject, boolean isTemp) throws IOException {
     myContext.processMessage(new ProgressMessage("Writing classes... " + myChunkName));
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.messages;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.incremental.BuildStatistics;
+
+/**
+ * Sent when the build is finished. The statistics are passed to the IDE as a custom builder message with JSON text.
+ */
+public class BuildStatisticsMessage extends CustomBuilderMessage {
+  private final BuildStatistics myStatistics;
+
+  public BuildStatisticsMessage(@NotNull BuildStatistics statistics) {
+    super(BuildStatistics.BUILDER_ID, BuildStatistics.MESSAGE_TYPE, statistics.toJson());
+    myStatistics = statistics;
+  }
+
+  @NotNull
+  public BuildStatistics getStatistics() {
+    return myStatistics;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.resources;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataExternalizer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.builders.storage.StorageProvider;
+import org.jetbrains.jps.incremental.storage.AbstractStateStorage;
+import org.jetbrains.jps.incremental.storage.PathStringDescriptor;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Stores length, timestamp and content hash of resource files copied to the output of a resources target, so a resource which is
+ * marked dirty but wasn't actually changed is detected by reading the source only, without reading the copy.
+ */
+class ResourceOutputStateStorage extends AbstractStateStorage<String, ResourceOutputStateStorage.OutputState> {
+  public static final StorageProvider<ResourceOutputStateStorage> PROVIDER = new StorageProvider<ResourceOutputStateStorage>() {
+    @NotNull
+    @Override
+    public ResourceOutputStateStorage createStorage(File targetDataDir) throws IOException {
+      return new ResourceOutputStateStorage(new File(targetDataDir, "resource-outputs" + File.separator + "data"));
+    }
+  };
+
+  private ResourceOutputStateStorage(File storePath) throws IOException {
+    super(storePath, new PathStringDescriptor(), new OutputStateExternalizer());
+  }
+
+  /**
+   * @return true if {@code target} has the same size as {@code source}, wasn't modified since it was copied and the content hash
+   * recorded at that moment equals {@code sourceHash}
+   */
+  public boolean isUpToDate(@NotNull File source, @NotNull File target, @NotNull byte[] sourceHash) throws IOException {
+    final long length = target.length();
+    if (length != source.length()) {
+      return false;
+    }
+    final OutputState state = getState(FileUtil.toSystemIndependentName(target.getPath()));
+    return state != null && state.myLength == length && state.myTimestamp == target.lastModified() &&
+           Arrays.equals(state.myHash, sourceHash);
+  }
+
+  public void update(@NotNull File target, @NotNull byte[] sourceHash) throws IOException {
+    update(FileUtil.toSystemIndependentName(target.getPath()), new OutputState(target.length(), target.lastModified(), sourceHash));
+  }
+
+  @NotNull
+  public static byte[] computeHash(@NotNull File file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    final InputStream stream = new DigestInputStream(new FileInputStream(file), digest);
+    try {
+      final byte[] buffer = new byte[8192];
+      //noinspection StatementWithEmptyBody
+      while (stream.read(buffer) >= 0) ;
+    }
+    finally {
+      stream.close();
+    }
+    return digest.digest();
+  }
+
+  static class OutputState {
+    private final long myLength;
+    private final long myTimestamp;
+    private final byte[] myHash;
+
+    private OutputState(long length, long timestamp, byte[] hash) {
+      myLength = length;
+      myTimestamp = timestamp;
+      myHash = hash;
+    }
+  }
+
+  private static class OutputStateExternalizer implements DataExternalizer<OutputState> {
+    @Override
+    public void save(DataOutput out, OutputState value) throws IOException {
+      out.writeLong(value.myLength);
+      out.writeLong(value.myTimestamp);
+      out.writeInt(value.myHash.length);
+      out.write(value.myHash);
+    }
+
+    @Override
+    public OutputState read(DataInput in) throws IOException {
+      final long length = in.readLong();
+      final long timestamp = in.readLong();
+      final byte[] hash = new byte[in.readInt()];
+      in.readFully(hash);
+      return new OutputState(length, timestamp, hash);
+    }
+  }
+}
@@ -16,7 +16,9 @@
 package org.jetbrains.jps.incremental.resources;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.BoundedTaskExecutor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
@@ -31,10 +33,16 @@ import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Eugene Zhuravlev
@@ -44,6 +52,7 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
   private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.resourses.ResourcesBuilder");
   public static final String BUILDER_NAME = "Resource Compiler";
   private static final List<StandardResourceBuilderEnabler> ourEnablers = Collections.synchronizedList(new ArrayList<StandardResourceBuilderEnabler>());
+  private static final int MAX_COPY_THREADS = Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors()));
 
   public ResourcesBuilder() {
     super(ResourcesTargetType.ALL_TYPES);
@@ -68,6 +77,7 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
     }
 
     try {
+      final List<Pair<File, ResourceRootDescriptor>> filesToCopy = new ArrayList<Pair<File, ResourceRootDescriptor>>();
       holder.processDirtyFiles(new FileProcessor<ResourceRootDescriptor, ResourcesTarget>() {
         private final Map<ResourceRootDescriptor, Boolean> mySkippedRoots = new HashMap<ResourceRootDescriptor, Boolean>();
         public boolean apply(ResourcesTarget target, final File file, final ResourceRootDescriptor sourceRoot) throws IOException {
@@ -80,22 +90,16 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
           if (isSkipped.booleanValue()) {
             return true;
           }
-          try {
-            copyResource(context, sourceRoot, file, outputConsumer);
-          }
-          catch (IOException e) {
-            LOG.info(e);
-            context.processMessage(
-              new CompilerMessage(
-                "resources", BuildMessage.Kind.ERROR, e.getMessage(), FileUtil.toSystemIndependentName(file.getPath())
-              )
-            );
-            return false;
-          }
+          filesToCopy.add(Pair.create(file, sourceRoot));
           return !context.getCancelStatus().isCanceled();
         }
       });
 
+      context.checkCanceled();
+      if (!filesToCopy.isEmpty()) {
+        context.processMessage(new ProgressMessage("Copying resources... [" + target.getModule().getName() + "]"));
+        copyResources(context, target, filesToCopy, outputConsumer);
+      }
       context.checkCanceled();
 
       context.processMessage(new ProgressMessage(""));
@@ -119,7 +123,65 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
     return true;
   }
 
-  private static void copyResource(CompileContext context, ResourceRootDescriptor rd, File file, BuildOutputConsumer outputConsumer) throws IOException {
+  private static void copyResources(final CompileContext context,
+                                    ResourcesTarget target,
+                                    List<Pair<File, ResourceRootDescriptor>> filesToCopy,
+                                    final BuildOutputConsumer outputConsumer) throws IOException, ProjectBuildException {
+    final long start = System.currentTimeMillis();
+    final CopyStatistics statistics = new CopyStatistics();
+    final ResourceOutputStateStorage outputStates =
+      context.getProjectDescriptor().dataManager.getStorage(target, ResourceOutputStateStorage.PROVIDER);
+    final Object outputConsumerLock = new Object();
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    final BoundedTaskExecutor executor = new BoundedTaskExecutor(SharedThreadPool.getInstance(), MAX_COPY_THREADS);
+    final List<Future<?>> futures = new ArrayList<Future<?>>(filesToCopy.size());
+    for (final Pair<File, ResourceRootDescriptor> pair : filesToCopy) {
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          if (failed.get() || context.getCancelStatus().isCanceled()) {
+            return;
+          }
+          final File file = pair.getFirst();
+          try {
+            copyResource(context, pair.getSecond(), file, outputConsumer, outputConsumerLock, outputStates, statistics);
+          }
+          catch (IOException e) {
+            LOG.info(e);
+            context.processMessage(
+              new CompilerMessage(
+                "resources", BuildMessage.Kind.ERROR, e.getMessage(), FileUtil.toSystemIndependentName(file.getPath())
+              )
+            );
+            failed.set(true);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        failed.set(true);
+        Thread.currentThread().interrupt();
+        throw new ProjectBuildException("Interrupted while copying resources of " + target.getModule().getName(), e);
+      }
+      catch (ExecutionException e) {
+        LOG.error(e);
+      }
+    }
+
+    final long time = System.currentTimeMillis() - start;
+    final long copiedBytes = statistics.myCopiedBytes.get();
+    LOG.info("Resources of " + target.getModule().getName() + ": " + statistics.myCopiedFiles.get() + " files (" + copiedBytes / 1024 + " KB) copied, " +
+             statistics.mySkippedFiles.get() + " up-to-date files skipped in " + time + " ms" +
+             (time > 0 ? " (" + (copiedBytes * 1000 / 1024 / time) + " KB/s)" : ""));
+  }
+
+  private static void copyResource(CompileContext context, ResourceRootDescriptor rd, File file, BuildOutputConsumer outputConsumer,
+                                   Object outputConsumerLock, ResourceOutputStateStorage outputStates, CopyStatistics statistics)
+    throws IOException {
     final File outputRoot = rd.getTarget().getOutputDir();
     if (outputRoot == null) {
       return;
@@ -135,19 +197,34 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
     }
     targetPath.append('/').append(relativePath);
 
-    context.processMessage(new ProgressMessage("Copying resources... [" + rd.getTarget().getModule().getName() + "]"));
-
     final String outputPath = targetPath.toString();
     final File targetFile = new File(outputPath);
-    FileUtil.copyContent(file, targetFile);
+    final byte[] hash = ResourceOutputStateStorage.computeHash(file);
+    if (outputStates.isUpToDate(file, targetFile, hash)) {
+      statistics.mySkippedFiles.incrementAndGet();
+    }
+    else {
+      FileUtil.copyContent(file, targetFile);
+      outputStates.update(targetFile, hash);
+      statistics.myCopiedFiles.incrementAndGet();
+      statistics.myCopiedBytes.addAndGet(file.length());
+    }
     try {
-      outputConsumer.registerOutputFile(targetFile, Collections.singletonList(file.getPath()));
+      synchronized (outputConsumerLock) {
+        outputConsumer.registerOutputFile(targetFile, Collections.singletonList(file.getPath()));
+      }
     }
     catch (Exception e) {
       context.processMessage(new CompilerMessage(BUILDER_NAME, e));
     }
   }
 
+  private static class CopyStatistics {
+    private final AtomicInteger myCopiedFiles = new AtomicInteger();
+    private final AtomicInteger mySkippedFiles = new AtomicInteger();
+    private final AtomicLong myCopiedBytes = new AtomicLong();
+  }
+
   @NotNull
   public String getPresentableName() {
     return "Resource Compiler";
@@ -31,6 +31,7 @@ import java.io.*;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Eugene Zhuravlev
@@ -58,6 +59,7 @@ public class BuildDataManager implements StorageOwner {
   private final BuildDataPaths myDataPaths;
   private final BuildTargetsState myTargetsState;
   private final File myVersionFile;
+  private final AtomicLong myStorageFlushNanos = new AtomicLong();
 
   public BuildDataManager(final BuildDataPaths dataPaths, BuildTargetsState targetsState, final boolean useMemoryTempCaches) throws IOException {
     myDataPaths = dataPaths;
@@ -161,21 +163,35 @@ public class BuildDataManager implements StorageOwner {
   }
 
   public void flush(boolean memoryCachesOnly) {
-    synchronized (myTargetStoragesLock) {
-      myTargetStoragesOwner.flush(memoryCachesOnly);
-    }
-    synchronized (mySourceToOutputLock) {
-      for (SourceToOutputMappingImpl mapping : mySourceToOutputs.values()) {
-        mapping.flush(memoryCachesOnly);
+    final long start = System.nanoTime();
+    try {
+      synchronized (myTargetStoragesLock) {
+        myTargetStoragesOwner.flush(memoryCachesOnly);
       }
-    }
-    mySrcToFormMap.flush(memoryCachesOnly);
-    final Mappings mappings = myMappings;
-    if (mappings != null) {
-      synchronized (mappings) {
-        mappings.flush(memoryCachesOnly);
+      synchronized (mySourceToOutputLock) {
+        for (SourceToOutputMappingImpl mapping : mySourceToOutputs.values()) {
+          mapping.flush(memoryCachesOnly);
+        }
+      }
+      mySrcToFormMap.flush(memoryCachesOnly);
+      final Mappings mappings = myMappings;
+      if (mappings != null) {
+        synchronized (mappings) {
+          mappings.flush(memoryCachesOnly);
+        }
       }
     }
+    finally {
+      myStorageFlushNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * @return total time in nanoseconds spent in flushing and closing storages since this manager was created. Reads and writes
+   * performed by builders through the storages are not included.
+   */
+  public long getStorageFlushTime() {
+    return myStorageFlushNanos.get();
   }
 
   public void close() throws IOException {
@@ -220,16 +236,22 @@ public class BuildDataManager implements StorageOwner {
   }
 
   public void closeSourceToOutputStorages(Collection<BuildTargetChunk> chunks) throws IOException {
-    synchronized (mySourceToOutputLock) {
-      for (BuildTargetChunk chunk : chunks) {
-        for (BuildTarget<?> target : chunk.getTargets()) {
-          final SourceToOutputMappingImpl mapping = mySourceToOutputs.remove(target);
-          if (mapping != null) {
-            mapping.close();
+    final long start = System.nanoTime();
+    try {
+      synchronized (mySourceToOutputLock) {
+        for (BuildTargetChunk chunk : chunks) {
+          for (BuildTarget<?> target : chunk.getTargets()) {
+            final SourceToOutputMappingImpl mapping = mySourceToOutputs.remove(target);
+            if (mapping != null) {
+              mapping.close();
+            }
           }
         }
       }
     }
+    finally {
+      myStorageFlushNanos.addAndGet(System.nanoTime() - start);
+    }
   }
 
   private void closeSourceToOutputStorages() throws IOException {
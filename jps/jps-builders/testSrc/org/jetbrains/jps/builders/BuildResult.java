@@ -86,4 +86,9 @@ public class BuildResult implements MessageHandler {
   public List<BuildMessage> getWarnMessages() {
     return myWarnMessages;
   }
+
+  @NotNull
+  public List<BuildMessage> getInfoMessages() {
+    return myInfoMessages;
+  }
 }
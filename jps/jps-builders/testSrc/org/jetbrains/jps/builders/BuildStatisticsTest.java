@@ -0,0 +1,69 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.builders;
+
+import com.intellij.util.PathUtil;
+import org.jetbrains.jps.incremental.BuildStatistics;
+import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.BuildStatisticsMessage;
+
+import java.util.regex.Pattern;
+
+public class BuildStatisticsTest extends JpsBuildTestCase {
+  public void testStatisticsReportedAfterBuild() {
+    String file = createFile("src/A.java", "class A{}");
+    createFile("src/B.java", "class B{}");
+    addModule("m", PathUtil.getParentPath(file));
+    BuildResult result = makeAll();
+    result.assertSuccessful();
+
+    BuildStatisticsMessage message = findStatisticsMessage(result);
+    assertNotNull(message);
+    assertEquals(BuildStatistics.BUILDER_ID, message.getBuilderId());
+    assertEquals(BuildStatistics.MESSAGE_TYPE, message.getMessageType());
+    String json = message.getMessageText();
+    assertTrue(json, Pattern.compile("\\{\"name\":\"java-production:m\",\"timeMs\":\\d+,\"invocations\":1,\"files\":2}").matcher(json).find());
+    assertTrue(json, json.contains("\"name\":\"" + BuildStatistics.JAVAC_PHASE + "\""));
+    assertTrue(json, json.contains("\"name\":\"" + BuildStatistics.STORAGE_FLUSH_PHASE + "\""));
+
+    result = makeAll();
+    result.assertUpToDate();
+    message = findStatisticsMessage(result);
+    assertNotNull(message);
+    assertFalse(message.getMessageText(), message.getMessageText().contains("\"name\":\"" + BuildStatistics.JAVAC_PHASE + "\""));
+  }
+
+  public void testCsvReport() {
+    BuildStatistics statistics = new BuildStatistics();
+    statistics.addPhaseTime(BuildStatistics.JAVAC_PHASE, 3000000L, 2);
+    statistics.addPhaseTime(BuildStatistics.JAVAC_PHASE, 2000000L, 1);
+    statistics.addBuilderTime("a \"quoted\" builder", 1000000L);
+    statistics.buildFinished();
+    String csv = statistics.toCsv();
+    assertTrue(csv, csv.startsWith("kind,name,timeMs,invocations,files\ntotal,build,"));
+    assertTrue(csv, csv.contains("\nbuilder,\"a \"\"quoted\"\" builder\",1,1,0\n"));
+    assertTrue(csv, csv.contains("\nphase,\"" + BuildStatistics.JAVAC_PHASE + "\",5,2,3\n"));
+  }
+
+  private static BuildStatisticsMessage findStatisticsMessage(BuildResult result) {
+    for (BuildMessage message : result.getInfoMessages()) {
+      if (message instanceof BuildStatisticsMessage) {
+        return (BuildStatisticsMessage)message;
+      }
+    }
+    return null;
+  }
+}
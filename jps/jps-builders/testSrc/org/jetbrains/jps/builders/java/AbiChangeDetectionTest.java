@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.builders.java;
+
+import com.intellij.util.PathUtil;
+import org.jetbrains.jps.builders.BuildResult;
+import org.jetbrains.jps.builders.JpsBuildTestCase;
+import org.jetbrains.jps.incremental.java.JavaBuilder;
+import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.ProgressMessage;
+import org.jetbrains.jps.model.module.JpsModule;
+
+public class AbiChangeDetectionTest extends JpsBuildTestCase {
+  private String myMain;
+  private String myDependency;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myMain = createFile("src/A.java", "class A{ int x = B.C + new B().foo(); }");
+    myDependency = createFile("depSrc/B.java", "public class B{ public static final int C = 1; public int foo() { return 0; } }");
+    JpsModule mainModule = addModule("main", PathUtil.getParentPath(myMain));
+    JpsModule depModule = addModule("dep", PathUtil.getParentPath(myDependency));
+    mainModule.getDependenciesList().addModuleDependency(depModule);
+    rebuildAll();
+  }
+
+  public void testMethodBodyChange() {
+    change(myDependency, "public class B{ public static final int C = 1; public int foo() { return bar(); } private int bar() { return 1; } }");
+    assertAbiUnchanged(makeAll(), true);
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java");
+
+    change(myDependency, "public class B{ public static final int C = 1; public int foo() { return 2; } }");
+    assertAbiUnchanged(makeAll(), true);
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java");
+  }
+
+  public void testRenameToNameWithSameHashCode() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    change(myDependency, "public class B{ public static final int C = 1; public int foo() { return 0; } public int Aa() { return 0; } }");
+    change(myMain, "class A{ int x = B.C + new B().foo() + new B().Aa(); }");
+    makeAll().assertSuccessful();
+
+    change(myDependency, "public class B{ public static final int C = 1; public int foo() { return 0; } public int BB() { return 0; } }");
+    BuildResult result = makeAll();
+    result.assertFailed();
+    assertAbiUnchanged(result, false);
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java", "src/A.java");
+  }
+
+  public void testConstantChange() {
+    change(myDependency, "public class B{ public static final int C = 2; public int foo() { return 0; } }");
+    makeAll().assertSuccessful();
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java", "src/A.java");
+  }
+
+  public void testSignatureChange() {
+    change(myDependency, "public class B{ public static final int C = 1; public long foo() { return 0; } }");
+    makeAll().assertFailed();
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java", "src/A.java");
+  }
+
+  private static void assertAbiUnchanged(BuildResult result, boolean expected) {
+    boolean skipped = false;
+    for (BuildMessage message : result.getInfoMessages()) {
+      if (message instanceof ProgressMessage && message.getMessageText().startsWith("ABI of dep is not changed")) {
+        skipped = true;
+      }
+    }
+    if (expected) {
+      result.assertSuccessful();
+    }
+    assertEquals("dependency analysis skipped", expected, skipped);
+  }
+}
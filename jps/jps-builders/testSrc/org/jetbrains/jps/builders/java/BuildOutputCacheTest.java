@@ -0,0 +1,100 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.builders.java;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.PathUtil;
+import org.jetbrains.jps.api.GlobalOptions;
+import org.jetbrains.jps.builders.BuildResult;
+import org.jetbrains.jps.builders.CompileScopeTestBuilder;
+import org.jetbrains.jps.builders.JpsBuildTestCase;
+import org.jetbrains.jps.incremental.BuildStatistics;
+import org.jetbrains.jps.incremental.java.JavaBuilder;
+import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.BuildStatisticsMessage;
+import org.jetbrains.jps.model.module.JpsModule;
+
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.intellij.util.io.TestFileSystemBuilder.fs;
+
+public class BuildOutputCacheTest extends JpsBuildTestCase {
+  private File myCacheDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myCacheDir = FileUtil.createTempDirectory("build-cache", null);
+    System.setProperty(GlobalOptions.BUILD_CACHE_DIR_OPTION, myCacheDir.getAbsolutePath());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(GlobalOptions.BUILD_CACHE_DIR_OPTION);
+    FileUtil.delete(myCacheDir);
+    super.tearDown();
+  }
+
+  public void testRestoreClassesAndDependencies() {
+    String a = createFile("src/A.java", "class A{ { new B(); } }");
+    String b = createFile("depSrc/B.java", "public class B{}");
+    JpsModule main = addModule("main", PathUtil.getParentPath(a));
+    JpsModule dep = addModule("dep", PathUtil.getParentPath(b));
+    main.getDependenciesList().addModuleDependency(dep);
+    BuildResult result = doBuild(CompileScopeTestBuilder.rebuild().all());
+    result.assertSuccessful();
+    assertEquals(2, countEntries());
+    assertPhaseFiles(result, BuildStatistics.JAVAC_PHASE, 2);
+
+    result = doBuild(CompileScopeTestBuilder.rebuild().all());
+    result.assertSuccessful();
+    assertOutput(main, fs().file("A.class"));
+    assertOutput(dep, fs().file("B.class"));
+    assertEquals(2, countEntries());
+    assertPhaseFiles(result, BuildStatistics.JAVAC_PHASE, 0);
+    assertPhaseFiles(result, BuildStatistics.BUILD_CACHE_PHASE, 2);
+
+    change(b, "public class B{ public B(int i){} }");
+    doBuild(CompileScopeTestBuilder.make().all()).assertFailed();
+    assertCompiled(JavaBuilder.BUILDER_NAME, "depSrc/B.java", "src/A.java");
+  }
+
+  private static void assertPhaseFiles(BuildResult result, String phase, int expectedFiles) {
+    String report = null;
+    for (BuildMessage message : result.getInfoMessages()) {
+      if (message instanceof BuildStatisticsMessage) {
+        report = ((BuildStatisticsMessage)message).getMessageText();
+      }
+    }
+    assertNotNull(report);
+    Matcher matcher = Pattern.compile("\\{\"name\":\"" + phase + "\",\"timeMs\":\\d+,\"invocations\":\\d+,\"files\":(\\d+)}").matcher(report);
+    assertEquals(report, expectedFiles, matcher.find() ? Integer.parseInt(matcher.group(1)) : 0);
+  }
+
+  private int countEntries() {
+    int count = 0;
+    File[] dirs = myCacheDir.listFiles();
+    assertNotNull(dirs);
+    for (File dir : dirs) {
+      File[] entries = dir.listFiles();
+      assertNotNull(entries);
+      count += entries.length;
+    }
+    return count;
+  }
+}
@@ -15,6 +15,8 @@
  */
 package org.jetbrains.jps.builders.resources;
 
+import com.intellij.openapi.util.io.FileSystemUtil;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.PathUtil;
 import org.jetbrains.jps.builders.JpsBuildTestCase;
 import org.jetbrains.jps.model.JpsSimpleElement;
@@ -24,6 +26,10 @@ import org.jetbrains.jps.model.java.JpsJavaExtensionService;
 import org.jetbrains.jps.model.module.JpsModule;
 import org.jetbrains.jps.model.module.JpsModuleSourceRoot;
 import org.jetbrains.jps.model.module.JpsTypedModuleSourceRoot;
+import org.jetbrains.jps.util.JpsPathUtil;
+
+import java.io.File;
+import java.io.IOException;
 
 import static com.intellij.util.io.TestFileSystemItem.fs;
 
@@ -43,6 +49,47 @@ public class ResourceCopyingTest extends JpsBuildTestCase {
     rebuildAll();
     assertOutput(m, fs().file("a.xml"));
   }
+  public void testCopyChangedResource() {
+    String file = createFile("src/a.xml", "aaa");
+    JpsModule m = addModule("m", PathUtil.getParentPath(file));
+    rebuildAll();
+    assertOutput(m, fs().file("a.xml", "aaa"));
+
+    change(file, "bbb");
+    makeAll();
+    assertOutput(m, fs().file("a.xml", "bbb"));
+  }
+
+  public void testSkipUnchangedResource() {
+    String file = createFile("src/a.xml", "aaa");
+    JpsModule m = addModule("m", PathUtil.getParentPath(file));
+    rebuildAll();
+    File output = new File(getOutputDir(m), "a.xml");
+    long timestamp = FileSystemUtil.lastModified(output);
+
+    change(file);
+    makeAll();
+    assertOutput(m, fs().file("a.xml", "aaa"));
+    assertEquals(timestamp, FileSystemUtil.lastModified(output));
+  }
+
+  public void testRestoreModifiedOutput() throws IOException {
+    String file = createFile("src/a.xml", "aaa");
+    JpsModule m = addModule("m", PathUtil.getParentPath(file));
+    rebuildAll();
+
+    FileUtil.writeToFile(new File(getOutputDir(m), "a.xml"), "xxx");
+    change(file);
+    makeAll();
+    assertOutput(m, fs().file("a.xml", "aaa"));
+  }
+
+  private static File getOutputDir(JpsModule m) {
+    String outputUrl = JpsJavaExtensionService.getInstance().getOutputUrl(m, false);
+    assertNotNull(outputUrl);
+    return JpsPathUtil.urlToFile(outputUrl);
+  }
+
   public void testPackagePrefix() {
     String file = createFile("src/a.xml");
     JpsModule m = addModule("m", PathUtil.getParentPath(file));
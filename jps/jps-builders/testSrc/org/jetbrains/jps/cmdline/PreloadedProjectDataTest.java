@@ -0,0 +1,138 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.cmdline;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jps.builders.JpsBuildTestCase;
+import org.jetbrains.jps.builders.logging.BuildLoggingManager;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+public class PreloadedProjectDataTest extends JpsBuildTestCase {
+  private static final String MODULE_FILE_TEXT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                                                 "<module type=\"JAVA_MODULE\" version=\"4\">\n" +
+                                                 "  <component name=\"NewModuleRootManager\" inherit-compiler-output=\"true\">\n" +
+                                                 "    <content url=\"file://$MODULE_DIR$\">\n" +
+                                                 "      <sourceFolder url=\"file://$MODULE_DIR$/src\" isTestSource=\"false\" />\n" +
+                                                 "    </content>\n" +
+                                                 "    <orderEntry type=\"sourceFolder\" forTests=\"false\" />\n" +
+                                                 "  </component>\n" +
+                                                 "</module>\n";
+  private String myOptionsPath;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    createFile(".idea/misc.xml", "<project version=\"4\">\n" +
+                                 "  <component name=\"ProjectRootManager\" version=\"2\">\n" +
+                                 "    <output url=\"file://$PROJECT_DIR$/out\" />\n" +
+                                 "  </component>\n" +
+                                 "</project>\n");
+    createFile(".idea/modules.xml", "<project version=\"4\">\n" +
+                                    "  <component name=\"ProjectModuleManager\">\n" +
+                                    "    <modules>\n" +
+                                    "      <module fileurl=\"file://$PROJECT_DIR$/m/m.iml\" filepath=\"$PROJECT_DIR$/m/m.iml\" />\n" +
+                                    "    </modules>\n" +
+                                    "  </component>\n" +
+                                    "</project>\n");
+    createFile(".idea/workspace.xml", workspaceText(1));
+    createFile("m/m.iml", MODULE_FILE_TEXT);
+    createFile("options/other.xml", "<application/>");
+    myOptionsPath = getAbsolutePath("options");
+    setModifiedInPast(new File(getOrCreateProjectDir(), ".idea"), new File(getOrCreateProjectDir(), "m"), new File(myOptionsPath));
+    loadProject(getOrCreateProjectDir().getAbsolutePath());
+  }
+
+  public void testReuseUnchangedProject() {
+    PreloadedProjectData data = createPreloadedData();
+    try {
+      assertTrue(data.isValidFor(getProjectPath(), myOptionsPath, 1));
+      assertFalse(data.isValidFor(getProjectPath(), myOptionsPath, 2));
+    }
+    finally {
+      data.release();
+    }
+  }
+
+  public void testReuseAfterWorkspaceChange() {
+    PreloadedProjectData data = createPreloadedData();
+    try {
+      change(getAbsolutePath(".idea/workspace.xml"), workspaceText(2));
+      assertTrue(data.isValidFor(getProjectPath(), myOptionsPath, 1));
+    }
+    finally {
+      data.release();
+    }
+  }
+
+  public void testReloadAfterModuleFileChange() {
+    PreloadedProjectData data = createPreloadedData();
+    try {
+      change(getAbsolutePath("m/m.iml"), MODULE_FILE_TEXT.replace("src", "src2"));
+      assertFalse(data.isValidFor(getProjectPath(), myOptionsPath, 1));
+    }
+    finally {
+      data.release();
+    }
+  }
+
+  public void testReloadAfterProjectFileChange() {
+    PreloadedProjectData data = createPreloadedData();
+    try {
+      change(getAbsolutePath(".idea/misc.xml"), "<project version=\"4\"/>\n");
+      assertFalse(data.isValidFor(getProjectPath(), myOptionsPath, 1));
+    }
+    finally {
+      data.release();
+    }
+  }
+
+  public void testModuleFileModifiedDuringLoading() {
+    long loadingStarted = System.currentTimeMillis();
+    change(getAbsolutePath("m/m.iml"), MODULE_FILE_TEXT.replace("src", "src2"));
+    assertNull(PreloadedProjectData.computeModulesStamp(myProject, loadingStarted));
+  }
+
+  private PreloadedProjectData createPreloadedData() {
+    long projectStamp = PreloadedProjectData.computeProjectStamp(getProjectPath(), myOptionsPath);
+    Long modulesStamp = PreloadedProjectData.computeModulesStamp(myProject, System.currentTimeMillis());
+    assertNotNull(modulesStamp);
+    ProjectDescriptor descriptor = createProjectDescriptor(BuildLoggingManager.DEFAULT);
+    return new PreloadedProjectData(getProjectPath(), myOptionsPath, descriptor, 0, projectStamp + modulesStamp);
+  }
+
+  private String getProjectPath() {
+    return FileUtil.toSystemIndependentName(getOrCreateProjectDir().getAbsolutePath());
+  }
+
+  private static String workspaceText(int caretLine) {
+    return "<project version=\"4\">\n" +
+           "  <component name=\"FileEditorManager\">\n" +
+           "    <caret line=\"" + caretLine + "\" />\n" +
+           "  </component>\n" +
+           "</project>\n";
+  }
+
+  private static void setModifiedInPast(File... dirs) {
+    long timestamp = System.currentTimeMillis() - 60 * 1000;
+    for (File dir : dirs) {
+      for (File file : FileUtil.findFilesByMask(Pattern.compile(".*"), dir)) {
+        assertTrue(file.setLastModified(timestamp));
+      }
+    }
+  }
+}
@@ -116,6 +116,34 @@ public class ArtifactBuilderTest extends ArtifactBuilderTestCase {
       );
   }
 
+  public void testIndependentArchives() {
+    final JpsArtifact a = addArtifact(
+      root()
+        .archive("a.jar")
+          .archive("inner.jar")
+            .fileCopy(createFile("a/x.txt", "x"))
+          .end()
+          .fileCopy(createFile("a/y.txt", "y"))
+        .end()
+        .archive("b.jar")
+          .fileCopy(createFile("b/z.txt", "z"))
+          .extractedDir(getJUnitJarPath(), "/junit/textui/")
+    );
+    buildAll();
+    assertOutput(a, fs()
+      .archive("a.jar")
+        .archive("inner.jar")
+          .file("x.txt", "x")
+        .end()
+        .file("y.txt", "y")
+      .end()
+      .archive("b.jar")
+        .file("z.txt", "z")
+        .file("ResultPrinter.class")
+        .file("TestRunner.class")
+    );
+  }
+
   public void testIncludedArtifact() {
     final JpsArtifact included = addArtifact("included",
                                           root()
@@ -78,6 +78,28 @@ public class IncrementalArtifactBuildingTest extends ArtifactBuilderTestCase {
     buildAllAndAssertUpToDate();
   }
 
+  public void testRepackArchiveWithUnchangedEntries() {
+    String file1 = createFile("dir/a.txt", "aaa");
+    createFile("dir/b.txt", "bbb");
+    String file2 = createFile("dir/sub/c.txt", "ccc");
+    final JpsArtifact a = addArtifact(archive("a.jar").parentDirCopy(file1).extractedDir(getJUnitJarPath(), "/junit/textui/"));
+    buildAll();
+    assertOutput(a, fs().archive("a.jar").file("a.txt", "aaa").file("b.txt", "bbb").dir("sub").file("c.txt", "ccc").end()
+                          .file("ResultPrinter.class").file("TestRunner.class"));
+
+    change(file1, "xxx");
+    buildAll();
+    assertOutput(a, fs().archive("a.jar").file("a.txt", "xxx").file("b.txt", "bbb").dir("sub").file("c.txt", "ccc").end()
+                          .file("ResultPrinter.class").file("TestRunner.class"));
+    buildAllAndAssertUpToDate();
+
+    change(file2, "yyy");
+    buildAll();
+    assertOutput(a, fs().archive("a.jar").file("a.txt", "xxx").file("b.txt", "bbb").dir("sub").file("c.txt", "yyy").end()
+                          .file("ResultPrinter.class").file("TestRunner.class"));
+    buildAllAndAssertUpToDate();
+  }
+
   public void testRemoveDeletedFileFromArchive() {
     String file1 = createFile("dir/a.txt");
     createFile("dir/b.txt");
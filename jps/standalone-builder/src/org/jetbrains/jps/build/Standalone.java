@@ -15,25 +15,31 @@
  */
 package org.jetbrains.jps.build;
 
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.ParameterizedRunnable;
 import com.sampullara.cli.Args;
 import com.sampullara.cli.Argument;
 import org.jetbrains.jps.api.BuildType;
 import org.jetbrains.jps.api.CanceledStatus;
+import org.jetbrains.jps.api.GlobalOptions;
 import org.jetbrains.jps.builders.java.JavaModuleBuildTargetType;
 import org.jetbrains.jps.cmdline.BuildRunner;
 import org.jetbrains.jps.cmdline.JpsModelLoader;
 import org.jetbrains.jps.cmdline.JpsModelLoaderImpl;
 import org.jetbrains.jps.cmdline.ProjectDescriptor;
+import org.jetbrains.jps.incremental.BuildStatistics;
 import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.Utils;
 import org.jetbrains.jps.incremental.artifacts.ArtifactBuildTargetType;
 import org.jetbrains.jps.incremental.fs.BuildFSState;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.BuildStatisticsMessage;
 import org.jetbrains.jps.model.JpsModel;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 import static org.jetbrains.jps.api.CmdlineRemoteProto.Message.ControllerMessage.ParametersMessage.TargetTypeBuildScope;
@@ -61,6 +67,12 @@ public class Standalone {
   @Argument(value = "i", description = "Build incrementally")
   public boolean incremental;
 
+  @Argument(value = "build-cache", prefix = "--", description = "Path to directory to store compiled classes to be reused by subsequent builds")
+  public String buildCachePath;
+
+  @Argument(value = "report", prefix = "--", description = "Path to file to write build statistics to (CSV if the file name ends with '.csv', JSON otherwise)")
+  public String reportPath;
+
   public static void main(String[] args) {
     Standalone instance = new Standalone();
     List<String> projectPaths;
@@ -129,15 +141,38 @@ public class Standalone {
       return;
     }
 
+    if (buildCachePath != null) {
+      System.setProperty(GlobalOptions.BUILD_CACHE_DIR_OPTION, new File(buildCachePath).getAbsolutePath());
+    }
+
     long start = System.currentTimeMillis();
+    ConsoleMessageHandler messageHandler = new ConsoleMessageHandler();
     try {
-      runBuild(loader, dataStorageRoot, !incremental, modulesSet, artifactsList, true, new ConsoleMessageHandler());
+      runBuild(loader, dataStorageRoot, !incremental, modulesSet, artifactsList, true, messageHandler);
     }
     catch (Throwable t) {
       System.err.println("Internal error: " + t.getMessage());
       t.printStackTrace();
     }
     System.out.println("Build finished in " + Utils.formatDuration(System.currentTimeMillis() - start));
+    if (reportPath != null) {
+      writeReport(messageHandler.myStatistics, new File(reportPath));
+    }
+  }
+
+  private static void writeReport(BuildStatistics statistics, File reportFile) {
+    if (statistics == null) {
+      System.err.println("Build statistics are not available");
+      return;
+    }
+    try {
+      boolean csv = StringUtil.endsWithIgnoreCase(reportFile.getName(), ".csv");
+      FileUtil.writeToFile(reportFile, csv ? statistics.toCsv() : statistics.toJson());
+      System.out.println("Build statistics written to " + reportFile.getAbsolutePath());
+    }
+    catch (IOException e) {
+      System.err.println("Cannot write build statistics to " + reportFile.getAbsolutePath() + ": " + e.getMessage());
+    }
   }
 
   public static void runBuild(JpsModelLoader loader, final File dataStorageRoot, boolean forceBuild, Set<String> modulesSet,
@@ -169,8 +204,14 @@ public class Standalone {
   }
 
   private static class ConsoleMessageHandler implements MessageHandler {
+    private BuildStatistics myStatistics;
+
     @Override
     public void processMessage(BuildMessage msg) {
+      if (msg instanceof BuildStatisticsMessage) {
+        myStatistics = ((BuildStatisticsMessage)msg).getStatistics();
+        return;
+      }
       String messageText = msg.getMessageText();
       if (messageText.isEmpty()) return;
       if (msg.getKind() == BuildMessage.Kind.ERROR) {
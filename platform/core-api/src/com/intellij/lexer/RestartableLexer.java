@@ -0,0 +1,37 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.lexer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implemented by lexers which can be restarted in the middle of a text, so that after a change only the changed part of a file
+ * needs to be lexed again when the file is reparsed.
+ */
+public interface RestartableLexer {
+  /**
+   * @return true if lexing started at a token in the given state with {@link Lexer#start(CharSequence, int, int, int)} produces
+   * the same tokens as lexing the text from its beginning does
+   */
+  boolean isRestartableState(int state);
+
+  /**
+   * @return object describing the settings the lexer was created with (e.g. a language level); tokens produced by two lexers
+   * of the same class may be reused by each other only if their configurations are equal
+   */
+  @NotNull
+  Object getConfiguration();
+}
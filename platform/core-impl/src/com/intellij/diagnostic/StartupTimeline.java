@@ -0,0 +1,160 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.diagnostic;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.extensions.impl.ExtensionInstantiationStatistics;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.lang.UrlClassLoader;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records wall time of component initialization and startup activities, together with the thread they ran in, the time this thread
+ * spent in loading classes by IDE class loaders (see {@link UrlClassLoader#getCurrentThreadLoadingTime()}) and the number of classes
+ * loaded by the JVM meanwhile, and exports them as JSON. Recording is enabled by the <code>idea.startup.timeline</code> system property
+ * which specifies the file to export to. Events of components created by constructor injection of other components are nested
+ * into events of the latter. Time spent on instantiating extensions is exported per extension point and per plugin too.
+ */
+public class StartupTimeline {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.diagnostic.StartupTimeline");
+  @NonNls private static final String TIMELINE_PATH = System.getProperty("idea.startup.timeline");
+  private static final long ourStart = System.nanoTime();
+  private static final List<Event> ourEvents = new ArrayList<Event>();
+  private static volatile boolean ourEnabled = TIMELINE_PATH != null;
+
+  @NonNls public static final String COMPONENT = "component";
+  @NonNls public static final String ACTIVITY = "activity";
+
+  private StartupTimeline() {
+  }
+
+  public static boolean isEnabled() {
+    return ourEnabled;
+  }
+
+  @TestOnly
+  static void setEnabled(boolean enabled) {
+    ourEnabled = enabled;
+    UrlClassLoader.setMeasureLoadingTime(enabled);
+  }
+
+  /**
+   * @return started event which should be {@link Event#end() ended} when the measured code finishes, or null if recording is disabled
+   */
+  @Nullable
+  public static Event start(@NotNull String category, @NotNull String name) {
+    return isEnabled() ? new Event(category, name) : null;
+  }
+
+  public static class Event {
+    private final String myCategory;
+    private final String myName;
+    private final String myThread;
+    private final long myStart;
+    private final long myLoadedClassesAtStart;
+    private final long myClassLoadingTimeAtStart;
+    private long myEnd;
+    private long myLoadedClasses;
+    private long myClassLoadingTime;
+
+    private Event(@NotNull String category, @NotNull String name) {
+      myCategory = category;
+      myName = name;
+      myThread = Thread.currentThread().getName();
+      myLoadedClassesAtStart = getTotalLoadedClassCount();
+      myClassLoadingTimeAtStart = UrlClassLoader.getCurrentThreadLoadingTime();
+      myStart = System.nanoTime();
+    }
+
+    public void end() {
+      myEnd = System.nanoTime();
+      myLoadedClasses = getTotalLoadedClassCount() - myLoadedClassesAtStart;
+      myClassLoadingTime = UrlClassLoader.getCurrentThreadLoadingTime() - myClassLoadingTimeAtStart;
+      synchronized (ourEvents) {
+        ourEvents.add(this);
+      }
+    }
+  }
+
+  /**
+   * Writes all events recorded so far to the file specified by the <code>idea.startup.timeline</code> property
+   */
+  public static void export() {
+    if (TIMELINE_PATH == null) return;
+    try {
+      FileUtil.writeToFile(new File(TIMELINE_PATH), toJson());
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  @NotNull
+  static String toJson() {
+    List<Event> events;
+    synchronized (ourEvents) {
+      events = new ArrayList<Event>(ourEvents);
+    }
+    StringBuilder builder = new StringBuilder();
+    builder.append("{\"events\": [");
+    for (int i = 0; i < events.size(); i++) {
+      Event event = events.get(i);
+      builder.append(i == 0 ? "\n" : ",\n");
+      builder.append("  {\"category\": \"").append(StringUtil.escapeStringCharacters(event.myCategory)).append('"');
+      builder.append(", \"name\": \"").append(StringUtil.escapeStringCharacters(event.myName)).append('"');
+      builder.append(", \"thread\": \"").append(StringUtil.escapeStringCharacters(event.myThread)).append('"');
+      builder.append(", \"start\": ").append((event.myStart - ourStart) / 1000);
+      builder.append(", \"duration\": ").append((event.myEnd - event.myStart) / 1000);
+      builder.append(", \"classLoading\": ").append(event.myClassLoadingTime / 1000);
+      builder.append(", \"loadedClasses\": ").append(event.myLoadedClasses);
+      builder.append('}');
+    }
+    builder.append("\n],\n\"extensionPoints\": [");
+    appendExtensionStatistics(builder, ExtensionInstantiationStatistics.getByExtensionPoint());
+    builder.append("\n],\n\"plugins\": [");
+    appendExtensionStatistics(builder, ExtensionInstantiationStatistics.getByPlugin());
+    builder.append("\n]}\n");
+    return builder.toString();
+  }
+
+  private static void appendExtensionStatistics(@NotNull StringBuilder builder,
+                                                @NotNull List<ExtensionInstantiationStatistics.Entry> entries) {
+    for (int i = 0; i < entries.size(); i++) {
+      ExtensionInstantiationStatistics.Entry entry = entries.get(i);
+      builder.append(i == 0 ? "\n" : ",\n");
+      builder.append("  {\"name\": \"").append(StringUtil.escapeStringCharacters(entry.getName())).append('"');
+      builder.append(", \"count\": ").append(entry.getCount());
+      builder.append(", \"duration\": ").append(entry.getNanos() / 1000);
+      builder.append('}');
+    }
+  }
+
+  private static long getTotalLoadedClassCount() {
+    ClassLoadingMXBean bean = ManagementFactory.getClassLoadingMXBean();
+    return bean.getTotalLoadedClassCount();
+  }
+}
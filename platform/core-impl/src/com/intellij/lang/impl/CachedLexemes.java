@@ -0,0 +1,122 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.lang.impl;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.lexer.RestartableLexer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolder;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.reference.SoftReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Tokens produced by the last lexing of the whole text of a file, together with the lexer state at each token start. When the file is
+ * parsed again after a change, {@link PsiBuilderImpl} copies tokens before and after the changed range from here and runs the lexer over
+ * the changed part only. The lexer is restarted only at tokens in a state its {@link RestartableLexer} reports as restartable, the same
+ * way the editor highlighter does it. Only the length and a hash of the lexed text are kept; the text itself is taken from the tree
+ * being reparsed.
+ */
+class CachedLexemes {
+  private static final Key<SoftReference<CachedLexemes>> CACHED_LEXEMES_KEY = Key.create("CACHED_LEXEMES_KEY");
+
+  private final Class<? extends Lexer> myLexerClass;
+  private final Object myConfiguration;
+  private final int myTextLength;
+  private final long myTextHash;
+  private final int[] myStarts;
+  private final IElementType[] myTypes;
+  private final int[] myStates;
+  private final int myCount;
+
+  CachedLexemes(@NotNull Lexer lexer, @NotNull CharSequence text, int[] starts, IElementType[] types, int[] states, int count) {
+    myLexerClass = lexer.getClass();
+    myConfiguration = ((RestartableLexer)lexer).getConfiguration();
+    myTextLength = text.length();
+    myTextHash = hash(text);
+    myStarts = Arrays.copyOf(starts, count + 1);
+    myTypes = Arrays.copyOf(types, count);
+    myStates = Arrays.copyOf(states, count);
+    myCount = count;
+  }
+
+  /**
+   * @return tokens stored in the holder if they were produced from the given text by a lexer of the same class and configuration
+   */
+  @Nullable
+  static CachedLexemes get(@NotNull UserDataHolder holder, @NotNull Lexer lexer, @NotNull CharSequence text) {
+    SoftReference<CachedLexemes> ref = holder.getUserData(CACHED_LEXEMES_KEY);
+    CachedLexemes lexemes = ref == null ? null : ref.get();
+    if (lexemes == null || lexemes.myLexerClass != lexer.getClass() ||
+        !lexemes.myConfiguration.equals(((RestartableLexer)lexer).getConfiguration())) {
+      return null;
+    }
+    return lexemes.myTextLength == text.length() && lexemes.myTextHash == hash(text) ? lexemes : null;
+  }
+
+  void store(@NotNull UserDataHolder holder) {
+    holder.putUserData(CACHED_LEXEMES_KEY, new SoftReference<CachedLexemes>(this));
+  }
+
+  private static long hash(@NotNull CharSequence text) {
+    // 64-bit FNV-1a, String.hashCode() collides too easily to be trusted for text identity
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  int getCount() {
+    return myCount;
+  }
+
+  int getStart(int index) {
+    return myStarts[index];
+  }
+
+  IElementType getType(int index) {
+    return myTypes[index];
+  }
+
+  int getState(int index) {
+    return myStates[index];
+  }
+
+  /**
+   * @return index of the last token in a restartable state which starts before the given offset, or 0 if there is no such token
+   */
+  int getRestartIndex(int offset, @NotNull RestartableLexer lexer) {
+    int index = Arrays.binarySearch(myStarts, 0, myCount, offset);
+    if (index < 0) index = -index - 2;
+    index = Math.min(index, myCount - 1);
+    while (index > 0 && (myStarts[index] >= offset || !lexer.isRestartableState(myStates[index]))) {
+      index--;
+    }
+    return Math.max(index, 0);
+  }
+
+  /**
+   * @return index of the token which starts at the given offset in a restartable state, or -1 if there is no such token
+   */
+  int findRestartableToken(int offset, @NotNull RestartableLexer lexer) {
+    int index = Arrays.binarySearch(myStarts, 0, myCount, offset);
+    return index >= 0 && lexer.isRestartableState(myStates[index]) ? index : -1;
+  }
+}
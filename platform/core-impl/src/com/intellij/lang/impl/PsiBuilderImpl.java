@@ -18,6 +18,7 @@ package com.intellij.lang.impl;
 
 import com.intellij.lang.*;
 import com.intellij.lexer.Lexer;
+import com.intellij.lexer.RestartableLexer;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
@@ -25,7 +26,10 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.UserDataHolder;
 import com.intellij.openapi.util.UserDataHolderBase;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiErrorElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.TokenType;
@@ -36,6 +40,7 @@ import com.intellij.psi.impl.source.text.DiffLog;
 import com.intellij.psi.impl.source.tree.*;
 import com.intellij.psi.text.BlockSupport;
 import com.intellij.psi.tree.*;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.CharTable;
 import com.intellij.util.ExceptionUtil;
 import com.intellij.util.ThreeState;
@@ -92,6 +97,8 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
 
   private final ASTNode myOriginalTree;
   private final MyTreeStructure myParentLightTree;
+  // holds lexemes of the previous parse of the whole file text, null if the builder parses a part of a file
+  private final UserDataHolder myLexemesCacheHolder;
 
   private static TokenSet ourAnyLanguageWhitespaceTokens = TokenSet.EMPTY;
 
@@ -161,6 +168,19 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
                         @NotNull final CharSequence text,
                         @Nullable ASTNode originalTree,
                         @Nullable MyTreeStructure parentLightTree) {
+    this(project, containingFile, whiteSpaces, comments, lexer, charTable, text, originalTree, parentLightTree, null);
+  }
+
+  private PsiBuilderImpl(Project project,
+                         PsiFile containingFile,
+                         @NotNull TokenSet whiteSpaces,
+                         @NotNull TokenSet comments,
+                         @NotNull Lexer lexer,
+                         CharTable charTable,
+                         @NotNull final CharSequence text,
+                         @Nullable ASTNode originalTree,
+                         @Nullable MyTreeStructure parentLightTree,
+                         @Nullable UserDataHolder lexemesCacheHolder) {
     myProject = project;
     myFile = containingFile;
 
@@ -173,6 +193,7 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
     myCharTable = charTable;
     myOriginalTree = originalTree;
     myParentLightTree = parentLightTree;
+    myLexemesCacheHolder = lexemesCacheHolder;
 
     cacheLexemes();
   }
@@ -182,8 +203,9 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
                         @NotNull final Lexer lexer,
                         @NotNull final ASTNode chameleon,
                         @NotNull final CharSequence text) {
-    this(project, SharedImplUtil.getContainingFile(chameleon), parserDefinition, lexer, SharedImplUtil.findCharTableByTree(chameleon), text,
-         chameleon.getUserData(BlockSupport.TREE_TO_BE_REPARSED), null);
+    this(project, SharedImplUtil.getContainingFile(chameleon), parserDefinition.getWhitespaceTokens(), parserDefinition.getCommentTokens(),
+         lexer, SharedImplUtil.findCharTableByTree(chameleon), text, chameleon.getUserData(BlockSupport.TREE_TO_BE_REPARSED), null,
+         getLexemesCacheHolder(chameleon));
   }
 
   public PsiBuilderImpl(@NotNull final Project project,
@@ -195,15 +217,54 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
          null, ((LazyParseableToken)chameleon).myParent);
   }
 
+  @Nullable
+  private static UserDataHolder getLexemesCacheHolder(@NotNull ASTNode chameleon) {
+    if (!(chameleon instanceof FileElement)) return null;
+    PsiFile file = SharedImplUtil.getContainingFile(chameleon);
+    if (file == null) return null;
+    // a copy of the file made for reparse shares the cache with the original;
+    // only files with a document are cached, others are unlikely to be reparsed
+    PsiFile original = file.getOriginalFile();
+    return PsiDocumentManager.getInstance(original.getProject()).getCachedDocument(original) != null ? original : null;
+  }
+
   private void cacheLexemes() {
-    int approxLexCount = Math.max(10, myText.length() / 5);
+    final RestartableLexer restartable =
+      myLexemesCacheHolder != null && myLexer instanceof RestartableLexer ? (RestartableLexer)myLexer : null;
+    // cached tokens are reused only if they were produced from the text of the tree being reparsed
+    final CharSequence previousText = restartable != null && myOriginalTree != null ? myOriginalTree.getChars() : null;
+    final CachedLexemes previous = previousText != null ? CachedLexemes.get(myLexemesCacheHolder, myLexer, previousText) : null;
+    int approxLexCount = Math.max(10, previous != null ? previous.getCount() + 10 : myText.length() / 5);
 
     myLexStarts = new int[approxLexCount];
     myLexTypes = new IElementType[approxLexCount];
+    int[] states = restartable != null ? new int[approxLexCount] : null;
 
-    myLexer.start(myText);
+    int unchangedSuffixStart = myText.length();
+    int shift = 0;
     int i = 0;
-    int offset = 0;
+    if (previous != null) {
+      // copy tokens before the change and restart the lexer from the last token in a restartable state before it
+      int prefix = StringUtil.commonPrefixLength(previousText, myText);
+      int suffix = Math.min(StringUtil.commonSuffixLength(previousText, myText), Math.min(previousText.length(), myText.length()) - prefix);
+      unchangedSuffixStart = myText.length() - suffix;
+      shift = previousText.length() - myText.length();
+
+      i = previous.getRestartIndex(prefix, restartable);
+      for (int j = 0; j < i; j++) {
+        myLexStarts[j] = previous.getStart(j);
+        myLexTypes[j] = previous.getType(j);
+        states[j] = previous.getState(j);
+      }
+    }
+    if (i == 0) {
+      myLexer.start(myText);
+    }
+    else {
+      myLexer.start(myText, previous.getStart(i), myText.length(), previous.getState(i));
+    }
+
+    int offset = i == 0 ? 0 : myLexStarts[i - 1];
     while (true) {
       ProgressIndicatorProvider.checkCanceled();
       IElementType type = myLexer.getTokenType();
@@ -211,8 +272,27 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
 
       if (i >= myLexTypes.length - 1) {
         resizeLexemes(i * 3 / 2);
+        if (states != null) states = ArrayUtil.realloc(states, myLexTypes.length);
       }
       int tokenStart = myLexer.getTokenStart();
+      int state = states != null ? myLexer.getState() : 0;
+      if (previous != null && tokenStart >= unchangedSuffixStart && restartable.isRestartableState(state)) {
+        // the lexer has come to the unchanged text in a restartable state, the rest of the tokens are the same as before
+        int index = previous.findRestartableToken(tokenStart + shift, restartable);
+        if (index >= 0 && previous.getState(index) == state) {
+          int count = previous.getCount();
+          if (i + count - index >= myLexTypes.length - 1) {
+            resizeLexemes(i + count - index + 1);
+            states = ArrayUtil.realloc(states, myLexTypes.length);
+          }
+          for (int j = index; j < count; j++, i++) {
+            myLexStarts[i] = previous.getStart(j) - shift;
+            myLexTypes[i] = previous.getType(j);
+            states[i] = previous.getState(j);
+          }
+          break;
+        }
+      }
       if (tokenStart < offset) {
         final StringBuilder sb = new StringBuilder();
         final IElementType tokenType = myLexer.getTokenType();
@@ -232,6 +312,7 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
       }
       myLexStarts[i] = offset = tokenStart;
       myLexTypes[i] = type;
+      if (states != null) states[i] = state;
       i++;
       myLexer.advance();
     }
@@ -240,6 +321,10 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
 
     myLexemeCount = i;
     clearCachedTokenType();
+
+    if (restartable != null) {
+      new CachedLexemes(myLexer, myText, myLexStarts, myLexTypes, states, i).store(myLexemesCacheHolder);
+    }
   }
 
   @Override
@@ -1069,7 +1154,9 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
     DiffLog diffLog = new DiffLog();
     final ConvertFromTokensToASTBuilder builder = new ConvertFromTokensToASTBuilder(newRoot, diffLog);
     final MyTreeStructure treeStructure = new MyTreeStructure(newRoot, null);
-    final MyComparator comparator = new MyComparator(getUserDataUnprotected(CUSTOM_COMPARATOR), treeStructure);
+    final int unchangedPrefix = StringUtil.commonPrefixLength(oldRoot.getChars(), myText);
+    final MyComparator comparator = new MyComparator(getUserDataUnprotected(CUSTOM_COMPARATOR), treeStructure, oldRoot.getStartOffset(),
+                                                     unchangedPrefix);
 
     final ProgressIndicator indicator = ProgressIndicatorProvider.getGlobalProgressIndicator();
     BlockSupportImpl.diffTrees(oldRoot, builder, comparator, treeStructure, indicator);
@@ -1318,11 +1405,21 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
   private static class MyComparator implements ShallowNodeComparator<ASTNode, LighterASTNode> {
     private final TripleFunction<ASTNode, LighterASTNode, FlyweightCapableTreeStructure<LighterASTNode>, ThreeState> custom;
     private final MyTreeStructure myTreeStructure;
+    private final int myOldRootStart;
+    private final int myUnchangedPrefix;
 
+    /**
+     * @param oldRootStart    start offset of the old tree root in its file, the offsets of the new tree are relative to the root
+     * @param unchangedPrefix length of the text which is the same in the old and the new tree
+     */
     private MyComparator(TripleFunction<ASTNode, LighterASTNode, FlyweightCapableTreeStructure<LighterASTNode>, ThreeState> custom,
-                         MyTreeStructure treeStructure) {
+                         MyTreeStructure treeStructure,
+                         int oldRootStart,
+                         int unchangedPrefix) {
       this.custom = custom;
       myTreeStructure = treeStructure;
+      myOldRootStart = oldRootStart;
+      myUnchangedPrefix = unchangedPrefix;
     }
 
     @Override
@@ -1371,12 +1468,25 @@ public class PsiBuilderImpl extends UserDataHolderBase implements PsiBuilder {
         }
       }
       if (custom != null) {
-        return custom.fun(oldNode, newNode, myTreeStructure);
+        final ThreeState customResult = custom.fun(oldNode, newNode, myTreeStructure);
+        if (customResult != ThreeState.UNSURE) return customResult;
+      }
+
+      if (newNode instanceof StartMarker && isInUnchangedPrefix(oldNode, (StartMarker)newNode)) {
+        // the same text at the same position is parsed into the same subtree, no need to compare it node by node
+        return ThreeState.YES;
       }
 
       return ThreeState.UNSURE;
     }
 
+    private boolean isInUnchangedPrefix(ASTNode oldNode, StartMarker newNode) {
+      int newEnd = newNode.getEndOffset();
+      if (newEnd > myUnchangedPrefix) return false;
+      int newStart = newNode.getStartOffset();
+      return oldNode.getTextLength() == newEnd - newStart && oldNode.getStartOffset() - myOldRootStart == newStart;
+    }
+
     @Override
     public boolean typesEqual(final ASTNode n1, final LighterASTNode n2) {
       if (n1 instanceof PsiWhiteSpaceImpl) {
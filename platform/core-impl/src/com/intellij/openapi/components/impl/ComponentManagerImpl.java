@@ -16,6 +16,7 @@
 package com.intellij.openapi.components.impl;
 
 import com.intellij.diagnostic.PluginException;
+import com.intellij.diagnostic.StartupTimeline;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.components.ex.ComponentManagerEx;
@@ -564,6 +565,7 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
             Object componentInstance = null;
             try {
               long startTime = myInitialized ? 0 : System.nanoTime();
+              StartupTimeline.Event event = myInitialized ? null : StartupTimeline.start(StartupTimeline.COMPONENT, componentKey);
               componentInstance = super.getComponentInstance(picoContainer);
 
               if (!myInitialized) {
@@ -580,6 +582,7 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
                   myInitializing = true;
                   myComponentsRegistry.registerComponentInstance(componentInstance);
                   initComponent(componentInstance);
+                  if (event != null) event.end();
                   long endTime = System.nanoTime();
                   long ms = (endTime - startTime) / 1000000;
                   if (ms > 10) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2009 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -97,15 +97,16 @@ public class BlockSupportImpl extends BlockSupport {
 
     final int textLength = treeFileElement.getTextLength() + lengthShift;
 
+    Language baseLanguage = file.getViewProvider().getBaseLanguage();
     if (treeFileElement.getElementType() instanceof ITemplateDataElementType || isTooDeep(file)) {
       // unable to perform incremental reparse for template data in JSP, or in exceptionally deep trees
+      ReparseStatistics.fullReparse(baseLanguage, textLength);
       return makeFullParse(treeFileElement, newFileText, textLength, fileImpl, indicator);
     }
 
     final ASTNode leafAtStart = treeFileElement.findLeafElementAt(startOffset);
     final ASTNode leafAtEnd = treeFileElement.findLeafElementAt(endOffset);
     ASTNode node = leafAtStart != null && leafAtEnd != null ? TreeUtil.findCommonParent(leafAtStart, leafAtEnd) : treeFileElement;
-    Language baseLanguage = file.getViewProvider().getBaseLanguage();
 
     while (node != null && !(node instanceof FileElement)) {
       IElementType elementType = node.getElementType();
@@ -133,6 +134,7 @@ public class BlockSupportImpl extends BlockSupport {
                 LOG.error("Inconsistent reparse: " + details + " type=" + elementType);
               }
 
+              ReparseStatistics.incrementalReparse(baseLanguage);
               return mergeTrees(fileImpl, node, chameleon, indicator);
             }
           }
@@ -141,6 +143,7 @@ public class BlockSupportImpl extends BlockSupport {
       node = node.getTreeParent();
     }
 
+    ReparseStatistics.fullReparse(baseLanguage, textLength);
     return makeFullParse(node, newFileText, textLength, fileImpl, indicator);
   }
 
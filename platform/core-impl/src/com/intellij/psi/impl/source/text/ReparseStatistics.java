@@ -0,0 +1,66 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.impl.source.text;
+
+import com.intellij.lang.Language;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts reparses performed by {@link BlockSupportImpl} on document commit for each language: incremental ones, where only a reparseable
+ * block containing the change was parsed again, and full ones, where the whole file was.
+ */
+public class ReparseStatistics {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.psi.impl.source.text.ReparseStatistics");
+
+  private static final ConcurrentMap<Language, AtomicInteger> ourIncrementalReparses = ContainerUtil.newConcurrentMap();
+  private static final ConcurrentMap<Language, AtomicInteger> ourFullReparses = ContainerUtil.newConcurrentMap();
+
+  private ReparseStatistics() {
+  }
+
+  static void incrementalReparse(@NotNull Language language) {
+    getCounter(ourIncrementalReparses, language).incrementAndGet();
+  }
+
+  static void fullReparse(@NotNull Language language, int textLength) {
+    int count = getCounter(ourFullReparses, language).incrementAndGet();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Full reparse of " + textLength + " chars in " + language + " (" + count + " full, " +
+                getIncrementalReparseCount(language) + " incremental so far)");
+    }
+  }
+
+  public static int getIncrementalReparseCount(@NotNull Language language) {
+    AtomicInteger counter = ourIncrementalReparses.get(language);
+    return counter == null ? 0 : counter.get();
+  }
+
+  public static int getFullReparseCount(@NotNull Language language) {
+    AtomicInteger counter = ourFullReparses.get(language);
+    return counter == null ? 0 : counter.get();
+  }
+
+  private static AtomicInteger getCounter(@NotNull ConcurrentMap<Language, AtomicInteger> counters, @NotNull Language language) {
+    AtomicInteger counter = counters.get(language);
+    return counter != null ? counter : ConcurrencyUtil.cacheOrGet(counters, language, new AtomicInteger());
+  }
+}
@@ -20,11 +20,13 @@ import com.intellij.util.pico.AssignableToComponentAdapter;
 import com.intellij.util.xmlb.XmlSerializer;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.picocontainer.*;
-import org.picocontainer.defaults.AssignabilityRegistrationException;
-import org.picocontainer.defaults.CachingComponentAdapter;
-import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
-import org.picocontainer.defaults.NotConcreteRegistrationException;
+import org.picocontainer.defaults.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 
 /**
  * @author Alexander Kireyev
@@ -156,12 +158,30 @@ public class ExtensionComponentAdapter implements LoadingOrder.Orderable, Assign
 
   private synchronized ComponentAdapter getDelegate() {
     if (myDelegate == null) {
-      myDelegate = new CachingComponentAdapter(new ConstructorInjectionComponentAdapter(getComponentKey(), loadClass(myImplementationClassName), null, true));
+      Class implementationClass = loadClass(myImplementationClassName);
+      Constructor defaultConstructor = getPublicDefaultConstructor(implementationClass);
+      ComponentAdapter adapter = defaultConstructor != null
+                                 ? new DefaultConstructorComponentAdapter(getComponentKey(), defaultConstructor)
+                                 : new ConstructorInjectionComponentAdapter(getComponentKey(), implementationClass, null, true);
+      myDelegate = new CachingComponentAdapter(adapter);
     }
 
     return myDelegate;
   }
 
+  /**
+   * Most extensions are public beans having the only no-arg constructor, there is nothing to inject into them, so they are created
+   * directly instead of looking for a satisfiable constructor via the pico container.
+   */
+  @Nullable
+  private static Constructor getPublicDefaultConstructor(@NotNull Class implementationClass) {
+    int modifiers = implementationClass.getModifiers();
+    if (!Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers)) return null;
+    Constructor[] constructors = implementationClass.getDeclaredConstructors();
+    if (constructors.length != 1 || constructors[0].getParameterTypes().length != 0) return null;
+    return Modifier.isPublic(constructors[0].getModifiers()) ? constructors[0] : null;
+  }
+
   @Override
   public boolean isAssignableTo(Class aClass) {
     return aClass.getName().equals(myImplementationClassName);
@@ -171,4 +191,30 @@ public class ExtensionComponentAdapter implements LoadingOrder.Orderable, Assign
   public String getAssignableToClassName() {
     return myImplementationClassName;
   }
+
+  private static class DefaultConstructorComponentAdapter extends AbstractComponentAdapter {
+    private final Constructor myConstructor;
+
+    private DefaultConstructorComponentAdapter(@NotNull Object componentKey, @NotNull Constructor constructor) {
+      super(componentKey, constructor.getDeclaringClass());
+      myConstructor = constructor;
+    }
+
+    @Override
+    public Object getComponentInstance(PicoContainer container) throws PicoInitializationException, PicoIntrospectionException {
+      try {
+        return myConstructor.newInstance();
+      }
+      catch (InvocationTargetException e) {
+        throw new PicoInvocationTargetInitializationException(e.getCause());
+      }
+      catch (Exception e) {
+        throw new PicoInitializationException(e);
+      }
+    }
+
+    @Override
+    public void verify(PicoContainer container) throws PicoIntrospectionException {
+    }
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.extensions.impl;
+
+import com.intellij.openapi.extensions.PluginDescriptor;
+import com.intellij.openapi.extensions.PluginId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Number of extensions instantiated and time spent on it (class loading, construction and deserialization of beans)
+ * per extension point and per plugin. Collecting is off by default, it's turned on together with recording of the startup timeline
+ * by the <code>idea.startup.timeline</code> system property or by {@link #setEnabled(boolean)}.
+ */
+public class ExtensionInstantiationStatistics {
+  private static volatile boolean ourEnabled = System.getProperty("idea.startup.timeline") != null;
+  private static final Map<String, Entry> ourByExtensionPoint = new HashMap<String, Entry>();
+  private static final Map<String, Entry> ourByPlugin = new HashMap<String, Entry>();
+
+  private ExtensionInstantiationStatistics() {
+  }
+
+  public static class Entry {
+    private final String myName;
+    private int myCount;
+    private long myNanos;
+
+    private Entry(@NotNull String name) {
+      myName = name;
+    }
+
+    @NotNull
+    public String getName() {
+      return myName;
+    }
+
+    public int getCount() {
+      return myCount;
+    }
+
+    public long getNanos() {
+      return myNanos;
+    }
+
+    @Override
+    public String toString() {
+      return myName + ": " + myCount + " extensions in " + myNanos / 1000000 + " ms";
+    }
+  }
+
+  public static boolean isEnabled() {
+    return ourEnabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    ourEnabled = enabled;
+  }
+
+  static void record(@NotNull String extensionPoint, @Nullable PluginDescriptor plugin, long nanos) {
+    PluginId pluginId = plugin == null ? null : plugin.getPluginId();
+    synchronized (ourByExtensionPoint) {
+      add(ourByExtensionPoint, extensionPoint, nanos);
+      add(ourByPlugin, pluginId == null ? "<unknown>" : pluginId.getIdString(), nanos);
+    }
+  }
+
+  private static void add(@NotNull Map<String, Entry> map, @NotNull String name, long nanos) {
+    Entry entry = map.get(name);
+    if (entry == null) {
+      map.put(name, entry = new Entry(name));
+    }
+    entry.myCount++;
+    entry.myNanos += nanos;
+  }
+
+  /**
+   * @return statistics per extension point, the most expensive first
+   */
+  @NotNull
+  public static List<Entry> getByExtensionPoint() {
+    synchronized (ourByExtensionPoint) {
+      return sorted(ourByExtensionPoint);
+    }
+  }
+
+  /**
+   * @return statistics per plugin, the most expensive first
+   */
+  @NotNull
+  public static List<Entry> getByPlugin() {
+    synchronized (ourByExtensionPoint) {
+      return sorted(ourByPlugin);
+    }
+  }
+
+  @NotNull
+  private static List<Entry> sorted(@NotNull Map<String, Entry> map) {
+    List<Entry> result = new ArrayList<Entry>(map.size());
+    for (Entry entry : map.values()) {
+      Entry copy = new Entry(entry.myName);
+      copy.myCount = entry.myCount;
+      copy.myNanos = entry.myNanos;
+      result.add(copy);
+    }
+    Collections.sort(result, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry o1, Entry o2) {
+        return o1.myNanos < o2.myNanos ? 1 : o1.myNanos == o2.myNanos ? 0 : -1;
+      }
+    });
+    return result;
+  }
+}
@@ -237,11 +237,17 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
       ExtensionComponentAdapter[] adapters = allAdapters.toArray(new ExtensionComponentAdapter[myExtensionAdapters.size()]);
       LoadingOrder.sort(adapters);
       for (ExtensionComponentAdapter adapter : adapters) {
+        boolean loaded = ArrayUtilRt.find(loadedAdapters, adapter) != -1;
+        boolean measure = ExtensionInstantiationStatistics.isEnabled() && !loaded && !(adapter instanceof ObjectComponentAdapter);
+        long start = measure ? System.nanoTime() : 0;
         //noinspection unchecked
         T extension = (T)adapter.getExtension();
+        if (measure) {
+          ExtensionInstantiationStatistics.record(myName, adapter.getPluginDescriptor(), System.nanoTime() - start);
+        }
         assertClass(extension.getClass());
 
-        internalRegisterExtension(extension, adapter, myExtensions.size(), ArrayUtilRt.find(loadedAdapters, adapter) == -1);
+        internalRegisterExtension(extension, adapter, myExtensions.size(), !loaded);
       }
       myExtensionAdapters.clear();
     }
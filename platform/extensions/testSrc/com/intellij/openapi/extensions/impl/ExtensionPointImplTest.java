@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2009 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,8 @@ import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
 import org.picocontainer.defaults.DefaultPicoContainer;
 
+import java.util.List;
+
 /**
  * @author AKireyev
  */
@@ -38,6 +40,48 @@ public class ExtensionPointImplTest extends TestCase {
     return new ExtensionsAreaImpl(new DefaultPicoContainer(), new Extensions.SimpleLogProvider());
   }
 
+  public void testInstantiationStatistics() {
+    boolean enabled = ExtensionInstantiationStatistics.isEnabled();
+    ExtensionInstantiationStatistics.setEnabled(true);
+    try {
+      doTestInstantiationStatistics();
+    }
+    finally {
+      ExtensionInstantiationStatistics.setEnabled(enabled);
+    }
+  }
+
+  private void doTestInstantiationStatistics() {
+    ExtensionsAreaImpl area = buildExtensionArea();
+    String name = "statistics.extension.point";
+    ExtensionPointImpl extensionPoint = new ExtensionPointImpl(name, Object.class.getName(), ExtensionPoint.Kind.BEAN_CLASS, area, null,
+                                                               new Extensions.SimpleLogProvider(), new UndefinedPluginDescriptor());
+    DefaultPluginDescriptor plugin = new DefaultPluginDescriptor("statistics.plugin");
+    extensionPoint.registerExtensionAdapter(new ExtensionComponentAdapter(DefaultConstructorBean.class.getName(),
+                                                                          ExtensionComponentAdapterTest.readElement("<bean/>"),
+                                                                          area.getPicoContainer(), plugin, true));
+    extensionPoint.registerExtensionAdapter(new ExtensionComponentAdapter(TestExtensionClassOne.class.getName(),
+                                                                          ExtensionComponentAdapterTest.readElement("<bean/>"),
+                                                                          area.getPicoContainer(), plugin, true));
+    Object[] extensions = extensionPoint.getExtensions();
+    assertEquals(2, extensions.length);
+    assertSame(extensions[0], extensionPoint.getExtensions()[0]);
+
+    assertEquals(2, findStatistics(ExtensionInstantiationStatistics.getByExtensionPoint(), name).getCount());
+    assertEquals(2, findStatistics(ExtensionInstantiationStatistics.getByPlugin(), "statistics.plugin").getCount());
+  }
+
+  private static ExtensionInstantiationStatistics.Entry findStatistics(List<ExtensionInstantiationStatistics.Entry> entries, String name) {
+    for (ExtensionInstantiationStatistics.Entry entry : entries) {
+      if (entry.getName().equals(name)) return entry;
+    }
+    fail("no statistics for " + name + " in " + entries);
+    return null;
+  }
+
+  public static class DefaultConstructorBean {
+  }
+
   public void testUnregisterObject() {
     ExtensionPointImpl extensionPoint = buildExtensionPoint();
     extensionPoint.registerExtension(new Integer(123));
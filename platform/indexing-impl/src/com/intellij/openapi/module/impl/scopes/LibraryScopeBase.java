@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2012 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.roots.impl.DirectoryInfo;
+import com.intellij.openapi.roots.impl.ProjectFileIndexImpl;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -49,6 +51,13 @@ public abstract class LibraryScopeBase extends GlobalSearchScope {
 
   @Nullable
   private VirtualFile getFileRoot(VirtualFile file) {
+    if (myIndex instanceof ProjectFileIndexImpl) {
+      // one directory index lookup instead of one for each file index call below
+      DirectoryInfo info = ((ProjectFileIndexImpl)myIndex).getInfoForFileOrDirectory(file);
+      if (info == null) return null;
+      if (info.hasLibraryClassRoot()) return info.getLibraryClassRoot();
+      return info.getModule() != null ? info.getSourceRoot() : null;
+    }
     if (myIndex.isInLibraryClasses(file)) {
       return myIndex.getClassRootForFile(file);
     }
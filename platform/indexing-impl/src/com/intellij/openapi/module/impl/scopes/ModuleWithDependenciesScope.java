@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2010 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@ package com.intellij.openapi.module.impl.scopes;
 
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.roots.*;
+import com.intellij.openapi.roots.impl.DirectoryInfo;
+import com.intellij.openapi.roots.impl.ProjectFileIndexImpl;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiBundle;
@@ -148,6 +150,18 @@ public class ModuleWithDependenciesScope extends GlobalSearchScope {
 
   @Override
   public boolean contains(VirtualFile file) {
+    if (myProjectFileIndex instanceof ProjectFileIndexImpl) {
+      // one directory index lookup instead of one for each file index call below
+      DirectoryInfo info = ((ProjectFileIndexImpl)myProjectFileIndex).getInfoForFileOrDirectory(file);
+      if (info == null) return false;
+      if (hasOption(CONTENT)) {
+        return myRoots.contains(info.getContentRoot());
+      }
+      if (info.getModule() != null && myRoots.contains(info.getSourceRoot())) {
+        return true;
+      }
+      return myRoots.contains(info.getLibraryClassRoot());
+    }
     if (hasOption(CONTENT)) {
       return myRoots.contains(myProjectFileIndex.getContentRootForFile(file));
     }
@@ -175,6 +189,11 @@ public class ModuleWithDependenciesScope extends GlobalSearchScope {
 
   @Nullable
   private VirtualFile getFileRoot(@NotNull VirtualFile file) {
+    if (myProjectFileIndex instanceof ProjectFileIndexImpl) {
+      DirectoryInfo info = ((ProjectFileIndexImpl)myProjectFileIndex).getInfoForFileOrDirectory(file);
+      if (info == null) return null;
+      return info.getModule() != null ? info.getSourceRoot() : info.getLibraryClassRoot();
+    }
     if (myProjectFileIndex.isInContent(file)) {
       return myProjectFileIndex.getSourceRootForFile(file);
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2012 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ import com.intellij.psi.impl.cache.impl.id.IdIndexEntry;
 import com.intellij.psi.search.*;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.CommonProcessors;
+import com.intellij.util.PairProcessor;
 import com.intellij.util.Processor;
 import com.intellij.util.codeInsight.CommentUtilCore;
 import com.intellij.util.containers.ContainerUtil;
@@ -45,6 +46,7 @@ import com.intellij.util.indexing.FileBasedIndex;
 import com.intellij.util.text.CharArrayUtil;
 import com.intellij.util.text.StringSearcher;
 import gnu.trove.THashSet;
+import gnu.trove.TObjectLongHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -198,7 +200,12 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
       progress.setText(PsiBundle.message("psi.search.for.word.progress", text));
     }
 
-      final AsyncFuture<Boolean> result = processPsiFileRootsAsync(fileSet, new Processor<PsiElement>() {
+      final AsyncFuture<Boolean> result = processPsiFileRootsAsync(fileSet, new PairProcessor<VirtualFile, CharSequence>() {
+        @Override
+        public boolean process(VirtualFile file, CharSequence text) {
+          return containsWord(text, searcher, progress);
+        }
+      }, new Processor<PsiElement>() {
         @Override
         public boolean process(PsiElement psiRoot) {
           return LowLevelSearchUtil.processElementsContainingWordInElement(processor, psiRoot, searcher, true, progress);
@@ -214,11 +221,19 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
       });
   }
 
+  /**
+   * @param textFilter checks the text of each file before its PSI is built, files rejected by it are skipped. The id index may report
+   *                   files which don't contain the word at all because of hash collisions, and their parsing is the most expensive part
+   *                   of the search.
+   */
   private AsyncFuture<Boolean> processPsiFileRootsAsync(@NotNull List<VirtualFile> files,
+                                      @NotNull final PairProcessor<VirtualFile, CharSequence> textFilter,
                                       @NotNull final Processor<PsiElement> psiRootProcessor,
                                       final ProgressIndicator progress) {
     myManager.startBatchFilesProcessingMode();
+      files = sortBySizeDescending(files);
       final AtomicInteger counter = new AtomicInteger(0);
+      final AtomicInteger skipped = new AtomicInteger(0);
       final AtomicBoolean canceled = new AtomicBoolean(false);
       final AtomicBoolean pceThrown = new AtomicBoolean(false);
 
@@ -234,33 +249,44 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
             }
           });
           if (file != null && !(file instanceof PsiBinaryFile)) {
-            file.getViewProvider().getContents(); // load contents outside readaction
-            ApplicationManager.getApplication().runReadAction(new Runnable() {
+            final CharSequence text = file.getViewProvider().getContents(); // load contents outside readaction
+            boolean hasOccurrences = ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
               @Override
-              public void run() {
-                try {
-                  if (myManager.getProject().isDisposed()) throw new ProcessCanceledException();
-                  List<PsiFile> psiRoots = file.getViewProvider().getAllFiles();
-                  Set<PsiElement> processed = new THashSet<PsiElement>(psiRoots.size() * 2, (float)0.5);
-                  for (PsiElement psiRoot : psiRoots) {
-                    if (progress != null) progress.checkCanceled();
-                    assert psiRoot != null : "One of the roots of file " + file + " is null. All roots: " + psiRoots +
-                                             "; ViewProvider: " + file.getViewProvider() + "; Virtual file: " + file.getViewProvider().getVirtualFile();
-                    if (!processed.add(psiRoot)) continue;
-                    if (!psiRoot.isValid()) continue;
-                    if (!psiRootProcessor.process(psiRoot)) {
-                      canceled.set(true);
-                      return;
+              public Boolean compute() {
+                return textFilter.process(vfile, text);
+              }
+            }).booleanValue();
+            if (!hasOccurrences) {
+              skipped.incrementAndGet();
+            }
+            else {
+              ApplicationManager.getApplication().runReadAction(new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    if (myManager.getProject().isDisposed()) throw new ProcessCanceledException();
+                    List<PsiFile> psiRoots = file.getViewProvider().getAllFiles();
+                    Set<PsiElement> processed = new THashSet<PsiElement>(psiRoots.size() * 2, (float)0.5);
+                    for (PsiElement psiRoot : psiRoots) {
+                      if (progress != null) progress.checkCanceled();
+                      assert psiRoot != null : "One of the roots of file " + file + " is null. All roots: " + psiRoots +
+                                               "; ViewProvider: " + file.getViewProvider() + "; Virtual file: " + file.getViewProvider().getVirtualFile();
+                      if (!processed.add(psiRoot)) continue;
+                      if (!psiRoot.isValid()) continue;
+                      if (!psiRootProcessor.process(psiRoot)) {
+                        canceled.set(true);
+                        return;
+                      }
                     }
+                    myManager.dropResolveCaches();
+                  }
+                  catch (ProcessCanceledException e) {
+                    canceled.set(true);
+                    pceThrown.set(true);
                   }
-                  myManager.dropResolveCaches();
-                }
-                catch (ProcessCanceledException e) {
-                  canceled.set(true);
-                  pceThrown.set(true);
                 }
-              }
-            });
+              });
+            }
           }
           if (progress != null && progress.isRunning()) {
             double fraction = (double)counter.incrementAndGet() / size;
@@ -291,10 +317,41 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
         @Override
         public void run() {
           myManager.finishBatchFilesProcessingMode();
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Text pre-filter skipped parsing of " + skipped.get() + " of " + size + " candidate files");
+          }
         }
       });
   }
 
+  private static boolean containsWord(@NotNull CharSequence text, @NotNull StringSearcher searcher, @Nullable ProgressIndicator progress) {
+    char[] textArray = CharArrayUtil.fromSequenceWithoutCopying(text);
+    return LowLevelSearchUtil.searchWord(text, textArray, 0, text.length(), searcher, progress) >= 0;
+  }
+
+  /**
+   * Files are processed concurrently, so starting with the largest ones keeps all threads busy until the end instead of leaving one thread
+   * to parse a huge file picked up last.
+   */
+  @NotNull
+  private static List<VirtualFile> sortBySizeDescending(@NotNull List<VirtualFile> files) {
+    if (files.size() < 2) return files;
+    final TObjectLongHashMap<VirtualFile> sizes = new TObjectLongHashMap<VirtualFile>(files.size());
+    for (VirtualFile file : files) {
+      sizes.put(file, file.isValid() ? file.getLength() : 0);
+    }
+    List<VirtualFile> sorted = new ArrayList<VirtualFile>(files);
+    Collections.sort(sorted, new Comparator<VirtualFile>() {
+      @Override
+      public int compare(VirtualFile o1, VirtualFile o2) {
+        long size1 = sizes.get(o1);
+        long size2 = sizes.get(o2);
+        return size1 < size2 ? 1 : size1 == size2 ? 0 : -1;
+      }
+    });
+    return sorted;
+  }
+
   @NotNull
   private List<VirtualFile> getFilesWithText(@NotNull GlobalSearchScope scope,
                                              final short searchContext,
@@ -615,9 +672,12 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
     }
 
     final Map<RequestWithProcessor, StringSearcher> searchers = new HashMap<RequestWithProcessor, StringSearcher>();
+    final Map<RequestWithProcessor, TextOccurenceProcessor> adaptedProcessors = new HashMap<RequestWithProcessor, TextOccurenceProcessor>();
     final Set<String> allWords = new TreeSet<String>();
     for (RequestWithProcessor singleRequest : candidateFiles.values()) {
+      if (searchers.containsKey(singleRequest)) continue;
       searchers.put(singleRequest, new StringSearcher(singleRequest.request.word, singleRequest.request.caseSensitive, true, false));
+      adaptedProcessors.put(singleRequest, adaptProcessor(singleRequest.request, singleRequest.refProcessor));
       allWords.add(singleRequest.request.word);
     }
 
@@ -626,13 +686,23 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
     }
 
     final AsyncFuture<Boolean> result =
-      processPsiFileRootsAsync(new ArrayList<VirtualFile>(candidateFiles.keySet()), new Processor<PsiElement>() {
+      processPsiFileRootsAsync(new ArrayList<VirtualFile>(candidateFiles.keySet()), new PairProcessor<VirtualFile, CharSequence>() {
+        @Override
+        public boolean process(VirtualFile file, CharSequence text) {
+          for (RequestWithProcessor singleRequest : candidateFiles.get(file)) {
+            if (containsWord(text, searchers.get(singleRequest), progress)) {
+              return true;
+            }
+          }
+          return false;
+        }
+      }, new Processor<PsiElement>() {
         @Override
         public boolean process(PsiElement psiRoot) {
           final VirtualFile vfile = psiRoot.getContainingFile().getVirtualFile();
           for (final RequestWithProcessor singleRequest : candidateFiles.get(vfile)) {
             StringSearcher searcher = searchers.get(singleRequest);
-            TextOccurenceProcessor adapted = adaptProcessor(singleRequest.request, singleRequest.refProcessor);
+            TextOccurenceProcessor adapted = adaptedProcessors.get(singleRequest);
             if (!LowLevelSearchUtil.processElementsContainingWordInElement(adapted, psiRoot, searcher, true, progress)) {
               return false;
             }
@@ -139,6 +139,18 @@ public class CompositeFilter implements Filter, FilterMixin {
     return myIsAnyHeavy;
   }
 
+  /**
+   * @return true if every filter is a {@link BackgroundFilter} or a composite of such filters
+   */
+  public boolean canRunInBackground() {
+    for (Filter filter : myFilters) {
+      if (!(filter instanceof BackgroundFilter) && !(filter instanceof CompositeFilter && ((CompositeFilter)filter).canRunInBackground())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public void addFilter(final Filter filter) {
     myFilters.add(filter);
     myIsAnyHeavy |= filter instanceof FilterMixin;
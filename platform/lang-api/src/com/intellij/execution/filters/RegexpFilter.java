@@ -31,7 +31,7 @@ import java.util.regex.Pattern;
  * @author Yura Cangea
  * @version 1.0
  */
-public class RegexpFilter implements Filter {
+public class RegexpFilter implements Filter, BackgroundFilter {
   @NonNls public static final String FILE_PATH_MACROS = "$FILE_PATH$";
   @NonNls public static final String LINE_MACROS = "$LINE$";
   @NonNls public static final String COLUMN_MACROS = "$COLUMN$";
@@ -23,7 +23,7 @@ import java.util.regex.Pattern;
 /**
  * @author yole
  */
-public class UrlFilter implements Filter {
+public class UrlFilter implements Filter, BackgroundFilter {
   private static final Pattern URL_PATTERN = Pattern.compile("\\bhttps?://[-A-Za-z0-9+&@#/%?=~_|!:,.;]*[-A-Za-z0-9+&@#/%=~_|]");
 
   @Nullable
@@ -92,6 +92,7 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
   private static final Logger LOG = Logger.getInstance("#com.intellij.execution.impl.ConsoleViewImpl");
 
   private static final int DEFAULT_FLUSH_DELAY = SystemProperties.getIntProperty("console.flush.delay.ms", 200);
+  private static final boolean FILTERS_IN_BACKGROUND = SystemProperties.getBooleanProperty("console.filters.in.background", true);
 
   public static final Key<ConsoleViewImpl> CONSOLE_VIEW_IN_EDITOR_VIEW = Key.create("CONSOLE_VIEW_IN_EDITOR_VIEW");
 
@@ -113,6 +114,12 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
   @Nullable
   private final Alarm myHeavyAlarm;
   private       int   myHeavyUpdateTicket;
+  /**
+   * Runs message filters over the flushed lines, so that heavy output doesn't block EDT. Results are applied in EDT by
+   * {@link MyApplyFilterResultsRunnable}, those computed before the last clear are dropped by comparing the tickets.
+   */
+  private final Alarm myFilterAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+  private volatile int myFilterTicket;
 
   private final CopyOnWriteArraySet<ChangeListener> myListeners             = new CopyOnWriteArraySet<ChangeListener>();
   private final ArrayList<AnAction>                 customActions           = new ArrayList<AnAction>();
@@ -635,6 +642,8 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
         document = editor.getDocument();
         myFoldingAlarm.cancelAllRequests();
         cancelHeavyAlarm();
+        myFilterAlarm.cancelAllRequests();
+        myFilterTicket++;
       }
       CommandProcessor.getInstance().executeCommand(myProject, new Runnable() {
         @Override
@@ -682,7 +691,7 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
           myEditor.getScrollingModel().accumulateViewportChanges();
         }
         try {
-          String[] strings = text.split("\\r");
+          String[] strings = text.indexOf('\r') < 0 ? new String[]{text} : text.split("\\r");
           for (int i = 0; i < strings.length - 1; i++) {
             document.insertString(document.getTextLength(), strings[i]);
             int lastLine = document.getLineCount() - 1;
@@ -946,7 +955,12 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
     ApplicationManager.getApplication().assertIsDispatchThread();
     PsiDocumentManager.getInstance(myProject).commitAllDocuments();
     if (canHighlightHyperlinks) {
-      myHyperlinks.highlightHyperlinks(myCustomFilter, myPredefinedMessageFilter, line1, endLine);
+      if (FILTERS_IN_BACKGROUND && myCustomFilter.canRunInBackground() && myPredefinedMessageFilter.canRunInBackground()) {
+        highlightHyperlinksInBackground(line1, endLine);
+      }
+      else {
+        myHyperlinks.highlightHyperlinks(myCustomFilter, myPredefinedMessageFilter, line1, endLine);
+      }
     }
     
     if (myAllowHeavyFilters && myPredefinedMessageFilter.isAnyHeavy() && myPredefinedMessageFilter.shouldRunHeavy()) {
@@ -957,6 +971,48 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
     }
   }
 
+  private void highlightHyperlinksInBackground(int line1, int endLine) {
+    final Document document = myEditor.getDocument();
+    final int startLine = Math.max(0, line1);
+    if (startLine > endLine) return;
+
+    final String[] lines = new String[endLine - startLine + 1];
+    final int[] lineEndOffsets = new int[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = EditorHyperlinkSupport.getLineText(document, startLine + i, true);
+      lineEndOffsets[i] = document.getLineStartOffset(startLine + i) + lines[i].length();
+    }
+    final int startOffset = document.getLineStartOffset(startLine);
+    // the document start is trimmed by the cyclic buffer meanwhile, the marker tells how far the lines have moved
+    final String text = document.getText(new TextRange(startOffset, lineEndOffsets[lines.length - 1]));
+    final RangeMarker marker = document.createRangeMarker(startOffset, startOffset + text.length());
+    final int ticket = myFilterTicket;
+
+    myFilterAlarm.addRequest(new Runnable() {
+      @Override
+      public void run() {
+        final List<Filter.ResultItem> resultItems = ApplicationManager.getApplication().runReadAction(
+          new Computable<List<Filter.ResultItem>>() {
+            @Override
+            public List<Filter.ResultItem> compute() {
+              List<Filter.ResultItem> items = new ArrayList<Filter.ResultItem>();
+              for (int i = 0; i < lines.length; i++) {
+                if (myFilterAlarm.isDisposed() || ticket != myFilterTicket) break;
+                Filter.Result result = EditorHyperlinkSupport.applyFilters(myCustomFilter, myPredefinedMessageFilter, lines[i],
+                                                                           lineEndOffsets[i]);
+                if (result != null) {
+                  items.addAll(result.getResultItems());
+                }
+              }
+              return items;
+            }
+          });
+        if (myFlushAlarm.isDisposed()) return;
+        addFlushRequest(new MyApplyFilterResultsRunnable(marker, startOffset, text, ticket, resultItems));
+      }
+    }, 0);
+  }
+
   private void runHeavyFilters(int line1, int endLine) {
     final int startLine = Math.max(0, line1);
 
@@ -1823,6 +1879,53 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
     }
   }
 
+  /**
+   * @return how far the lines which were filtered in background have moved since, or null if they were changed or removed meanwhile
+   * and the filter results are stale
+   */
+  @Nullable
+  static Integer getFilterResultsShift(@NotNull Document document, @NotNull RangeMarker marker, int startOffset, @NotNull String text) {
+    if (!marker.isValid() || marker.getEndOffset() - marker.getStartOffset() != text.length()) return null;
+    if (!StringUtil.equals(document.getCharsSequence().subSequence(marker.getStartOffset(), marker.getEndOffset()), text)) return null;
+    return marker.getStartOffset() - startOffset;
+  }
+
+  private final class MyApplyFilterResultsRunnable extends MyFlushRunnable {
+    private final RangeMarker myMarker;
+    private final int myStartOffset;
+    private final String myText;
+    private final int myTicket;
+    private final List<Filter.ResultItem> myResultItems;
+
+    private MyApplyFilterResultsRunnable(RangeMarker marker, int startOffset, String text, int ticket, List<Filter.ResultItem> resultItems) {
+      myMarker = marker;
+      myStartOffset = startOffset;
+      myText = text;
+      myTicket = ticket;
+      myResultItems = resultItems;
+    }
+
+    @Override
+    public void doRun() {
+      try {
+        // results computed before clear() are dropped as well as ones for lines changed after the filters ran (e.g. by '\r')
+        if (myTicket != myFilterTicket || myHyperlinks == null || myEditor == null) return;
+        Integer shift = getFilterResultsShift(myEditor.getDocument(), myMarker, myStartOffset, myText);
+        if (shift != null) {
+          myHyperlinks.highlightHyperlinks(myResultItems, shift);
+        }
+      }
+      finally {
+        myMarker.dispose();
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o;
+    }
+  }
+
   private final class MyClearRunnable extends MyFlushRunnable {
     
     @Override
@@ -42,6 +42,7 @@ import com.intellij.openapi.vfs.newvfs.ManagingFS;
 import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
 import com.intellij.openapi.vfs.newvfs.impl.FileNameCache;
 import com.intellij.util.*;
+import com.intellij.util.containers.ConcurrentSoftValueHashMap;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
 import com.intellij.util.containers.Stack;
@@ -52,6 +53,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 public class DirectoryIndexImpl extends DirectoryIndex {
   private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.roots.impl.DirectoryIndexImpl");
@@ -359,17 +361,7 @@ public class DirectoryIndexImpl extends DirectoryIndex {
       dispatchPendingEvents();
 
       IndexState state = myState;
-      int[] allDirs = state.getDirsForPackage(internPackageName(packageName));
-      if (allDirs == null) allDirs = ArrayUtil.EMPTY_INT_ARRAY;
-
-      List<VirtualFile> files = new ArrayList<VirtualFile>(allDirs.length);
-      for (int dir : allDirs) {
-        VirtualFile file = findFileById(dir);
-        if (file != null) {
-          files.add(file);
-        }
-      }
-
+      List<VirtualFile> files = Arrays.asList(state.getDirectoriesForPackage(packageName));
       Query<VirtualFile> query = includeLibrarySources ? new CollectionQuery<VirtualFile>(files) : createQuery(Pair.create(state, files));
       return new FilteredQuery<VirtualFile>(query, IS_VALID);
     }
@@ -555,11 +547,34 @@ public class DirectoryIndexImpl extends DirectoryIndex {
     private final TObjectIntHashMap<int[]> myPackageNameToDirsMap = new TObjectIntHashMap<int[]>(INT_ARRAY_STRATEGY);
     private final List<int[]> multiDirPackages = new ArrayList<int[]>(Arrays.asList(new int[]{-1}));
     private final TIntObjectHashMap<int[]> myDirToPackageName = new TIntObjectHashMap<int[]>();
+    // existing package name -> its directories; the state isn't modified after publishing, so the result of a lookup never becomes stale
+    private final ConcurrentMap<String, VirtualFile[]> myPackageDirsCache = new ConcurrentSoftValueHashMap<String, VirtualFile[]>();
     private volatile boolean writable = true;
 
     private IndexState() {
     }
 
+    @NotNull
+    private VirtualFile[] getDirectoriesForPackage(@NotNull String packageName) {
+      VirtualFile[] cached = myPackageDirsCache.get(packageName);
+      if (cached != null) return cached;
+
+      int[] allDirs = getDirsForPackage(internPackageName(packageName));
+      if (allDirs == null) allDirs = ArrayUtil.EMPTY_INT_ARRAY;
+
+      List<VirtualFile> files = new ArrayList<VirtualFile>(allDirs.length);
+      for (int dir : allDirs) {
+        VirtualFile file = findFileById(dir);
+        if (file != null) {
+          files.add(file);
+        }
+      }
+      // misses aren't cached: lookups of non-existent packages (e.g. parts of qualified names being resolved) are countless,
+      // and a miss is found without creating any files anyway
+      if (files.isEmpty()) return VirtualFile.EMPTY_ARRAY;
+      return ConcurrencyUtil.cacheOrGet(myPackageDirsCache, packageName, VfsUtilCore.toVirtualFileArray(files));
+    }
+
     @Nullable
     private int[] getDirsForPackage(@NotNull int[] packageName) {
       assertNotWritable();
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.stubs;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.PersistentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serialized stub trees of binary files from library jars keyed by the content hash of the jar and the path of the file inside it.
+ * A jar copied into several places, e.g. into library directories of several projects, gets its files processed by stub builders only
+ * once: the copies have different file ids, so they are indexed separately, but their stubs are taken from here.
+ * <p/>
+ * Stubs of class files depend on other entries of the same jar (inner classes), that's why the whole jar content is hashed.
+ * The storage is located under the stub index directory, so it is deleted together with the stub index when its version changes.
+ * It is also deleted when its data file grows over {@link #MAX_DATA_SIZE}, so stubs of jars which are no longer used don't pile up:
+ * the storage is filled again with stubs of jars which are still indexed.
+ */
+class JarStubCache {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.psi.stubs.JarStubCache");
+  private static final long MAX_DATA_SIZE = 256 * 1024 * 1024;
+  // jar path -> hash of its content computed for the jar length and timestamp stored with it
+  private static final ConcurrentMap<String, JarHash> ourJarHashes = ContainerUtil.newConcurrentMap();
+  private static final AtomicInteger ourHits = new AtomicInteger();
+
+  private final File myStorageFile;
+  private final Object myLock = new Object();
+  private PersistentHashMap<String, byte[]> myStorage;
+
+  JarStubCache(@NotNull File storageFile) {
+    myStorageFile = storageFile;
+  }
+
+  /**
+   * @return key of the file in the cache, or null if the file is not a binary file located in a jar or the jar isn't hashed yet.
+   * The jar is hashed on the first call for it made outside of read action; under read action hashing is started in background.
+   */
+  @Nullable
+  static String getKey(@NotNull VirtualFile file) {
+    if (!(file.getFileSystem() instanceof JarFileSystem) || !file.getFileType().isBinary()) return null;
+    final String path = file.getPath();
+    final int separator = path.indexOf(JarFileSystem.JAR_SEPARATOR);
+    if (separator < 0) return null;
+    final VirtualFile jar = JarFileSystem.getInstance().getVirtualFileForJar(file);
+    if (jar == null) return null;
+    final String hash = getJarHash(new File(jar.getPath()));
+    return hash == null ? null : hash + path.substring(separator);
+  }
+
+  @Nullable
+  byte[] get(@NotNull String key) {
+    synchronized (myLock) {
+      try {
+        final PersistentHashMap<String, byte[]> storage = getStorage();
+        final byte[] bytes = storage != null ? storage.get(key) : null;
+        if (bytes != null) {
+          ourHits.incrementAndGet();
+        }
+        return bytes;
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        closeAndDelete();
+        return null;
+      }
+    }
+  }
+
+  /**
+   * @return number of {@link #get} calls which found stubs in the cache
+   */
+  @TestOnly
+  static int getHitCount() {
+    return ourHits.get();
+  }
+
+  void put(@NotNull String key, @NotNull byte[] bytes, int length) {
+    synchronized (myLock) {
+      try {
+        final PersistentHashMap<String, byte[]> storage = getStorage();
+        if (storage != null) {
+          storage.put(key, length == bytes.length ? bytes : copyOf(bytes, length));
+        }
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        closeAndDelete();
+      }
+    }
+  }
+
+  void flush() {
+    synchronized (myLock) {
+      if (myStorage != null && myStorage.isDirty()) {
+        myStorage.force();
+        if (isTooLarge()) {
+          LOG.info("Jar stub cache exceeded " + MAX_DATA_SIZE + " bytes and is cleared");
+          closeAndDelete();
+        }
+      }
+    }
+  }
+
+  void clear() {
+    synchronized (myLock) {
+      closeAndDelete();
+    }
+  }
+
+  void dispose() {
+    synchronized (myLock) {
+      if (myStorage != null) {
+        try {
+          myStorage.close();
+        }
+        catch (IOException e) {
+          LOG.info(e);
+        }
+        myStorage = null;
+      }
+    }
+  }
+
+  @Nullable
+  private PersistentHashMap<String, byte[]> getStorage() {
+    if (myStorage == null) {
+      if (isTooLarge()) {
+        PersistentHashMap.deleteFilesStartingWith(myStorageFile);
+      }
+      try {
+        myStorage = new PersistentHashMap<String, byte[]>(myStorageFile, new EnumeratorStringDescriptor(), new ByteArrayExternalizer());
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        PersistentHashMap.deleteFilesStartingWith(myStorageFile);
+      }
+    }
+    return myStorage;
+  }
+
+  private void closeAndDelete() {
+    dispose();
+    PersistentHashMap.deleteFilesStartingWith(myStorageFile);
+  }
+
+  private boolean isTooLarge() {
+    return new File(myStorageFile.getParentFile(), myStorageFile.getName() + PersistentHashMap.DATA_FILE_EXTENSION).length() > MAX_DATA_SIZE;
+  }
+
+  @Nullable
+  private static String getJarHash(@NotNull File jar) {
+    final String path = jar.getPath();
+    final long length = jar.length();
+    final long timestamp = jar.lastModified();
+    JarHash jarHash = ourJarHashes.get(path);
+    if (jarHash == null || !jarHash.isFor(length, timestamp)) {
+      // the jar is hashed once even if its files are indexed by several threads at a time
+      final JarHash newHash = new JarHash(length, timestamp);
+      if (jarHash == null ? ourJarHashes.putIfAbsent(path, newHash) == null : ourJarHashes.replace(path, jarHash, newHash)) {
+        jarHash = newHash;
+      }
+      else {
+        jarHash = ourJarHashes.get(path);
+        if (jarHash == null || !jarHash.isFor(length, timestamp)) return null;
+      }
+    }
+    return jarHash.getHash(jar);
+  }
+
+  private static class JarHash {
+    private final long myLength;
+    private final long myTimestamp;
+    private final AtomicBoolean myScheduled = new AtomicBoolean();
+    private volatile boolean myComputed;
+    private volatile String myHash;
+
+    private JarHash(long length, long timestamp) {
+      myLength = length;
+      myTimestamp = timestamp;
+    }
+
+    private boolean isFor(long length, long timestamp) {
+      return myLength == length && myTimestamp == timestamp;
+    }
+
+    @Nullable
+    private String getHash(@NotNull final File jar) {
+      if (myComputed) return myHash;
+      final Application application = ApplicationManager.getApplication();
+      if (application.isReadAccessAllowed()) {
+        // hashing a large jar under read action would block write actions, so it's done in background and files of the jar
+        // indexed until the hash is ready get their stubs built as usual
+        if (myScheduled.compareAndSet(false, true)) {
+          application.executeOnPooledThread(new Runnable() {
+            @Override
+            public void run() {
+              compute(jar);
+            }
+          });
+        }
+        return null;
+      }
+      return compute(jar);
+    }
+
+    @Nullable
+    private synchronized String compute(@NotNull File jar) {
+      if (!myComputed) {
+        myHash = computeHash(jar);
+        myComputed = true;
+      }
+      return myHash;
+    }
+  }
+
+  @Nullable
+  private static String computeHash(@NotNull File jar) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final InputStream input = new BufferedInputStream(new FileInputStream(jar));
+      try {
+        final byte[] buffer = new byte[8192];
+        int count;
+        while ((count = input.read(buffer)) > 0) {
+          digest.update(buffer, 0, count);
+        }
+      }
+      finally {
+        input.close();
+      }
+      final StringBuilder builder = new StringBuilder();
+      for (byte b : digest.digest()) {
+        builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return builder.toString();
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+      return null;
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.error(e);
+      return null;
+    }
+  }
+
+  private static byte[] copyOf(byte[] bytes, int length) {
+    final byte[] copy = new byte[length];
+    System.arraycopy(bytes, 0, copy, 0, length);
+    return copy;
+  }
+
+  private static class ByteArrayExternalizer implements DataExternalizer<byte[]> {
+    @Override
+    public void save(DataOutput out, byte[] value) throws IOException {
+      out.writeInt(value.length);
+      out.write(value);
+    }
+
+    @Override
+    public byte[] read(DataInput in) throws IOException {
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+  }
+}
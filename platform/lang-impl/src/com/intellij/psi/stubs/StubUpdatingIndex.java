@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2011 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
@@ -89,6 +90,8 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
 
   private static final KeyDescriptor<Integer> DATA_DESCRIPTOR = new IntInlineKeyDescriptor();
 
+  private volatile JarStubCache myJarStubCache;
+
   @NotNull
   @Override
   public ID<Integer, SerializedStubTree> getName() {
@@ -113,17 +116,31 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
       @NotNull
       public Map<Integer, SerializedStubTree> map(@NotNull final FileContent inputData) {
         final Map<Integer, SerializedStubTree> result = new HashMap<Integer, SerializedStubTree>();
+        // the jar may need to be hashed for the key, it's done outside of read action not to block write actions
+        final JarStubCache jarStubCache = myJarStubCache;
+        final String jarStubKey = jarStubCache != null ? JarStubCache.getKey(inputData.getFile()) : null;
 
         ApplicationManager.getApplication().runReadAction(new Runnable() {
           @Override
           public void run() {
+            final int key = Math.abs(FileBasedIndex.getFileId(inputData.getFile()));
+            if (jarStubKey != null) {
+              final byte[] cached = jarStubCache.get(jarStubKey);
+              if (cached != null) {
+                result.put(key, new SerializedStubTree(cached, cached.length, null));
+                return;
+              }
+            }
+
             final Stub rootStub = StubTreeBuilder.buildStubTree(inputData);
             if (rootStub == null) return;
 
             final BufferExposingByteArrayOutputStream bytes = new BufferExposingByteArrayOutputStream();
             SerializationManagerEx.getInstanceEx().serialize(rootStub, bytes);
 
-            final int key = Math.abs(FileBasedIndex.getFileId(inputData.getFile()));
+            if (jarStubKey != null) {
+              jarStubCache.put(jarStubKey, bytes.getInternalBuffer(), bytes.size());
+            }
             result.put(key, new SerializedStubTree(bytes.getInternalBuffer(), bytes.size(), rootStub));
           }
         });
@@ -200,7 +217,9 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
         }
       });
     }
-    return new MyIndex(indexId, storage, getIndexer());
+    final JarStubCache jarStubCache = new JarStubCache(new File(IndexInfrastructure.getIndexRootDir(INDEX_ID), "jar_stubs"));
+    myJarStubCache = jarStubCache;
+    return new MyIndex(indexId, storage, getIndexer(), jarStubCache);
   }
 
   private static void updateStubIndices(@NotNull final Collection<StubIndexKey> indexKeys,
@@ -230,9 +249,12 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
 
   private static class MyIndex extends MapReduceIndex<Integer, SerializedStubTree, FileContent> {
     private StubIndexImpl myStubIndex;
+    private final JarStubCache myJarStubCache;
 
-    public MyIndex(final ID<Integer, SerializedStubTree> indexId, final IndexStorage<Integer, SerializedStubTree> storage, final DataIndexer<Integer, SerializedStubTree, FileContent> indexer) throws StorageException {
+    public MyIndex(final ID<Integer, SerializedStubTree> indexId, final IndexStorage<Integer, SerializedStubTree> storage, final DataIndexer<Integer, SerializedStubTree, FileContent> indexer,
+                   @NotNull JarStubCache jarStubCache) throws StorageException {
       super(indexId, indexer, storage);
+      myJarStubCache = jarStubCache;
       checkNameStorage();
     }
 
@@ -243,6 +265,7 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
         for (StubIndexKey key : stubIndex.getAllStubIndexKeys()) {
           stubIndex.flush(key);
         }
+        myJarStubCache.flush();
       }
       finally {
         super.flush();
@@ -386,6 +409,7 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
         if (stubIndex != null) {
           stubIndex.clearAllIndices();
         }
+        myJarStubCache.clear();
         super.clear();
       }
       finally {
@@ -403,6 +427,7 @@ public class StubUpdatingIndex extends CustomImplementationFileBasedIndexExtensi
         super.dispose();
       }
       finally {
+        myJarStubCache.dispose();
         getStubIndex().dispose();
       }
     }
@@ -283,19 +283,42 @@ public class EditorHyperlinkSupport {
         endOffset++; // add '\n'
       }
       final String text = getLineText(document, line, true);
-      Filter.Result result = customFilter.applyFilter(text, endOffset);
-      if (result == null) {
-        result = predefinedMessageFilter.applyFilter(text, endOffset);
-      }
+      Filter.Result result = applyFilters(customFilter, predefinedMessageFilter, text, endOffset);
       if (result != null) {
-        for (Filter.ResultItem resultItem : result.getResultItems()) {
-          if (resultItem.hyperlinkInfo != null) {
-            addHyperlink(resultItem.highlightStartOffset, resultItem.highlightEndOffset, resultItem.highlightAttributes, resultItem.hyperlinkInfo);
-          }
-          else if (resultItem.highlightAttributes != null) {
-            addHighlighter(resultItem.highlightStartOffset, resultItem.highlightEndOffset, resultItem.highlightAttributes);
-          }
-        }
+        highlightHyperlinks(result.getResultItems(), 0);
+      }
+    }
+  }
+
+  /**
+   * Runs the filters over the given line, doesn't touch the editor, so may be called from a background thread under a read action
+   * with the line text taken from the document beforehand.
+   *
+   * @param endOffset offset of the line end (including '\n') in the document
+   */
+  @Nullable
+  public static Filter.Result applyFilters(final Filter customFilter, final Filter predefinedMessageFilter, String line, int endOffset) {
+    Filter.Result result = customFilter.applyFilter(line, endOffset);
+    if (result == null) {
+      result = predefinedMessageFilter.applyFilter(line, endOffset);
+    }
+    return result;
+  }
+
+  /**
+   * Adds highlighters for the given filter results.
+   *
+   * @param shift difference between the current document offsets and the offsets the results were computed for
+   */
+  public void highlightHyperlinks(@NotNull List<Filter.ResultItem> resultItems, int shift) {
+    for (Filter.ResultItem resultItem : resultItems) {
+      int start = resultItem.highlightStartOffset + shift;
+      int end = resultItem.highlightEndOffset + shift;
+      if (resultItem.hyperlinkInfo != null) {
+        addHyperlink(start, end, resultItem.highlightAttributes, resultItem.hyperlinkInfo);
+      }
+      else if (resultItem.highlightAttributes != null) {
+        addHighlighter(start, end, resultItem.highlightAttributes);
       }
     }
   }
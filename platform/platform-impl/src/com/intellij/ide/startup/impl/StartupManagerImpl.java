@@ -15,6 +15,7 @@
  */
 package com.intellij.ide.startup.impl;
 
+import com.intellij.diagnostic.StartupTimeline;
 import com.intellij.ide.caches.CacheUpdater;
 import com.intellij.ide.startup.StartupManagerEx;
 import com.intellij.notification.NotificationType;
@@ -209,6 +210,7 @@ public class StartupManagerImpl extends StartupManagerEx {
     }
 
     Registry.get("ide.firstStartup").setValue(false);
+    StartupTimeline.export();
   }
 
   private void checkProjectRoots() {
@@ -260,6 +262,7 @@ public class StartupManagerImpl extends StartupManagerEx {
       final Runnable runnable = activities.remove(0);
       if (indicator != null) indicator.checkCanceled();
 
+      StartupTimeline.Event event = StartupTimeline.start(StartupTimeline.ACTIVITY, runnable.getClass().getName());
       try {
         runnable.run();
       }
@@ -269,6 +272,9 @@ public class StartupManagerImpl extends StartupManagerEx {
       catch (Throwable ex) {
         LOG.error(ex);
       }
+      finally {
+        if (event != null) event.end();
+      }
     }
   }
 
@@ -79,17 +79,14 @@ import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @SuppressWarnings({"AssignmentToStaticFieldFromInstanceMethod"})
 public class ApplicationImpl extends ComponentManagerImpl implements ApplicationEx {
   private static final Logger LOG = Logger.getInstance("#com.intellij.application.impl.ApplicationImpl");
   private final ModalityState MODALITY_STATE_NONE = ModalityState.NON_MODAL;
 
-  // about writer preference: the way the java.util.concurrent.locks.ReentrantReadWriteLock.NonfairSync is implemented, the
-  // writer thread will be always at the queue head and therefore, java.util.concurrent.locks.ReentrantReadWriteLock.NonfairSync.readerShouldBlock()
-  // will return true if the write action is pending, exactly as we need
-  private final ReentrantReadWriteLock myLock = new ReentrantReadWriteLock(false);
+  // about writer preference: readers back off as soon as a write action is requested, so a pending write action blocks new read actions
+  private final ReadMostlyRWLock myLock = new ReadMostlyRWLock();
 
   private final ModalityInvokator myInvokator = new ModalityInvokatorImpl();
 
@@ -933,7 +930,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     else {
       assertReadActionAllowed();
       try {
-        myLock.readLock().lockInterruptibly();
+        myLock.readLockInterruptibly();
       }
       catch (InterruptedException e) {
         throw new RuntimeInterruptedException(e);
@@ -942,7 +939,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
         action.run();
       }
       finally {
-        myLock.readLock().unlock();
+        myLock.readUnlock();
       }
     }
   }
@@ -954,7 +951,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     else {
       assertReadActionAllowed();
       try {
-        myLock.readLock().lockInterruptibly();
+        myLock.readLockInterruptibly();
       }
       catch (InterruptedException e) {
         throw new RuntimeInterruptedException(e);
@@ -963,7 +960,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
         return computation.compute();
       }
       finally {
-        myLock.readLock().unlock();
+        myLock.readUnlock();
       }
     }
   }
@@ -976,7 +973,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     else {
       assertReadActionAllowed();
       try {
-        myLock.readLock().lockInterruptibly();
+        myLock.readLockInterruptibly();
       }
       catch (InterruptedException e) {
         throw new RuntimeInterruptedException(e);
@@ -985,7 +982,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
         return computation.compute();
       }
       finally {
-        myLock.readLock().unlock();
+        myLock.readUnlock();
       }
     }
   }
@@ -1171,13 +1168,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
 
     if (mustAcquire) {
       LOG.assertTrue(myTestModeFlag || !Thread.holdsLock(PsiLock.LOCK), "Thread must not hold PsiLock while performing readAction");
-      try {
-        // timed version of tryLock() respects fairness unlike the no-args method
-        if (!myLock.readLock().tryLock(0, TimeUnit.MILLISECONDS)) return false;
-      }
-      catch (InterruptedException e) {
-        throw new RuntimeInterruptedException(e);
-      }
+      if (!myLock.tryReadLock()) return false;
     }
 
     try {
@@ -1185,7 +1176,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     }
     finally {
       if (mustAcquire) {
-        myLock.readLock().unlock();
+        myLock.readUnlock();
       }
     }
     return true;
@@ -1251,7 +1242,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
 
       LOG.assertTrue(isWriteAccessAllowed() || !Thread.holdsLock(PsiLock.LOCK), "Thread must not hold PsiLock while performing writeAction");
       try {
-        if (!myLock.writeLock().tryLock()) {
+        if (!myLock.tryWriteLock()) {
           if (ourDumpThreadsOnLongWriteActionWaiting > 0) {
             executeOnPooledThread(new Runnable() {
               @Override
@@ -1269,7 +1260,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
               }
             });
           }
-          myLock.writeLock().lockInterruptibly();
+          myLock.writeLockInterruptibly();
         }
         acquired();
       }
@@ -1291,7 +1282,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
         myWriteActionsStack.pop();
       }
       finally {
-        myLock.writeLock().unlock();
+        myLock.writeUnlock();
         released();
       }
     }
@@ -1339,7 +1330,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     private ReadAccessToken() {
       assertReadActionAllowed();
       try {
-        myLock.readLock().lockInterruptibly();
+        myLock.readLockInterruptibly();
         acquired();
       }
       catch (InterruptedException e) {
@@ -1349,7 +1340,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
 
     @Override
     public void finish() {
-      myLock.readLock().unlock();
+      myLock.readUnlock();
       released();
     }
   }
@@ -1366,7 +1357,7 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
 
   @Override
   public boolean isWriteAccessAllowed() {
-    return myLock.writeLock().isHeldByCurrentThread();
+    return myLock.isWriteLockedByCurrentThread();
   }
 
   public void editorPaintStart() {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.application.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Read-write lock optimized for frequent read acquisitions from many threads.
+ * <p/>
+ * Each reader thread announces itself by a volatile flag in its own thread-local slot, so acquiring and releasing a read lock doesn't
+ * touch memory shared with other readers. A writer publishes itself first and then waits until the flags of all readers are cleared.
+ * A reader which sees a pending or active writer clears its flag and waits until the writer is done, so pending writers block new readers.
+ * Both read and write locks are reentrant, the thread holding the write lock may acquire the read lock too. The read lock can't be
+ * upgraded: a writer would wait for its own read lock forever, so a thread holding only the read lock fails to acquire the write lock
+ * with {@link IllegalMonitorStateException}.
+ */
+class ReadMostlyRWLock {
+  private final ConcurrentLinkedQueue<Reader> myReaders = new ConcurrentLinkedQueue<Reader>();
+  // set when a thread acquires the read lock for the first time: threads which only check whether they hold it are never scanned
+  private final ThreadLocal<Reader> myReader = new ThreadLocal<Reader>();
+  // readers waiting for the writer and the writer waiting for readers or another writer wait on this monitor
+  private final Object myMonitor = new Object();
+  // thread which holds the write lock or waits for readers to release the read lock
+  private volatile Thread myWriter;
+  // accessed by the writer thread only
+  private int myWriteHoldCount;
+
+  private static class Reader {
+    private final Thread thread;
+    private volatile boolean readRequested;
+    private int holdCount;
+
+    private Reader(Thread thread) {
+      this.thread = thread;
+    }
+  }
+
+  private Reader getOrRegisterReader() {
+    Reader reader = myReader.get();
+    if (reader == null) {
+      reader = new Reader(Thread.currentThread());
+      myReaders.add(reader);
+      myReader.set(reader);
+    }
+    return reader;
+  }
+
+  void readLockInterruptibly() throws InterruptedException {
+    Reader reader = getOrRegisterReader();
+    if (reader.holdCount > 0) {
+      reader.holdCount++;
+      return;
+    }
+    while (true) {
+      reader.readRequested = true;
+      Thread writer = myWriter;
+      if (writer == null || writer == reader.thread) {
+        reader.holdCount = 1;
+        return;
+      }
+      reader.readRequested = false;
+      synchronized (myMonitor) {
+        myMonitor.notifyAll(); // the writer may be waiting for this reader
+        while (myWriter != null) {
+          myMonitor.wait();
+        }
+      }
+    }
+  }
+
+  boolean tryReadLock() {
+    Reader reader = getOrRegisterReader();
+    if (reader.holdCount > 0) {
+      reader.holdCount++;
+      return true;
+    }
+    reader.readRequested = true;
+    Thread writer = myWriter;
+    if (writer == null || writer == reader.thread) {
+      reader.holdCount = 1;
+      return true;
+    }
+    reader.readRequested = false;
+    synchronized (myMonitor) {
+      myMonitor.notifyAll();
+    }
+    return false;
+  }
+
+  void readUnlock() {
+    Reader reader = myReader.get();
+    if (reader == null || reader.holdCount <= 0) {
+      throw new IllegalMonitorStateException("Read lock is not held by " + Thread.currentThread());
+    }
+    if (--reader.holdCount > 0) return;
+    reader.readRequested = false;
+    if (myWriter != null) {
+      synchronized (myMonitor) {
+        myMonitor.notifyAll();
+      }
+    }
+  }
+
+  int getReadHoldCount() {
+    Reader reader = myReader.get();
+    return reader == null ? 0 : reader.holdCount;
+  }
+
+  void writeLockInterruptibly() throws InterruptedException {
+    Thread current = Thread.currentThread();
+    if (myWriter == current && myWriteHoldCount > 0) {
+      myWriteHoldCount++;
+      return;
+    }
+    checkNoReadLock();
+    synchronized (myMonitor) {
+      while (myWriter != null) {
+        myMonitor.wait();
+      }
+      myWriter = current;
+      try {
+        while (hasActiveReaders()) {
+          myMonitor.wait();
+        }
+      }
+      catch (InterruptedException e) {
+        myWriter = null;
+        myMonitor.notifyAll();
+        throw e;
+      }
+    }
+    myWriteHoldCount = 1;
+  }
+
+  boolean tryWriteLock() {
+    Thread current = Thread.currentThread();
+    if (myWriter == current && myWriteHoldCount > 0) {
+      myWriteHoldCount++;
+      return true;
+    }
+    checkNoReadLock();
+    synchronized (myMonitor) {
+      if (myWriter != null) return false;
+      myWriter = current;
+      if (hasActiveReaders()) {
+        myWriter = null;
+        myMonitor.notifyAll();
+        return false;
+      }
+    }
+    myWriteHoldCount = 1;
+    return true;
+  }
+
+  void writeUnlock() {
+    if (!isWriteLockedByCurrentThread()) {
+      throw new IllegalMonitorStateException("Write lock is not held by " + Thread.currentThread());
+    }
+    if (--myWriteHoldCount > 0) return;
+    synchronized (myMonitor) {
+      myWriter = null;
+      myMonitor.notifyAll();
+    }
+  }
+
+  private void checkNoReadLock() {
+    if (getReadHoldCount() > 0) {
+      throw new IllegalMonitorStateException("Read lock held by " + Thread.currentThread() + " can't be upgraded to write lock");
+    }
+  }
+
+  boolean isWriteLockedByCurrentThread() {
+    return myWriter == Thread.currentThread() && myWriteHoldCount > 0;
+  }
+
+  // called by the writer under myMonitor after publishing itself in myWriter; the writer holds no read lock, so its own flag is clear
+  private boolean hasActiveReaders() {
+    for (Iterator<Reader> iterator = myReaders.iterator(); iterator.hasNext(); ) {
+      Reader reader = iterator.next();
+      if (reader.readRequested) return true;
+      if (!reader.thread.isAlive()) {
+        iterator.remove();
+      }
+    }
+    return false;
+  }
+}
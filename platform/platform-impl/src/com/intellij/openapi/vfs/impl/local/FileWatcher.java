@@ -40,11 +40,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.intellij.util.containers.ContainerUtil.*;
 
@@ -74,6 +72,10 @@ public class FileWatcher {
   @NonNls private static final String EXIT_COMMAND = "EXIT";
 
   private static final int MAX_PROCESS_LAUNCH_ATTEMPT_COUNT = 10;
+  // changed files of a directory which are reported between two refreshes one by one, more make the directory itself dirty
+  static final int MAX_DIRTY_FILES_PER_DIRECTORY = 50;
+  // dirty paths accumulated between two refreshes, more make the whole file system dirty as on RESET
+  static final int MAX_DIRTY_PATHS = 100000;
 
   private final ManagingFS myManagingFS;
   private final File myExecutable;
@@ -89,7 +91,79 @@ public class FileWatcher {
   private volatile List<Pair<String, String>> myMapping = emptyList();
 
   private final Object myLock = new Object();
-  private DirtyPaths myDirtyPaths = new DirtyPaths();
+  private DirtyPathsCollector myDirtyPaths = new DirtyPathsCollector();
+  private final AtomicLong myReceivedEvents = new AtomicLong();
+  private final AtomicLong myReportedDirtyPaths = new AtomicLong();
+
+  /**
+   * Coalesces paths reported by the watcher between two refreshes: duplicates are dropped, files of a directory with too many
+   * changed files are replaced by the directory, and paths covered by a dirty directory aren't added.
+   */
+  static class DirtyPathsCollector {
+    private final Set<String> myPaths = new LinkedHashSet<String>();
+    private final Set<String> myPathsRecursive = new LinkedHashSet<String>();
+    private final Set<String> myDirectories = new LinkedHashSet<String>();
+    private final Map<String, List<String>> myPathsByParent = new HashMap<String, List<String>>();
+    private boolean myOverflow;
+
+    void addPath(@NotNull String path) {
+      if (myOverflow || myPathsRecursive.contains(path) || myDirectories.contains(path)) return;
+      String parent = new File(path).getParent();
+      if (parent != null && (myDirectories.contains(parent) || myPathsRecursive.contains(parent))) return;
+      if (!myPaths.add(path) || parent == null) return;
+
+      List<String> siblings = myPathsByParent.get(parent);
+      if (siblings == null) {
+        myPathsByParent.put(parent, siblings = new SmartList<String>());
+      }
+      siblings.add(path);
+      if (siblings.size() > MAX_DIRTY_FILES_PER_DIRECTORY) {
+        myPaths.removeAll(siblings);
+        myPathsByParent.remove(parent);
+        addDirectory(parent);
+      }
+    }
+
+    void addDirectory(@NotNull String path) {
+      if (myOverflow || myPathsRecursive.contains(path)) return;
+      if (myDirectories.add(path)) {
+        List<String> children = myPathsByParent.remove(path);
+        if (children != null) {
+          myPaths.removeAll(children);
+        }
+      }
+    }
+
+    void addRecursive(@NotNull String path) {
+      myPathsRecursive.add(path);
+    }
+
+    boolean isFull() {
+      return !myOverflow && myPaths.size() + myDirectories.size() + myPathsRecursive.size() > MAX_DIRTY_PATHS;
+    }
+
+    void overflow(@NotNull Collection<String> localRoots) {
+      myPaths.clear();
+      myDirectories.clear();
+      myPathsByParent.clear();
+      myPathsRecursive.clear();
+      myPathsRecursive.addAll(localRoots);
+      myOverflow = true;
+    }
+
+    boolean isOverflow() {
+      return myOverflow;
+    }
+
+    @NotNull
+    DirtyPaths toDirtyPaths() {
+      DirtyPaths dirtyPaths = new DirtyPaths();
+      dirtyPaths.dirtyPaths.addAll(myPaths);
+      dirtyPaths.dirtyDirectories.addAll(myDirectories);
+      dirtyPaths.dirtyPathsRecursive.addAll(myPathsRecursive);
+      return dirtyPaths;
+    }
+  }
 
   /** @deprecated use {@linkplain com.intellij.openapi.vfs.impl.local.LocalFileSystemImpl#getFileWatcher()} (to remove in IDEA 13) */
   public static FileWatcher getInstance() {
@@ -149,11 +223,33 @@ public class FileWatcher {
 
   @NotNull
   public DirtyPaths getDirtyPaths() {
+    DirtyPathsCollector collector;
     synchronized (myLock) {
-      DirtyPaths dirtyPaths = myDirtyPaths;
-      myDirtyPaths = new DirtyPaths();
-      return dirtyPaths;
+      collector = myDirtyPaths;
+      myDirtyPaths = new DirtyPathsCollector();
+    }
+    DirtyPaths dirtyPaths = collector.toDirtyPaths();
+    int count = dirtyPaths.dirtyPaths.size() + dirtyPaths.dirtyDirectories.size() + dirtyPaths.dirtyPathsRecursive.size();
+    long total = myReportedDirtyPaths.addAndGet(count);
+    if (LOG.isDebugEnabled() && count > 0) {
+      LOG.debug("dirty paths: " + count + (collector.isOverflow() ? " (overflow)" : "") +
+                "; total events received: " + myReceivedEvents.get() + ", dirty paths reported: " + total);
     }
+    return dirtyPaths;
+  }
+
+  /**
+   * @return number of change events received from the watcher process since the start
+   */
+  public long getReceivedEventCount() {
+    return myReceivedEvents.get();
+  }
+
+  /**
+   * @return number of dirty paths passed to VFS since the start, after coalescing of the received events
+   */
+  public long getReportedDirtyPathCount() {
+    return myReportedDirtyPaths.get();
   }
 
   @NotNull
@@ -520,7 +616,7 @@ public class FileWatcher {
       VirtualFile[] localRoots = myManagingFS.getLocalRoots();
       synchronized (myLock) {
         for (VirtualFile root : localRoots) {
-          myDirtyPaths.dirtyPathsRecursive.add(root.getPresentableUrl());
+          myDirtyPaths.addRecursive(root.getPresentableUrl());
         }
       }
       notifyOnEvent();
@@ -531,13 +627,14 @@ public class FileWatcher {
         VirtualFile root = LocalFileSystem.getInstance().findFileByPath(path);
         if (root != null) {
           synchronized (myLock) {
-            myDirtyPaths.dirtyPathsRecursive.add(root.getPresentableUrl());
+            myDirtyPaths.addRecursive(root.getPresentableUrl());
           }
         }
         notifyOnEvent();
         return;
       }
 
+      myReceivedEvents.incrementAndGet();
       boolean exactPath = op != WatcherOp.DIRTY && op != WatcherOp.RECDIRTY;
       Collection<String> paths = checkWatchable(path, exactPath, false);
 
@@ -548,32 +645,57 @@ public class FileWatcher {
         return;
       }
 
+      boolean full;
       synchronized (myLock) {
         switch (op) {
           case STATS:
           case CHANGE:
-            myDirtyPaths.dirtyPaths.addAll(paths);
+            for (String p : paths) {
+              myDirtyPaths.addPath(p);
+            }
             break;
 
           case CREATE:
           case DELETE:
             for (String p : paths) {
               String parentPath = new File(p).getParent();
-              myDirtyPaths.dirtyPaths.add(parentPath != null ? parentPath : p);
+              myDirtyPaths.addPath(parentPath != null ? parentPath : p);
             }
             break;
 
           case DIRTY:
-            myDirtyPaths.dirtyDirectories.addAll(paths);
+            for (String p : paths) {
+              myDirtyPaths.addDirectory(p);
+            }
             break;
 
           case RECDIRTY:
-            myDirtyPaths.dirtyPathsRecursive.addAll(paths);
+            for (String p : paths) {
+              myDirtyPaths.addRecursive(p);
+            }
             break;
 
           default:
             LOG.error("Unexpected op: " + op);
         }
+        full = myDirtyPaths.isFull();
+      }
+      if (full) {
+        // roots are taken outside of the lock: the file system may need its own locks for that
+        List<String> localRoots = newArrayList();
+        for (VirtualFile root : myManagingFS.getLocalRoots()) {
+          localRoots.add(root.getPresentableUrl());
+        }
+        synchronized (myLock) {
+          // the paths may have been taken by a refresh meanwhile
+          full = myDirtyPaths.isFull();
+          if (full) {
+            myDirtyPaths.overflow(localRoots);
+          }
+        }
+        if (full) {
+          LOG.info("too many changes reported by the watcher, all local roots are marked dirty");
+        }
       }
 
       notifyOnEvent();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2012 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,12 +29,15 @@ import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
 import com.intellij.openapi.util.io.ByteSequence;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.ConcurrentHashMap;
 import com.intellij.util.containers.IntArrayList;
+import com.intellij.util.containers.SLRUMap;
 import com.intellij.util.io.*;
 import com.intellij.util.io.DataOutputStream;
 import com.intellij.util.io.storage.*;
 import gnu.trove.TIntArrayList;
+import gnu.trove.TIntLongHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -95,6 +98,20 @@ public class FSRecords implements Forceable {
   private static final int FREE_RECORD_FLAG = 0x100;
   private static final int ALL_VALID_FLAGS = PersistentFS.ALL_VALID_FLAGS | FREE_RECORD_FLAG;
 
+  // files written with the same content as a recently written one share its content record instead of compressing and storing a copy
+  private static final boolean ourShareContents = SystemProperties.getBooleanProperty("idea.share.contents", true);
+  private static final int MAX_SHARED_CONTENT_LENGTH = 1024 * 1024;
+  // content hash -> content record, both maps are guarded by the write lock
+  private static final SLRUMap<Long, Integer> ourRecentContents = new SLRUMap<Long, Integer>(1024, 1024) {
+    @Override
+    protected void onDropFromCache(Long hash, Integer record) {
+      if (ourRecentContentHashes.containsKey(record) && ourRecentContentHashes.get(record) == hash) {
+        ourRecentContentHashes.remove(record);
+      }
+    }
+  };
+  private static final TIntLongHashMap ourRecentContentHashes = new TIntLongHashMap();
+
   static {
     //noinspection ConstantConditions
     assert HEADER_SIZE <= RECORD_SIZE;
@@ -423,6 +440,7 @@ public class FSRecords implements Forceable {
         Disposer.dispose(myContents);
         myContents = null;
       }
+      ourRecentContents.clear();
 
       if (myRecords != null) {
         markClean();
@@ -576,7 +594,7 @@ public class FSRecords implements Forceable {
   private static void deleteContentAndAttributes(int id) throws IOException {
     int content_page = getContentRecordId(id);
     if (content_page != 0) {
-      getContentStorage().releaseRecord(content_page);
+      releaseContentRecord(content_page);
     }
 
     int att_page = getAttributeRecordId(id);
@@ -1243,11 +1261,122 @@ public class FSRecords implements Forceable {
 
   public static void releaseContent(int contentId) {
     try {
-      getContentStorage().releaseRecord(contentId);
+      w.lock();
+      releaseContentRecord(contentId);
     }
     catch (Throwable e) {
       throw DbConnection.handleError(e);
     }
+    finally {
+      w.unlock();
+    }
+  }
+
+  // called under the write lock
+  private static void releaseContentRecord(int record) throws IOException {
+    RefCountingStorage contentStorage = getContentStorage();
+    contentStorage.releaseRecord(record);
+    if (contentStorage.getRefCount(record) == 0) {
+      forgetContent(record); // the record is deleted and its id may be reused for another content
+    }
+  }
+
+  /**
+   * Returns a live content record with exactly the given bytes acquired for the caller, or 0. The bytes are compared outside
+   * the write lock, meanwhile the acquired record is neither deleted nor rewritten in place.
+   */
+  private static int acquireRecentContent(long hash, @NotNull ByteSequence bytes) throws IOException {
+    RefCountingStorage contentStorage = getContentStorage();
+    int record;
+    try {
+      w.lock();
+      Integer remembered = ourRecentContents.get(hash);
+      if (remembered == null) return 0;
+      record = remembered;
+    }
+    finally {
+      w.unlock();
+    }
+
+    contentStorage.waitForPendingWriteForRecord(record);
+    try {
+      w.lock();
+      // the record is forgotten if it was deleted or rewritten in place meanwhile
+      if (!isRemembered(hash, record) || contentStorage.getRefCount(record) == 0) return 0;
+      contentStorage.acquireRecord(record);
+    }
+    finally {
+      w.unlock();
+    }
+
+    boolean equal = false;
+    try {
+      equal = contentEquals(record, bytes);
+      return equal ? record : 0;
+    }
+    finally {
+      if (!equal) {
+        try {
+          w.lock();
+          forgetContent(record);
+          releaseContentRecord(record);
+        }
+        finally {
+          w.unlock();
+        }
+      }
+    }
+  }
+
+  private static boolean isRemembered(long hash, int record) {
+    return ourRecentContentHashes.containsKey(record) && ourRecentContentHashes.get(record) == hash;
+  }
+
+  // called under the write lock, the record must not be rewritten while it's remembered
+  private static void rememberContent(long hash, int record) {
+    forgetContent(record);
+    ourRecentContents.put(hash, record);
+    ourRecentContentHashes.put(record, hash);
+  }
+
+  private static void forgetContent(int record) {
+    if (ourRecentContentHashes.containsKey(record)) {
+      ourRecentContents.remove(ourRecentContentHashes.get(record));
+      ourRecentContentHashes.remove(record);
+    }
+  }
+
+  private static boolean contentEquals(int record, @NotNull ByteSequence bytes) throws IOException {
+    DataInputStream stream = getContentStorage().readStream(record);
+    try {
+      int length = bytes.getLength();
+      if (stream.available() != length) return false;
+      byte[] expected = bytes.getBytes();
+      int offset = bytes.getOffset();
+      byte[] buffer = new byte[Math.min(length, 8192)];
+      for (int start = 0; start < length; start += buffer.length) {
+        int count = Math.min(buffer.length, length - start);
+        stream.readFully(buffer, 0, count);
+        for (int i = 0; i < count; i++) {
+          if (buffer[i] != expected[offset + start + i]) return false;
+        }
+      }
+      return true;
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  // 64-bit FNV-1a, collisions are resolved by comparing the contents
+  private static long contentHash(@NotNull ByteSequence bytes) {
+    long hash = 0xcbf29ce484222325L;
+    byte[] buffer = bytes.getBytes();
+    for (int i = bytes.getOffset(), end = i + bytes.getLength(); i < end; i++) {
+      hash ^= buffer[i] & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
   }
 
   public static int getContentId(int fileId) {
@@ -1318,6 +1447,9 @@ public class FSRecords implements Forceable {
     public void writeBytes(ByteSequence bytes, int fileId) throws IOException {
       final int page;
       RefCountingStorage contentStorage = getContentStorage();
+      boolean shared = ourShareContents && bytes.getLength() <= MAX_SHARED_CONTENT_LENGTH;
+      long hash = shared ? contentHash(bytes) : 0;
+      int sharedRecordId = shared ? acquireRecentContent(hash, bytes) : 0;
       try {
         w.lock();
         incModCount(fileId);
@@ -1325,10 +1457,22 @@ public class FSRecords implements Forceable {
         checkFileIsValid(myFileId);
 
         int recordId = getContentRecordId(myFileId);
+        if (sharedRecordId != 0) {
+          if (recordId != 0) releaseContentRecord(recordId);
+          setContentRecordId(myFileId, sharedRecordId);
+          return;
+        }
+
         if (recordId == 0 || contentStorage.getRefCount(recordId) > 1) {
           recordId = contentStorage.acquireNewRecord();
           setContentRecordId(myFileId, recordId);
         }
+        else {
+          forgetContent(recordId); // rewritten in place, nobody should start sharing its old content
+        }
+        if (shared) {
+          rememberContent(hash, recordId);
+        }
 
         page = recordId;
       }
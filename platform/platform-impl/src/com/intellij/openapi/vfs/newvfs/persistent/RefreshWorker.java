@@ -15,11 +15,14 @@
  */
 package com.intellij.openapi.vfs.newvfs.persistent;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileAttributes;
+import com.intellij.openapi.util.io.FileSystemUtil;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
@@ -27,28 +30,48 @@ import com.intellij.openapi.vfs.newvfs.NewVirtualFileSystem;
 import com.intellij.openapi.vfs.newvfs.events.*;
 import com.intellij.openapi.vfs.newvfs.impl.FakeVirtualFile;
 import com.intellij.openapi.vfs.newvfs.impl.VirtualDirectoryImpl;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.concurrency.BoundedTaskExecutor;
 import com.intellij.util.containers.Queue;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.ide.PooledThreadExecutor;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static com.intellij.openapi.diagnostic.LogUtil.debug;
 import static com.intellij.util.containers.ContainerUtil.newHashSet;
 
 /**
+ * Compares the state of files in VFS with their state on disk and collects events describing the difference.
+ * <p/>
+ * Directories are processed in breadth-first order by a single thread, so events always come in the same order. For the local
+ * file system listings of directories and attributes of their children, which take most of the time, are fetched ahead
+ * in parallel for the next {@link #PREFETCH_WINDOW} directories in the queue.
+ *
  * @author max
  */
 public class RefreshWorker {
   private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.vfs.newvfs.persistent.RefreshWorker");
+  private static final int PREFETCH_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+  private static final int PREFETCH_WINDOW = 4 * PREFETCH_THREADS;
+  private static final BoundedTaskExecutor ourPrefetchExecutor = new BoundedTaskExecutor(new PooledThreadExecutor(), PREFETCH_THREADS);
+  private static volatile boolean ourPrefetchEnabled = true;
 
   private final boolean myIsRecursive;
   private final Queue<Pair<NewVirtualFile, FileAttributes>> myRefreshQueue = new Queue<Pair<NewVirtualFile, FileAttributes>>(100);
   private final List<VFileEvent> myEvents = new ArrayList<VFileEvent>();
   private volatile boolean myCancelled = false;
+  private boolean myPrefetch;
+  // queued directories which are not prefetched yet, in the order of the refresh queue
+  private final LinkedList<VirtualDirectoryImpl> myPendingPrefetches = new LinkedList<VirtualDirectoryImpl>();
+  private final Map<VirtualFile, Future<ChildrenData>> myPrefetches = new THashMap<VirtualFile, Future<ChildrenData>>();
 
   public RefreshWorker(@NotNull NewVirtualFile refreshRoot, boolean isRecursive) {
     myIsRecursive = isRecursive;
@@ -64,6 +87,11 @@ public class RefreshWorker {
     myCancelled = true;
   }
 
+  @TestOnly
+  public static void setPrefetchEnabled(boolean enabled) {
+    ourPrefetchEnabled = enabled;
+  }
+
   public void scan() {
     NewVirtualFile root = myRefreshQueue.pullFirst().first;
     boolean rootDirty = root.isDirty();
@@ -81,12 +109,31 @@ public class RefreshWorker {
       fs = PersistentFS.replaceWithNativeFS(fs);
     }
     myRefreshQueue.addLast(Pair.create(root, rootAttributes));
+    myPrefetch = ourPrefetchEnabled && fs instanceof LocalFileSystem && ApplicationManager.getApplication() != null;
+    if (root instanceof VirtualDirectoryImpl) {
+      schedulePrefetch(root);
+    }
+    try {
+      processQueue(fs);
+    }
+    finally {
+      for (Future<ChildrenData> future : myPrefetches.values()) {
+        future.cancel(false);
+      }
+      myPrefetches.clear();
+      myPendingPrefetches.clear();
+    }
+  }
+
+  private void processQueue(@NotNull NewVirtualFileSystem fs) {
     PersistentFS persistence = PersistentFS.getInstance();
 
     main:
     while (!myRefreshQueue.isEmpty() && !myCancelled) {
+      startPrefetches();
       Pair<NewVirtualFile, FileAttributes> pair = myRefreshQueue.pullFirst();
       NewVirtualFile file = pair.first;
+      ChildrenData prefetched = getPrefetched(file);
       boolean fileDirty = file.isDirty();
       debug(LOG, "file=%s dirty=%b", file, fileDirty);
       if (!fileDirty) continue;
@@ -110,7 +157,8 @@ public class RefreshWorker {
         boolean fullSync = dir.allChildrenLoaded();
         if (fullSync) {
           Set<String> currentNames = newHashSet(persistence.list(file));
-          Set<String> upToDateNames = newHashSet(VfsUtil.filterNames(fs.list(file)));
+          String[] names = prefetched != null && prefetched.names != null ? prefetched.names : VfsUtil.filterNames(fs.list(file));
+          Set<String> upToDateNames = newHashSet(names);
           Set<String> newNames = newHashSet(upToDateNames);
           newNames.removeAll(currentNames);
           Set<String> deletedNames = newHashSet(currentNames);
@@ -123,7 +171,7 @@ public class RefreshWorker {
 
           for (String name : newNames) {
             if (myCancelled) break main;
-            FileAttributes childAttributes = fs.getAttributes(new FakeVirtualFile(file, name));
+            FileAttributes childAttributes = getAttributes(fs, new FakeVirtualFile(file, name), prefetched);
             if (childAttributes != null) {
               scheduleCreation(file, name, childAttributes.isDirectory());
             }
@@ -135,7 +183,7 @@ public class RefreshWorker {
           for (VirtualFile child : file.getChildren()) {
             if (myCancelled) break main;
             if (!deletedNames.contains(child.getName())) {
-              FileAttributes childAttributes = fs.getAttributes(child);
+              FileAttributes childAttributes = getAttributes(fs, child, prefetched);
               if (childAttributes != null) {
                 checkAndScheduleChildRefresh(file, child, childAttributes);
               }
@@ -151,7 +199,7 @@ public class RefreshWorker {
           debug(LOG, "cached=%s", cachedChildren);
           for (VirtualFile child : cachedChildren) {
             if (myCancelled) break main;
-            FileAttributes childAttributes = fs.getAttributes(child);
+            FileAttributes childAttributes = getAttributes(fs, child, prefetched);
             if (childAttributes != null) {
               checkAndScheduleChildRefresh(file, child, childAttributes);
             }
@@ -167,7 +215,7 @@ public class RefreshWorker {
             if (name.isEmpty()) continue;
 
             VirtualFile fake = new FakeVirtualFile(file, name);
-            FileAttributes childAttributes = fs.getAttributes(fake);
+            FileAttributes childAttributes = getAttributes(fs, fake, prefetched);
             if (childAttributes != null) {
               scheduleCreation(file, name, childAttributes.isDirectory());
             }
@@ -205,10 +253,102 @@ public class RefreshWorker {
       boolean upToDateIsDirectory = childAttributes.isDirectory();
       if (myIsRecursive || !upToDateIsDirectory) {
         myRefreshQueue.addLast(Pair.create((NewVirtualFile)child, childAttributes));
+        if (upToDateIsDirectory && child instanceof VirtualDirectoryImpl && ((VirtualDirectoryImpl)child).isDirty()) {
+          schedulePrefetch((VirtualDirectoryImpl)child);
+        }
       }
     }
   }
 
+  /**
+   * Directory listing and attributes of children fetched from the file system ahead of the directory processing.
+   */
+  private static class ChildrenData {
+    // filtered listing of the directory, or null if only the attributes of known children were fetched
+    @Nullable private final String[] names;
+    // child name -> its attributes, or null if the child doesn't exist
+    private final Map<String, FileAttributes> attributes;
+
+    private ChildrenData(@Nullable String[] names, @NotNull Map<String, FileAttributes> attributes) {
+      this.names = names;
+      this.attributes = attributes;
+    }
+  }
+
+  private void schedulePrefetch(@NotNull NewVirtualFile dir) {
+    // roots are listed by the file system in a special way, so they are processed without prefetching
+    if (myPrefetch && dir.getParent() != null) {
+      myPendingPrefetches.addLast((VirtualDirectoryImpl)dir);
+    }
+  }
+
+  private void startPrefetches() {
+    while (myPrefetches.size() < PREFETCH_WINDOW && !myPendingPrefetches.isEmpty()) {
+      VirtualDirectoryImpl dir = myPendingPrefetches.removeFirst();
+      final List<String> knownNames;
+      if (dir.allChildrenLoaded()) {
+        knownNames = null;
+      }
+      else {
+        knownNames = new ArrayList<String>();
+        for (VirtualFile child : dir.getCachedChildren()) {
+          knownNames.add(child.getName());
+        }
+        knownNames.addAll(dir.getSuspiciousNames());
+      }
+      // VFS is accessed by this thread only: worker threads get the path of the directory and the names of its children, and query
+      // the file system by java.io.File the same way the local file system does for non-root directories
+      final File ioDir = new File(FileUtil.toSystemDependentName(dir.getPath()));
+
+      myPrefetches.put(dir, ourPrefetchExecutor.submit(new Callable<ChildrenData>() {
+        @Override
+        public ChildrenData call() {
+          String[] names = null;
+          if (knownNames == null) {
+            String[] list = ioDir.list();
+            names = VfsUtil.filterNames(list != null ? list : ArrayUtil.EMPTY_STRING_ARRAY);
+          }
+          Collection<String> toFetch = names != null ? Arrays.asList(names) : knownNames;
+          Map<String, FileAttributes> attributes = new THashMap<String, FileAttributes>(toFetch.size());
+          for (String name : toFetch) {
+            if (myCancelled) break;
+            if (!name.isEmpty()) {
+              attributes.put(name, FileSystemUtil.getAttributes(new File(ioDir, name)));
+            }
+          }
+          return new ChildrenData(names, attributes);
+        }
+      }));
+    }
+  }
+
+  @Nullable
+  private ChildrenData getPrefetched(@NotNull VirtualFile file) {
+    Future<ChildrenData> future = myPrefetches.remove(file);
+    if (future == null) return null;
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      LOG.info(e);
+    }
+    return null;
+  }
+
+  @Nullable
+  private static FileAttributes getAttributes(@NotNull NewVirtualFileSystem fs,
+                                             @NotNull VirtualFile file,
+                                             @Nullable ChildrenData prefetched) {
+    // children which appeared in VFS after the prefetch, or differ from the listing by case, are checked directly
+    if (prefetched != null && prefetched.attributes.containsKey(file.getName())) {
+      return prefetched.attributes.get(file.getName());
+    }
+    return fs.getAttributes(file);
+  }
+
   private boolean checkAndScheduleAttributesChange(@NotNull VirtualFile parent,
                                                    @NotNull VirtualFile child,
                                                    @NotNull FileAttributes childAttributes) {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.diagnostic;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.testFramework.UsefulTestCase;
+import com.intellij.util.lang.UrlClassLoader;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class StartupTimelineTest extends UsefulTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    StartupTimeline.setEnabled(true);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      StartupTimeline.setEnabled(false);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testNestedPhases() throws Exception {
+    StartupTimeline.Event component = StartupTimeline.start(StartupTimeline.COMPONENT, "test.component");
+    assertNotNull(component);
+    StartupTimeline.Event activity = StartupTimeline.start(StartupTimeline.ACTIVITY, "test.activity");
+    assertNotNull(activity);
+    loadClassesInNewLoader();
+    activity.end();
+    component.end();
+
+    String json = StartupTimeline.toJson();
+    Matcher activityMatcher = findEvent(json, StartupTimeline.ACTIVITY, "test.activity");
+    Matcher componentMatcher = findEvent(json, StartupTimeline.COMPONENT, "test.component");
+    long activityClassLoading = Long.parseLong(activityMatcher.group(2));
+    assertTrue(json, activityClassLoading > 0);
+    assertTrue(json, Long.parseLong(activityMatcher.group(3)) >= 2);
+    assertTrue(json, Long.parseLong(componentMatcher.group(1)) >= Long.parseLong(activityMatcher.group(1)));
+    assertTrue(json, Long.parseLong(componentMatcher.group(2)) >= activityClassLoading);
+    // events are exported in the order they have ended
+    assertTrue(json, activityMatcher.start() < componentMatcher.start());
+  }
+
+  public void testDisabled() {
+    StartupTimeline.setEnabled(false);
+    assertNull(StartupTimeline.start(StartupTimeline.ACTIVITY, "test.disabled"));
+    assertFalse(StartupTimeline.toJson().contains("test.disabled"));
+  }
+
+  private static Matcher findEvent(String json, String category, String name) {
+    Pattern pattern = Pattern.compile("\\{\"category\": \"" + category + "\", \"name\": \"" + Pattern.quote(name) + "\"" +
+                                      ", \"thread\": \"[^\"]*\", \"start\": \\d+, \"duration\": (\\d+)" +
+                                      ", \"classLoading\": (\\d+), \"loadedClasses\": (\\d+)}");
+    Matcher matcher = pattern.matcher(json);
+    assertTrue(json, matcher.find());
+    return matcher;
+  }
+
+  private static void loadClassesInNewLoader() throws Exception {
+    URL url = new File(PathManager.getJarPathForClass(UrlClassLoader.class)).toURI().toURL();
+    UrlClassLoader loader = new UrlClassLoader(Collections.singletonList(url), null);
+    for (String name : new String[]{"com.intellij.util.lang.UrlClassLoader", "com.intellij.util.lang.ClassPath"}) {
+      assertSame(loader, Class.forName(name, false, loader).getClassLoader());
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.execution.impl;
+
+import com.intellij.execution.filters.CompositeFilter;
+import com.intellij.execution.filters.Filter;
+import com.intellij.execution.filters.UrlFilter;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.editor.impl.DocumentImpl;
+import com.intellij.testFramework.LightPlatformTestCase;
+
+public class ConsoleViewImplTest extends LightPlatformTestCase {
+  private static final String LINES = "at http://a.com\nat http://b.com\n";
+
+  public void testFilterResultsFollowTrimmedDocumentStart() {
+    Document document = new DocumentImpl("first\n" + LINES + "last\n");
+    RangeMarker marker = document.createRangeMarker(6, 6 + LINES.length());
+
+    deleteString(document, 0, 6);
+    assertEquals(Integer.valueOf(-6), ConsoleViewImpl.getFilterResultsShift(document, marker, 6, LINES));
+
+    insertString(document, document.getTextLength(), "more\n");
+    assertEquals(Integer.valueOf(-6), ConsoleViewImpl.getFilterResultsShift(document, marker, 6, LINES));
+  }
+
+  public void testFilterResultsOfChangedLinesAreStale() {
+    Document document = new DocumentImpl(LINES + "last\n");
+    RangeMarker marker = document.createRangeMarker(0, LINES.length());
+
+    // the same length, but other text, as after '\r' is processed
+    deleteString(document, 3, 7);
+    insertString(document, 3, "ftp:");
+    assertNull(ConsoleViewImpl.getFilterResultsShift(document, marker, 0, LINES));
+  }
+
+  public void testFilterResultsOfTrimmedLinesAreStale() {
+    Document document = new DocumentImpl(LINES + "last\n");
+    RangeMarker marker = document.createRangeMarker(0, LINES.length());
+
+    deleteString(document, 0, 10);
+    assertNull(ConsoleViewImpl.getFilterResultsShift(document, marker, 0, LINES));
+    deleteString(document, 0, document.getTextLength());
+    assertNull(ConsoleViewImpl.getFilterResultsShift(document, marker, 0, LINES));
+  }
+
+  public void testOnlyMarkedFiltersRunInBackground() {
+    CompositeFilter filter = new CompositeFilter(getProject());
+    filter.addFilter(new UrlFilter());
+    assertTrue(filter.canRunInBackground());
+
+    filter.addFilter(new Filter() {
+      @Override
+      public Result applyFilter(String line, int entireLength) {
+        return null;
+      }
+    });
+    assertFalse(filter.canRunInBackground());
+  }
+
+  private static void deleteString(final Document document, final int start, final int end) {
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.deleteString(start, end);
+      }
+    });
+  }
+
+  private static void insertString(final Document document, final int offset, final String text) {
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.insertString(offset, text);
+      }
+    });
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.application.impl;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.testFramework.LightPlatformTestCase;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.ThrowableRunnable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReadMostlyRWLockTest extends LightPlatformTestCase {
+  public void testPendingWriterBlocksNewReaders() throws Exception {
+    final ReadMostlyRWLock lock = new ReadMostlyRWLock();
+    final CountDownLatch readAcquired = new CountDownLatch(1);
+    final CountDownLatch readReleased = new CountDownLatch(1);
+    final AtomicBoolean writeAcquired = new AtomicBoolean();
+
+    Thread reader = new Thread("reader") {
+      @Override
+      public void run() {
+        try {
+          lock.readLockInterruptibly();
+          readAcquired.countDown();
+          readReleased.await();
+          lock.readUnlock();
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    reader.start();
+    assertTrue(readAcquired.await(10, TimeUnit.SECONDS));
+
+    Thread writer = new Thread("writer") {
+      @Override
+      public void run() {
+        try {
+          lock.writeLockInterruptibly();
+          writeAcquired.set(true);
+          lock.writeUnlock();
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    writer.start();
+
+    // as soon as the writer is pending, new readers must back off
+    long deadline = System.currentTimeMillis() + 10000;
+    while (tryReadLockInAnotherThread(lock)) {
+      assertTrue("writer hasn't requested the lock", System.currentTimeMillis() < deadline);
+      Thread.sleep(1);
+    }
+    assertFalse(writeAcquired.get());
+
+    readReleased.countDown();
+    writer.join(10000);
+    reader.join(10000);
+    assertTrue(writeAcquired.get());
+    assertTrue(tryReadLockInAnotherThread(lock));
+  }
+
+  public void testReentrancy() throws Exception {
+    ReadMostlyRWLock lock = new ReadMostlyRWLock();
+    lock.writeLockInterruptibly();
+    lock.writeLockInterruptibly();
+    lock.readLockInterruptibly();
+    assertEquals(1, lock.getReadHoldCount());
+    lock.readUnlock();
+    lock.writeUnlock();
+    assertTrue(lock.isWriteLockedByCurrentThread());
+    assertFalse(tryReadLockInAnotherThread(lock));
+    lock.writeUnlock();
+    assertFalse(lock.isWriteLockedByCurrentThread());
+    assertTrue(tryReadLockInAnotherThread(lock));
+  }
+
+  public void testReadLockIsNotUpgraded() throws Exception {
+    ReadMostlyRWLock lock = new ReadMostlyRWLock();
+    lock.readLockInterruptibly();
+    try {
+      lock.writeLockInterruptibly();
+      fail();
+    }
+    catch (IllegalMonitorStateException ignored) {
+    }
+    try {
+      lock.tryWriteLock();
+      fail();
+    }
+    catch (IllegalMonitorStateException ignored) {
+    }
+    assertFalse(lock.isWriteLockedByCurrentThread());
+    assertTrue(tryReadLockInAnotherThread(lock));
+    lock.readUnlock();
+
+    assertTrue(lock.tryWriteLock());
+    lock.writeUnlock();
+  }
+
+  public void testUnlockWithoutLock() {
+    ReadMostlyRWLock lock = new ReadMostlyRWLock();
+    assertEquals(0, lock.getReadHoldCount());
+    try {
+      lock.readUnlock();
+      fail();
+    }
+    catch (IllegalMonitorStateException ignored) {
+    }
+  }
+
+  public void testReadActionThroughput() throws Exception {
+    final Application application = ApplicationManager.getApplication();
+    final int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+    final int iterations = 1000000;
+
+    PlatformTestUtil.startPerformanceTest("runReadAction() throughput", 4000, new ThrowableRunnable() {
+      @Override
+      public void run() throws Exception {
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+          threads[i] = new Thread("reader " + i) {
+            @Override
+            public void run() {
+              for (int j = 0; j < iterations; j++) {
+                application.runReadAction(EmptyRunnable.INSTANCE);
+              }
+            }
+          };
+          threads[i].start();
+        }
+        for (Thread thread : threads) {
+          thread.join();
+        }
+      }
+    }).assertTiming();
+  }
+
+  private static boolean tryReadLockInAnotherThread(final ReadMostlyRWLock lock) throws InterruptedException {
+    final AtomicReference<Boolean> result = new AtomicReference<Boolean>();
+    Thread thread = new Thread("try reader") {
+      @Override
+      public void run() {
+        boolean acquired = lock.tryReadLock();
+        if (acquired) {
+          lock.readUnlock();
+        }
+        result.set(acquired);
+      }
+    };
+    thread.start();
+    thread.join(10000);
+    return result.get();
+  }
+}
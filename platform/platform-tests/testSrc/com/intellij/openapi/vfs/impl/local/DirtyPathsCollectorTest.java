@@ -0,0 +1,113 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.vfs.impl.local;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DirtyPathsCollectorTest {
+  private static final String DIR = "dir";
+
+  @Test
+  public void duplicatesAreDropped() {
+    FileWatcher.DirtyPathsCollector collector = new FileWatcher.DirtyPathsCollector();
+    collector.addPath(child("other", "a"));
+    collector.addPath(child("other", "a"));
+    collector.addDirectory(DIR);
+    collector.addDirectory(DIR);
+
+    FileWatcher.DirtyPaths paths = collector.toDirtyPaths();
+    assertEquals(Arrays.asList(child("other", "a")), paths.dirtyPaths);
+    assertEquals(Arrays.asList(DIR), paths.dirtyDirectories);
+  }
+
+  @Test
+  public void manyFilesOfDirectoryAreReplacedByDirectory() {
+    FileWatcher.DirtyPathsCollector collector = new FileWatcher.DirtyPathsCollector();
+    String other = child("other", "a");
+    collector.addPath(other);
+    List<String> expected = new ArrayList<String>();
+    expected.add(other);
+    for (int i = 0; i < FileWatcher.MAX_DIRTY_FILES_PER_DIRECTORY; i++) {
+      String file = child(DIR, "f" + i);
+      collector.addPath(file);
+      expected.add(file);
+    }
+    assertEquals(expected, collector.toDirtyPaths().dirtyPaths);
+
+    collector.addPath(child(DIR, "last"));
+    FileWatcher.DirtyPaths paths = collector.toDirtyPaths();
+    assertEquals(Arrays.asList(other), paths.dirtyPaths);
+    assertEquals(Arrays.asList(DIR), paths.dirtyDirectories);
+
+    // the directory covers files changed after it
+    collector.addPath(child(DIR, "more"));
+    assertEquals(Arrays.asList(other), collector.toDirtyPaths().dirtyPaths);
+  }
+
+  @Test
+  public void pathsCoveredByParentAreDropped() {
+    FileWatcher.DirtyPathsCollector collector = new FileWatcher.DirtyPathsCollector();
+    String recursive = "recursive";
+    collector.addPath(child(DIR, "before"));
+    collector.addDirectory(DIR);
+    collector.addPath(child(DIR, "after"));
+    collector.addRecursive(recursive);
+    collector.addPath(child(recursive, "a"));
+    collector.addPath(recursive);
+    collector.addDirectory(recursive);
+
+    FileWatcher.DirtyPaths paths = collector.toDirtyPaths();
+    assertEquals(Collections.<String>emptyList(), paths.dirtyPaths);
+    assertEquals(Arrays.asList(DIR), paths.dirtyDirectories);
+    assertEquals(Arrays.asList(recursive), paths.dirtyPathsRecursive);
+  }
+
+  @Test
+  public void overflowReplacesAllPathsByRoots() {
+    FileWatcher.DirtyPathsCollector collector = new FileWatcher.DirtyPathsCollector();
+    for (int i = 0; i < FileWatcher.MAX_DIRTY_PATHS; i++) {
+      collector.addPath(child(DIR + i, "a"));
+    }
+    assertFalse(collector.isFull());
+    collector.addDirectory(DIR);
+    assertTrue(collector.isFull());
+
+    List<String> roots = Arrays.asList("root1", "root2");
+    collector.overflow(roots);
+    assertTrue(collector.isOverflow());
+    assertFalse(collector.isFull());
+
+    // everything is dirty already, later changes add nothing
+    collector.addPath(child(DIR, "a"));
+    collector.addDirectory(DIR);
+    FileWatcher.DirtyPaths paths = collector.toDirtyPaths();
+    assertEquals(Collections.<String>emptyList(), paths.dirtyPaths);
+    assertEquals(Collections.<String>emptyList(), paths.dirtyDirectories);
+    assertEquals(roots, paths.dirtyPathsRecursive);
+  }
+
+  private static String child(String parent, String name) {
+    return new File(parent, name).getPath();
+  }
+}
@@ -26,17 +26,21 @@ import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
 import com.intellij.openapi.vfs.newvfs.NewVirtualFileSystem;
 import com.intellij.openapi.vfs.newvfs.RefreshQueue;
 import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.openapi.vfs.newvfs.impl.FakeVirtualFile;
 import com.intellij.openapi.vfs.newvfs.impl.VirtualDirectoryImpl;
 import com.intellij.openapi.vfs.newvfs.impl.VirtualFileSystemEntry;
 import com.intellij.openapi.vfs.newvfs.persistent.PersistentFS;
 import com.intellij.openapi.vfs.newvfs.persistent.PersistentFSImpl;
+import com.intellij.openapi.vfs.newvfs.persistent.RefreshWorker;
 import com.intellij.testFramework.PlatformLangTestCase;
 import com.intellij.testFramework.PlatformTestUtil;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 public class LocalFileSystemTest extends PlatformLangTestCase {
@@ -375,4 +379,58 @@ public class LocalFileSystemTest extends PlatformLangTestCase {
     attributes = lfs.getAttributes(new FakeVirtualFile(fakeRoot, "Users"));
     assertNull(attributes);
   }
+
+  public void testRefreshEventsDoNotDependOnPrefetching() throws Exception {
+    File top = createTempDirectory(false);
+    File a = IoTestUtil.createTestDir(top, "a");
+    File b = IoTestUtil.createTestDir(a, "b");
+    File c = IoTestUtil.createTestDir(b, "c");
+    File d = IoTestUtil.createTestDir(top, "d");
+    File partial = IoTestUtil.createTestDir(top, "partial");
+    IoTestUtil.createTestFile(top, "f0.txt");
+    IoTestUtil.createTestFile(a, "f1.txt");
+    File f2 = IoTestUtil.createTestFile(b, "f2.txt");
+    File f3 = IoTestUtil.createTestFile(c, "f3.txt");
+    IoTestUtil.createTestFile(d, "g.txt");
+    File known = IoTestUtil.createTestFile(partial, "known.txt");
+    IoTestUtil.createTestFile(partial, "unknown.txt");
+
+    VirtualFile vTop = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(top);
+    assertNotNull(vTop);
+    VfsUtilCore.visitChildrenRecursively(vTop, new VirtualFileVisitor() {
+      @Override
+      public boolean visitFile(@NotNull VirtualFile file) {
+        return !"partial".equals(file.getName());
+      }
+    });
+    // only some children of this directory are loaded
+    assertNotNull(LocalFileSystem.getInstance().refreshAndFindFileByIoFile(known));
+
+    IoTestUtil.createTestFile(a, "new.txt");
+    IoTestUtil.createTestDir(b, "newDir");
+    FileUtil.delete(f3);
+    FileUtil.writeToFile(f2, "changed");
+    assertTrue(f2.setLastModified(f2.lastModified() + 2000));
+    FileUtil.delete(d);
+    FileUtil.writeToFile(known, "changed");
+    assertTrue(known.setLastModified(known.lastModified() + 2000));
+
+    List<VFileEvent> expected;
+    RefreshWorker.setPrefetchEnabled(false);
+    try {
+      expected = scan(vTop);
+    }
+    finally {
+      RefreshWorker.setPrefetchEnabled(true);
+    }
+    assertEquals(expected.toString(), 6, expected.size());
+    assertEquals(expected, scan(vTop));
+  }
+
+  private static List<VFileEvent> scan(VirtualFile root) {
+    ((VirtualFileSystemEntry)root).markDirtyRecursively();
+    RefreshWorker worker = new RefreshWorker((NewVirtualFile)root, true);
+    worker.scan();
+    return worker.getEvents();
+  }
 }
@@ -16,6 +16,7 @@
 package com.intellij.util.io;
 
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.ByteSequence;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.io.IoTestUtil;
 import com.intellij.openapi.util.text.StringUtil;
@@ -24,9 +25,11 @@ import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileWithId;
 import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
+import com.intellij.openapi.vfs.newvfs.persistent.FSRecords;
 import com.intellij.openapi.vfs.newvfs.persistent.PersistentFS;
 import com.intellij.testFramework.PlatformTestCase;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
@@ -54,6 +57,48 @@ public class PersistentFSTest extends PlatformTestCase {
     assertNull(PersistentFS.getInstance().findFileById(id));
   }
 
+  public void testIdenticalContentsAreShared() throws Exception {
+    File dir = createTempDirectory();
+    File file1 = new File(dir, "first.txt");
+    File file2 = new File(dir, "second.txt");
+    assertTrue(file1.createNewFile());
+    assertTrue(file2.createNewFile());
+    VirtualFile vFile1 = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file1);
+    VirtualFile vFile2 = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file2);
+    assertNotNull(vFile1);
+    assertNotNull(vFile2);
+    int id1 = ((VirtualFileWithId)vFile1).getId();
+    int id2 = ((VirtualFileWithId)vFile2).getId();
+
+    byte[] content = "shared content".getBytes();
+    FSRecords.writeContent(id1, new ByteSequence(content), false);
+    FSRecords.writeContent(id2, new ByteSequence(content), false);
+    assertEquals(FSRecords.getContentId(id1), FSRecords.getContentId(id2));
+
+    FSRecords.writeContent(id2, new ByteSequence("changed content".getBytes()), false);
+    assertFalse(FSRecords.getContentId(id1) == FSRecords.getContentId(id2));
+    assertTrue(Arrays.equals(content, readContent(id1)));
+    assertTrue(Arrays.equals("changed content".getBytes(), readContent(id2)));
+
+    // compared in several chunks
+    byte[] large = StringUtil.repeat("large shared content\n", 10000).getBytes();
+    FSRecords.writeContent(id1, new ByteSequence(large), false);
+    FSRecords.writeContent(id2, new ByteSequence(large), false);
+    assertEquals(FSRecords.getContentId(id1), FSRecords.getContentId(id2));
+    assertTrue(Arrays.equals(large, readContent(id2)));
+  }
+
+  private static byte[] readContent(int id) throws IOException {
+    DataInputStream stream = FSRecords.readContent(id);
+    assertNotNull(stream);
+    try {
+      return FileUtil.loadBytes(stream);
+    }
+    finally {
+      stream.close();
+    }
+  }
+
   public void testListChildrenOfTheRootOfTheRoot() {
     PersistentFS fs = PersistentFS.getInstance();
     NewVirtualFile fakeRoot = fs.findRoot("", LocalFileSystem.getInstance());
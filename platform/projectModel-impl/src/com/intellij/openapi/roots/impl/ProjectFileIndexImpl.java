@@ -80,8 +80,11 @@ public class ProjectFileIndexImpl implements ProjectFileIndex {
     return true;
   }
 
+  /**
+   * @return info of the directory itself or of the directory containing the file, null if it's not in the project or libraries
+   */
   @Nullable
-  private DirectoryInfo getInfoForFileOrDirectory(@NotNull VirtualFile file) {
+  public DirectoryInfo getInfoForFileOrDirectory(@NotNull VirtualFile file) {
     return getInfoForFileOrDirectory(file, myDirectoryIndex);
   }
 
@@ -34,6 +34,7 @@ import org.jetbrains.annotations.TestOnly;
 
 import java.io.*;
 import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.regex.Pattern;
@@ -61,6 +62,7 @@ public class FileUtil extends FileUtilRt {
     };
 
   private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.util.io.FileUtil");
+  private static final long MAX_TRANSFER_CHUNK = 64 * 1024 * 1024;
 
   @NotNull
   public static String join(@NotNull final String... parts) {
@@ -463,7 +465,7 @@ public class FileUtil extends FileUtilRt {
     try {
       final FileInputStream fis = new FileInputStream(fromFile);
       try {
-        copy(fis, fos);
+        transferContent(fis, fos);
       }
       finally {
         fis.close();
@@ -492,6 +494,26 @@ public class FileUtil extends FileUtilRt {
     }
   }
 
+  /**
+   * Copies file content via {@link FileChannel#transferTo}, which lets the OS copy data without moving it through Java heap buffers
+   */
+  private static void transferContent(@NotNull FileInputStream fis, @NotNull FileOutputStream fos) throws IOException {
+    final FileChannel from = fis.getChannel();
+    final FileChannel to = fos.getChannel();
+    final long size = from.size();
+    long position = 0;
+    while (position < size) {
+      final long transferred = from.transferTo(position, Math.min(size - position, MAX_TRANSFER_CHUNK), to);
+      if (transferred <= 0) break;
+      position += transferred;
+    }
+    if (position < size || from.size() != size) {
+      // the file was changed while copying or the channel doesn't support transferring, so copy the rest using streams
+      from.position(position);
+      copy(fis, fos);
+    }
+  }
+
   private static FileOutputStream openOutputStream(@NotNull final File file) throws IOException {
     try {
       return new FileOutputStream(file);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2010 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,6 +49,8 @@ public class RefCountingStorage extends AbstractStorage {
 
   private final boolean myDoNotZipCaches = Boolean.valueOf(System.getProperty("idea.doNotZipCaches")).booleanValue();
   private static final int MAX_PENDING_WRITE_SIZE = 20 * 1024 * 1024;
+  // sources are usually zipped with 4x ratio
+  private static final int EXPECTED_COMPRESSION_RATIO = 4;
 
   public RefCountingStorage(String path) throws IOException {
     super(path);
@@ -73,18 +75,21 @@ public class RefCountingStorage extends AbstractStorage {
   private BufferExposingByteArrayOutputStream internalReadStream(int record) throws IOException {
     waitForPendingWriteForRecord(record);
 
+    byte[] result;
     synchronized (myLock) {
+      result = super.readBytes(record);
+    }
 
-      byte[] result = super.readBytes(record);
-      InflaterInputStream in = new CustomInflaterInputStream(result);
-      try {
-        final BufferExposingByteArrayOutputStream outputStream = new BufferExposingByteArrayOutputStream();
-        StreamUtil.copyStreamContent(in, outputStream);
-        return outputStream;
-      }
-      finally {
-        in.close();
-      }
+    // compressed bytes are a private copy, so concurrent readers inflate them without holding the storage lock
+    InflaterInputStream in = new CustomInflaterInputStream(result);
+    try {
+      int expectedSize = (int)Math.min((long)result.length * EXPECTED_COMPRESSION_RATIO, Integer.MAX_VALUE / 2);
+      final BufferExposingByteArrayOutputStream outputStream = new BufferExposingByteArrayOutputStream(Math.max(expectedSize, 32));
+      StreamUtil.copyStreamContent(in, outputStream);
+      return outputStream;
+    }
+    finally {
+      in.close();
     }
   }
 
@@ -110,7 +115,7 @@ public class RefCountingStorage extends AbstractStorage {
     }
   }
 
-  private void waitForPendingWriteForRecord(int record) {
+  public void waitForPendingWriteForRecord(int record) {
     Future<?> future = myPendingWriteRequests.get(record);
     if (future != null) {
       try {
@@ -461,6 +461,27 @@ public class JBZipEntry implements Cloneable {
     }
   }
 
+  /**
+   * Sets the entry data which is already compressed using the entry's method. Method, size and crc of the entry must be set before.
+   */
+  public void setCompressedData(byte[] compressedBytes) throws IOException {
+    JBZipOutputStream stream = myFile.getOutputStream();
+    stream.putNextEntryCompressedBytes(this, compressedBytes);
+  }
+
+  /**
+   * Returns the entry data as it is stored in the archive, i.e. without decompressing it.
+   */
+  public byte[] getCompressedData() throws IOException {
+    if (csize == -1) throw new IOException("no data");
+
+    long start = calcDataOffset();
+    byte[] bytes = new byte[(int)csize];
+    myFile.archive.seek(start);
+    myFile.archive.readFully(bytes);
+    return bytes;
+  }
+
   private long calcDataOffset() throws IOException {
     long offset = getHeaderOffset();
     myFile.archive.seek(offset + JBZipFile.LFH_OFFSET_FOR_FILENAME_LENGTH);
@@ -93,6 +93,8 @@ public class JBZipFile {
    */
   final RandomAccessFile archive;
 
+  private final boolean myIsReadonly;
+
   private JBZipOutputStream myOutputStream;
   private long currentcfdfoffset = 0;
 
@@ -139,13 +141,28 @@ public class JBZipFile {
    * @throws IOException if an error occurs while reading the file.
    */
   public JBZipFile(File f, String encoding) throws IOException {
+    this(f, encoding, false);
+  }
+
+  /**
+   * Opens the given file for reading, assuming the specified
+   * encoding for file names. A read-only archive isn't modified on
+   * {@link #close()} and doesn't allow adding or erasing entries.
+   *
+   * @param f        the archive.
+   * @param encoding the encoding to use for file names
+   * @param readonly whether the archive should be opened in read-only mode
+   * @throws IOException if an error occurs while reading the file.
+   */
+  public JBZipFile(File f, String encoding, boolean readonly) throws IOException {
     this.encoding = encoding;
-    archive = new RandomAccessFile(f, "rw");
+    myIsReadonly = readonly;
+    archive = new RandomAccessFile(f, readonly ? "r" : "rw");
     try {
       if (archive.length() > 0) {
         populateFromCentralDirectory();
       }
-      else {
+      else if (!readonly) {
         getOutputStream(); // Ensure we'll write central directory when closed even if no single entry created.
       }
     }
@@ -449,9 +466,17 @@ public class JBZipFile {
     nameMap.remove(entry.getName());
   }
 
+  public boolean isReadonly() {
+    return myIsReadonly;
+  }
+
   JBZipOutputStream getOutputStream() throws IOException {
+    if (myIsReadonly) {
+      throw new IOException("Archive is opened in read-only mode");
+    }
     if (myOutputStream == null) {
       myOutputStream = new JBZipOutputStream(this, currentcfdfoffset);
+      myOutputStream.setEncoding(encoding);
     }
     return myOutputStream;
   }
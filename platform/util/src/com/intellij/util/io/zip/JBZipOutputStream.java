@@ -422,4 +422,22 @@ class JBZipOutputStream {
     writeLocalFileHeader(entry);
     writeOut(outputBytes, 0, outputBytesLength);
   }
+
+  /**
+   * Writes the entry data which is already compressed according to the entry's method. Crc, size and method of the entry must be
+   * set by the caller, so data copied from another archive doesn't need to be inflated and deflated again.
+   */
+  public void putNextEntryCompressedBytes(JBZipEntry entry, byte[] compressedBytes) throws IOException {
+    if (entry.getMethod() == -1 || entry.getSize() == -1 || entry.getCrc() == -1) {
+      throw new ZipException("Method, size and crc must be specified for entry " + entry.getName());
+    }
+
+    if (entry.getTime() == -1) {
+      entry.setTime(System.currentTimeMillis());
+    }
+
+    entry.setCompressedSize(compressedBytes.length);
+    writeLocalFileHeader(entry);
+    writeOut(compressedBytes, 0, compressedBytes.length);
+  }
 }
@@ -34,6 +34,7 @@ import java.io.PrintStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class ClassPath {
   private final Stack<URL> myUrls = new Stack<URL>();
@@ -60,6 +61,8 @@ public class ClassPath {
   private final boolean myAcceptUnescapedUrls;
   private final boolean myPreloadJarContents;
 
+  private static ExecutorService ourLoaderCreator;
+
   private static synchronized void printOrder(Loader loader, String url, Resource resource) {
     if (!ourOrderedUrls.add(url)) return;
     try {
@@ -158,29 +161,32 @@ public class ClassPath {
   private synchronized Loader getLoader(int i) {
     while (myLoaders.size() < i + 1) {
       boolean lastOne;
-      URL url;
+      List<URL> urls = new ArrayList<URL>();
       synchronized (myUrls) {
         if (myUrls.empty()) {
           if (myCanUseCache) myCache.nameSymbolsLoaded();
           return null;
         }
-        url = myUrls.pop();
+        // a resource missing in the cache makes all loaders to be created one after another anyway, so they are created at once
+        do {
+          URL url = myUrls.pop();
+          if (!myLoadersMap.containsKey(url) && !urls.contains(url)) urls.add(url);
+        }
+        while (myCanUseCache && !myUrls.isEmpty());
         lastOne = myUrls.isEmpty();
       }
 
-      if (myLoadersMap.containsKey(url)) continue;
-
-      Loader loader;
-      try {
-        loader = getLoader(url, myLoaders.size());
+      ClasspathCache.LoaderData[] data = new ClasspathCache.LoaderData[urls.size()];
+      Loader[] loaders = createLoaders(urls, myLoaders.size(), data);
+      for (int k = 0; k < loaders.length; k++) {
+        Loader loader = loaders[k];
         if (loader == null) continue;
+        if (data[k] != null) {
+          myCache.applyLoaderData(data[k], loader);
+        }
+        myLoaders.add(loader);
+        myLoadersMap.put(urls.get(k), loader);
       }
-      catch (IOException ioexception) {
-        continue;
-      }
-
-      myLoaders.add(loader);
-      myLoadersMap.put(url, loader);
       if (lastOne && myCanUseCache) {
         myCache.nameSymbolsLoaded();
       }
@@ -189,8 +195,76 @@ public class ClassPath {
     return myLoaders.get(i);
   }
 
+  // jars are opened and scanned in parallel, loaders get indices in the order of urls
+  private Loader[] createLoaders(final List<URL> urls, final int firstIndex, final ClasspathCache.LoaderData[] data) {
+    final Loader[] loaders = new Loader[urls.size()];
+    if (urls.size() == 1) {
+      loaders[0] = createLoader(urls.get(0), firstIndex, data, 0);
+      return loaders;
+    }
+
+    List<Callable<Loader>> tasks = new ArrayList<Callable<Loader>>(urls.size());
+    for (int k = 0; k < urls.size(); k++) {
+      final int index = k;
+      tasks.add(new Callable<Loader>() {
+        @Override
+        public Loader call() {
+          return createLoader(urls.get(index), firstIndex + index, data, index);
+        }
+      });
+    }
+    try {
+      List<Future<Loader>> futures = getLoaderCreator().invokeAll(tasks);
+      for (int k = 0; k < futures.size(); k++) {
+        loaders[k] = futures.get(k).get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (int k = 0; k < urls.size(); k++) {
+        if (loaders[k] == null) loaders[k] = createLoader(urls.get(k), firstIndex + k, data, k);
+      }
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+    return loaders;
+  }
+
+  private static synchronized ExecutorService getLoaderCreator() {
+    if (ourLoaderCreator == null) {
+      int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+      ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "ClassPath loader creator");
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+      executor.allowCoreThreadTimeOut(true);
+      ourLoaderCreator = executor;
+    }
+    return ourLoaderCreator;
+  }
+
+  @Nullable
+  private Loader createLoader(URL url, int index, ClasspathCache.LoaderData[] data, int dataIndex) {
+    try {
+      return getLoader(url, index, data, dataIndex);
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
   @Nullable
-  private Loader getLoader(final URL url, int index) throws IOException {
+  private Loader getLoader(final URL url, int index, ClasspathCache.LoaderData[] data, int dataIndex) throws IOException {
     String s;
     if (myAcceptUnescapedUrls) {
       s = url.getFile();
@@ -218,12 +292,14 @@ public class ClassPath {
     }
 
     if (loader != null && myCanUseCache) {
+      ClasspathCache.LoaderData loaderData = new ClasspathCache.LoaderData();
       try {
-        loader.buildCache(myCache);
+        loader.buildCache(loaderData);
       }
       catch (Throwable e) {
         // TODO: log can't create loader
       }
+      data[dataIndex] = loaderData;
     }
 
     return loader;
@@ -31,6 +31,7 @@ import gnu.trove.TIntObjectHashMap;
 import org.jetbrains.annotations.Nullable;
 import sun.misc.Resource;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +72,32 @@ public class ClasspathCache {
     }
   }
 
+  /**
+   * Entries of a single loader collected while the loader is created, possibly in parallel with other loaders.
+   * They are added to the cache afterwards, in the order of loaders.
+   */
+  static class LoaderData {
+    private final List<String> myResourceEntries = new ArrayList<String>();
+    private final List<String> myNameEntries = new ArrayList<String>();
+
+    void addResourceEntry(String resourcePath) {
+      myResourceEntries.add(resourcePath);
+    }
+
+    void addNameEntry(String name) {
+      myNameEntries.add(name);
+    }
+  }
+
+  void applyLoaderData(LoaderData data, Loader loader) {
+    for (String resourceEntry : data.myResourceEntries) {
+      addResourceEntry(resourceEntry, loader);
+    }
+    for (String nameEntry : data.myNameEntries) {
+      addNameEntry(nameEntry, loader);
+    }
+  }
+
   abstract static class LoaderIterator <ResultType, ParameterType, ParameterType2> {
     @Nullable
     abstract ResultType process(Loader loader, ParameterType parameter, ParameterType2 parameter2);
@@ -43,8 +43,8 @@ class FileLoader extends Loader {
     }
   }
 
-  private void buildPackageCache(final File dir, ClasspathCache cache) {
-    cache.addResourceEntry(getRelativeResourcePath(dir), this);
+  private void buildPackageCache(final File dir, ClasspathCache.LoaderData data) {
+    data.addResourceEntry(getRelativeResourcePath(dir));
 
     final File[] files = dir.listFiles();
     if (files == null) {
@@ -56,14 +56,14 @@ class FileLoader extends Loader {
       final boolean isClass = file.getPath().endsWith(UrlClassLoader.CLASS_EXTENSION);
       if (isClass) {
         if (!containsClasses) {
-          cache.addResourceEntry(getRelativeResourcePath(file), this);
+          data.addResourceEntry(getRelativeResourcePath(file));
           containsClasses = true;
         }
-        cache.addNameEntry(file.getName(), this);
+        data.addNameEntry(file.getName());
       }
       else {
-        cache.addNameEntry(file.getName(), this);
-        buildPackageCache(file, cache);
+        data.addNameEntry(file.getName());
+        buildPackageCache(file, data);
       }
     }
   }
@@ -116,7 +116,7 @@ class FileLoader extends Loader {
     return null;
   }
 
-  void buildCache(final ClasspathCache cache) throws IOException {
+  void buildCache(final ClasspathCache.LoaderData data) throws IOException {
     File index = new File(myRootDir, "classpath.index");
     if (index.exists()) {
       BufferedReader reader = new BufferedReader(new FileReader(index));
@@ -124,8 +124,8 @@ class FileLoader extends Loader {
         do {
           String line = reader.readLine();
           if (line == null) break;
-          cache.addResourceEntry(line, this);
-          cache.addNameEntry(line, this);
+          data.addResourceEntry(line);
+          data.addNameEntry(line);
         }
         while (true);
       }
@@ -134,9 +134,9 @@ class FileLoader extends Loader {
       }
     }
     else {
-      cache.addResourceEntry("foo.class", this);
-      cache.addResourceEntry("bar.properties", this);
-      buildPackageCache(myRootDir, cache);
+      data.addResourceEntry("foo.class");
+      data.addResourceEntry("bar.properties");
+      buildPackageCache(myRootDir, data);
     }
   }
 
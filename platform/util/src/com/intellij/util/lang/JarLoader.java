@@ -125,7 +125,7 @@ class JarLoader extends Loader {
   }
 
   @Override
-  void buildCache(final ClasspathCache cache) throws IOException {
+  void buildCache(final ClasspathCache.LoaderData data) throws IOException {
     ZipFile zipFile = null;
     try {
       zipFile = acquireZipFile();
@@ -135,8 +135,8 @@ class JarLoader extends Loader {
       while (entries.hasMoreElements()) {
         ZipEntry zipEntry = entries.nextElement();
         String name = zipEntry.getName();
-        cache.addResourceEntry(name, this);
-        cache.addNameEntry(name, this);
+        data.addResourceEntry(name);
+        data.addNameEntry(name);
       }
     }
     finally {
@@ -40,6 +40,15 @@ public class UrlClassLoader extends ClassLoader {
   @NonNls static final String CLASS_EXTENSION = ".class";
   protected static final boolean myDebugTime = false;
   protected static final long NS_THRESHOLD = 10000000;
+  // measuring is turned on together with recording of the startup timeline, see com.intellij.diagnostic.StartupTimeline
+  private static volatile boolean ourMeasureLoadingTime = System.getProperty("idea.startup.timeline") != null;
+  // per thread: nanoseconds spent in loading classes and the nesting depth of class loading in progress
+  private static final ThreadLocal<long[]> ourLoadingTime = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[2];
+    }
+  };
 
   public UrlClassLoader(@NotNull ClassLoader parent) {
     this(Arrays.asList(((URLClassLoader)parent).getURLs()), parent.getParent(), true, true);
@@ -96,16 +105,22 @@ public class UrlClassLoader extends ClassLoader {
 
   @Override
   protected Class findClass(final String name) throws ClassNotFoundException {
-    Resource res = myClassPath.getResource(name.replace('.', '/').concat(CLASS_EXTENSION), false);
-    if (res == null) {
-      throw new ClassNotFoundException(name);
-    }
-
+    final long[] loadingTime = startLoading();
     try {
-      return defineClass(name, res);
+      Resource res = myClassPath.getResource(name.replace('.', '/').concat(CLASS_EXTENSION), false);
+      if (res == null) {
+        throw new ClassNotFoundException(name);
+      }
+
+      try {
+        return defineClass(name, res);
+      }
+      catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
     }
-    catch (IOException e) {
-      throw new ClassNotFoundException(name, e);
+    finally {
+      endLoading(loadingTime);
     }
   }
 
@@ -117,16 +132,53 @@ public class UrlClassLoader extends ClassLoader {
 
   @Nullable
   protected Class _findClass(@NotNull String name) {
-    Resource res = myClassPath.getResource(name.replace('.', '/').concat(CLASS_EXTENSION), false);
-    if (res == null) {
-      return null;
+    final long[] loadingTime = startLoading();
+    try {
+      Resource res = myClassPath.getResource(name.replace('.', '/').concat(CLASS_EXTENSION), false);
+      if (res == null) {
+        return null;
+      }
+
+      try {
+        return defineClass(name, res);
+      }
+      catch (IOException e) {
+        return null;
+      }
+    }
+    finally {
+      endLoading(loadingTime);
     }
+  }
 
-    try {
-      return defineClass(name, res);
+  /**
+   * Turns on or off measuring of time spent by each thread in finding and defining classes by these class loaders. Loading of
+   * classes needed to define another class (e.g. its superclass) is counted once as a part of the latter.
+   */
+  public static void setMeasureLoadingTime(boolean measure) {
+    ourMeasureLoadingTime = measure;
+  }
+
+  /**
+   * @return nanoseconds the current thread has spent in loading classes by these class loaders while measuring was on
+   */
+  public static long getCurrentThreadLoadingTime() {
+    return ourLoadingTime.get()[0];
+  }
+
+  @Nullable
+  private static long[] startLoading() {
+    if (!ourMeasureLoadingTime) return null;
+    final long[] loadingTime = ourLoadingTime.get();
+    if (loadingTime[1]++ == 0) {
+      loadingTime[0] -= System.nanoTime();
     }
-    catch (IOException e) {
-      return null;
+    return loadingTime;
+  }
+
+  private static void endLoading(@Nullable long[] loadingTime) {
+    if (loadingTime != null && --loadingTime[1] == 0) {
+      loadingTime[0] += System.nanoTime();
     }
   }
 
@@ -31,7 +31,9 @@ public final class Message {
 
   public Message(@NotNull Topic topic, @NotNull Method listenerMethod, Object[] args) {
     myTopic = topic;
-    listenerMethod.setAccessible(true);
+    if (!listenerMethod.isAccessible()) {
+      listenerMethod.setAccessible(true);
+    }
     myListenerMethod = listenerMethod;
     myArgs = args;
   }
@@ -110,6 +110,7 @@ public class MessageBusConnectionImpl implements MessageBusConnection {
     final Topic topic = message.getTopic();
     final Object handler = getHandler(topic);
 
+    final long start = MessageDeliveryStatistics.isEnabled() ? System.nanoTime() : 0;
     try {
       Method listenerMethod = message.getListenerMethod();
 
@@ -126,6 +127,11 @@ public class MessageBusConnectionImpl implements MessageBusConnection {
     catch(Throwable e) {
       LOG.error(e.getCause() == null ? e : e.getCause());
     }
+    finally {
+      if (start != 0) {
+        MessageDeliveryStatistics.record(topic, handler, System.nanoTime() - start);
+      }
+    }
   }
 
   void scheduleMessageDelivery(Message message) {
@@ -39,6 +39,7 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MessageBusImpl implements MessageBus {
   private static final Logger LOG = Logger.getInstance("#com.intellij.util.messages.impl.MessageBusImpl");
@@ -48,6 +49,9 @@ public class MessageBusImpl implements MessageBus {
   private final ConcurrentMap<Topic, List<MessageBusConnectionImpl>> mySubscribers =
     new ConcurrentHashMap<Topic, List<MessageBusConnectionImpl>>();
   private final List<MessageBusImpl> myChildBuses = ContainerUtil.createLockFreeCopyOnWriteList();
+  // number of jobs queued in all threads on all buses of the hierarchy, shared by the root bus with its children,
+  // lets a sync publisher skip walking the hierarchy when there's nothing to pump
+  private final AtomicInteger myQueuedJobCount;
 
   private static final Object NA = new Object();
   private MessageBusImpl myParentBus;
@@ -65,6 +69,7 @@ public class MessageBusImpl implements MessageBus {
   public MessageBusImpl(@NotNull Object owner, MessageBus parentBus) {
     myOwner = owner.toString();
     myParentBus = (MessageBusImpl)parentBus;
+    myQueuedJobCount = myParentBus != null ? myParentBus.myQueuedJobCount : new AtomicInteger();
     if (myParentBus != null) {
       myParentBus.notifyChildBusCreated(this);
       LOG.assertTrue(myParentBus.myChildBuses.contains(this));
@@ -165,6 +170,7 @@ public class MessageBusImpl implements MessageBus {
     Queue<DeliveryJob> jobs = myMessageQueue.get();
     if (!jobs.isEmpty()) {
       LOG.error("Not delivered events in the queue: " + jobs);
+      myQueuedJobCount.addAndGet(-jobs.size());
     }
     myMessageQueue.remove();
     if (myParentBus != null) {
@@ -186,6 +192,7 @@ public class MessageBusImpl implements MessageBus {
       Queue<DeliveryJob> queue = myMessageQueue.get();
       for (MessageBusConnectionImpl subscriber : topicSubscribers) {
         queue.offer(new DeliveryJob(subscriber, message));
+        myQueuedJobCount.incrementAndGet();
         subscriber.scheduleMessageDelivery(message);
       }
     }
@@ -211,6 +218,7 @@ public class MessageBusImpl implements MessageBus {
 
   private void pumpMessages() {
     checkNotDisposed();
+    if (myQueuedJobCount.get() == 0) return;
     if (myParentBus != null) {
       LOG.assertTrue(myParentBus.myChildBuses.contains(this));
       myParentBus.pumpMessages();
@@ -225,6 +233,7 @@ public class MessageBusImpl implements MessageBus {
     do {
       DeliveryJob job = queue.poll();
       if (job == null) break;
+      myQueuedJobCount.decrementAndGet();
       job.connection.deliverMessage(job.message);
     }
     while (true);
@@ -257,6 +266,7 @@ public class MessageBusImpl implements MessageBus {
       final DeliveryJob job = i.next();
       if (job.connection == connection) {
         i.remove();
+        myQueuedJobCount.decrementAndGet();
       }
     }
   }
@@ -265,6 +275,7 @@ public class MessageBusImpl implements MessageBus {
     checkNotDisposed();
     final DeliveryJob job = myMessageQueue.get().poll();
     if (job == null) return;
+    myQueuedJobCount.decrementAndGet();
     job.connection.deliverMessage(job.message);
   }
 
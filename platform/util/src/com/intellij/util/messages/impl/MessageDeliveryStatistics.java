@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.messages.impl;
+
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Number of deliveries and time spent in listeners per topic, for all message buses. Collecting is off by default, it's turned on
+ * by the <code>idea.message.bus.statistics</code> system property or by {@link #setEnabled(boolean)}.
+ */
+public class MessageDeliveryStatistics {
+  private static volatile boolean ourEnabled = Boolean.getBoolean("idea.message.bus.statistics");
+  private static final ConcurrentMap<Topic, TopicStatistics> ourStatistics = ContainerUtil.newConcurrentMap();
+
+  private MessageDeliveryStatistics() {
+  }
+
+  public static boolean isEnabled() {
+    return ourEnabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    ourEnabled = enabled;
+  }
+
+  public static void clear() {
+    ourStatistics.clear();
+  }
+
+  static void record(@NotNull Topic topic, @Nullable Object handler, long nanos) {
+    TopicStatistics statistics = ourStatistics.get(topic);
+    if (statistics == null) {
+      statistics = ConcurrencyUtil.cacheOrGet(ourStatistics, topic, new TopicStatistics(topic));
+    }
+    statistics.record(handler, nanos);
+  }
+
+  @Nullable
+  public static TopicStatistics getStatistics(@NotNull Topic topic) {
+    return ourStatistics.get(topic);
+  }
+
+  /**
+   * @return snapshots of statistics of all topics sorted by the total delivery time, the slowest first
+   */
+  @NotNull
+  public static List<TopicStatistics> getStatistics() {
+    List<TopicStatistics> result = new ArrayList<TopicStatistics>(ourStatistics.size());
+    for (TopicStatistics statistics : ourStatistics.values()) {
+      result.add(statistics.copy());
+    }
+    Collections.sort(result, new Comparator<TopicStatistics>() {
+      @Override
+      public int compare(TopicStatistics o1, TopicStatistics o2) {
+        return o1.myTotalNanos < o2.myTotalNanos ? 1 : o1.myTotalNanos == o2.myTotalNanos ? 0 : -1;
+      }
+    });
+    return result;
+  }
+
+  public static class TopicStatistics {
+    private final Topic myTopic;
+    private int myDeliveryCount;
+    private long myTotalNanos;
+    private long mySlowestNanos;
+    private String mySlowestListener;
+
+    private TopicStatistics(@NotNull Topic topic) {
+      myTopic = topic;
+    }
+
+    @NotNull
+    private synchronized TopicStatistics copy() {
+      TopicStatistics copy = new TopicStatistics(myTopic);
+      copy.myDeliveryCount = myDeliveryCount;
+      copy.myTotalNanos = myTotalNanos;
+      copy.mySlowestNanos = mySlowestNanos;
+      copy.mySlowestListener = mySlowestListener;
+      return copy;
+    }
+
+    private synchronized void record(@Nullable Object handler, long nanos) {
+      myDeliveryCount++;
+      myTotalNanos += nanos;
+      if (nanos > mySlowestNanos) {
+        mySlowestNanos = nanos;
+        mySlowestListener = handler == null ? null : handler.getClass().getName();
+      }
+    }
+
+    @NotNull
+    public Topic getTopic() {
+      return myTopic;
+    }
+
+    public synchronized int getDeliveryCount() {
+      return myDeliveryCount;
+    }
+
+    public synchronized long getTotalNanos() {
+      return myTotalNanos;
+    }
+
+    public synchronized long getSlowestNanos() {
+      return mySlowestNanos;
+    }
+
+    /**
+     * @return class name of the listener which handled the slowest delivery
+     */
+    @Nullable
+    public synchronized String getSlowestListener() {
+      return mySlowestListener;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return myTopic + ": " + myDeliveryCount + " deliveries in " + myTotalNanos / 1000000 + " ms, slowest " +
+             mySlowestNanos / 1000000 + " ms by " + mySlowestListener;
+    }
+  }
+}
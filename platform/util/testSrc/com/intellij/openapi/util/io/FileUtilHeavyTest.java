@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Created with IntelliJ IDEA.
@@ -67,6 +68,31 @@ public class FileUtilHeavyTest {
     Assert.assertEquals(1, result.get("dir1").intValue());
   }
 
+  @Test
+  public void testCopyContentReplacesLongerFile() throws Exception {
+    final byte[] content = new byte[3 * 1024 * 1024 + 17];
+    new Random(0).nextBytes(content);
+    final File from = new File(myTempDirectory, "from.bin");
+    FileUtil.writeToFile(from, content);
+    final File to = new File(myTempDirectory, "to.bin");
+    FileUtil.writeToFile(to, new byte[content.length + 100]);
+
+    FileUtil.copyContent(from, to);
+    Assert.assertArrayEquals(content, FileUtil.loadFileBytes(to));
+  }
+
+  @Test
+  public void testCopyEmptyFile() throws Exception {
+    final File from = new File(myTempDirectory, "empty.txt");
+    Assert.assertTrue(from.createNewFile());
+    final File to = new File(myTempDirectory, "copy.txt");
+    FileUtil.writeToFile(to, "old content");
+
+    FileUtil.copy(from, to);
+    Assert.assertEquals(0, to.length());
+    Assert.assertEquals(from.lastModified(), to.lastModified());
+  }
+
   @Test
   public void testStops() throws Exception {
     final Tree tree = new Tree(myTempDirectory);
@@ -108,6 +108,51 @@ public class UpdateableZipTest extends TestCase {
     utilZip.close();
   }
   
+  public void testCopyCompressedEntry() throws Exception {
+    File zipFile = createTestUtilZip();
+    JBZipFile jbZip = new JBZipFile(zipFile);
+    JBZipEntry entry = jbZip.getOrCreateEntry("/third");
+    entry.setMethod(ZipEntry.DEFLATED);
+    entry.setData("third third third".getBytes());
+    jbZip.close();
+
+    File copyFile = FileUtil.createTempFile("copy", ".zip");
+    JBZipFile source = new JBZipFile(zipFile, "UTF-8", true);
+    JBZipFile copy = new JBZipFile(copyFile);
+    for (JBZipEntry sourceEntry : source.getEntries()) {
+      JBZipEntry copiedEntry = copy.getOrCreateEntry(sourceEntry.getName());
+      copiedEntry.setMethod(sourceEntry.getMethod());
+      copiedEntry.setSize(sourceEntry.getSize());
+      copiedEntry.setCrc(sourceEntry.getCrc());
+      copiedEntry.setCompressedData(sourceEntry.getCompressedData());
+    }
+    source.close();
+    copy.close();
+
+    ZipFile utilZip = new ZipFile(copyFile);
+    ZipEntry thirdEntry = utilZip.getEntry("/third");
+    assertNotNull(thirdEntry);
+    assertEquals(ZipEntry.DEFLATED, thirdEntry.getMethod());
+    assertEquals("third third third", FileUtil.loadTextAndClose(new InputStreamReader(utilZip.getInputStream(thirdEntry))));
+    assertNotNull(utilZip.getEntry("/first"));
+    utilZip.close();
+    FileUtil.delete(copyFile);
+  }
+
+  public void testReadonlyZipIsNotModified() throws Exception {
+    long length = zipFile.length();
+    JBZipFile jbZip = new JBZipFile(zipFile, "UTF-8", true);
+    assertEntryWithContentExists(jbZip, "/first", "first");
+    try {
+      jbZip.getOrCreateEntry("/third").setData("third".getBytes());
+      fail("Read-only archive must not be modified");
+    }
+    catch (IOException ignored) {
+    }
+    jbZip.close();
+    assertEquals(length, zipFile.length());
+  }
+
   /*
   public void testAppendToIdeaJar() throws Exception {
     //ProfilingUtil.startCPUProfiling();
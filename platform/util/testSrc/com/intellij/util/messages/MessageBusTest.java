@@ -1,5 +1,5 @@
 /*
- * Copyright 2000-2009 JetBrains s.r.o.
+ * Copyright 2000-2013 JetBrains s.r.o.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@
 package com.intellij.util.messages;
 
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.messages.impl.MessageDeliveryStatistics;
 import junit.framework.TestCase;
 
 import java.util.ArrayList;
@@ -196,7 +197,43 @@ public class MessageBusTest extends TestCase {
                  "inside:t11:done",
                  "C2T1Handler:t12");
   }
-  
+
+  public void testAsyncMessageIsDeliveredBySyncPublisherOfChildBus() {
+    MessageBus childBus = MessageBusFactory.newMessageBus(this, myBus);
+    myBus.connect().subscribe(TOPIC1, new T1Handler("c"));
+    childBus.connect().subscribe(TOPIC2, new T2Handler("child"));
+
+    myBus.asyncPublisher(TOPIC1).t11();
+    assertEvents();
+
+    childBus.syncPublisher(TOPIC2).t21();
+    assertEvents("c:t11", "child:t21");
+
+    childBus.syncPublisher(TOPIC2).t22();
+    assertEvents("c:t11", "child:t21", "child:t22");
+  }
+
+  public void testDeliveryStatistics() {
+    myBus.connect().subscribe(TOPIC1, new T1Handler("c1"));
+    myBus.connect().subscribe(TOPIC1, new T1Handler("c2"));
+
+    MessageDeliveryStatistics.clear();
+    MessageDeliveryStatistics.setEnabled(true);
+    try {
+      myBus.syncPublisher(TOPIC1).t11();
+      myBus.syncPublisher(TOPIC1).t12();
+    }
+    finally {
+      MessageDeliveryStatistics.setEnabled(false);
+    }
+
+    MessageDeliveryStatistics.TopicStatistics statistics = MessageDeliveryStatistics.getStatistics(TOPIC1);
+    assertNotNull(statistics);
+    assertEquals(4, statistics.getDeliveryCount());
+    assertEquals(T1Handler.class.getName(), statistics.getSlowestListener());
+    assertNull(MessageDeliveryStatistics.getStatistics(TOPIC2));
+  }
+
   private void assertEvents(String... expected) {
     String joinExpected = StringUtil.join(expected, "\n");
     String joinActual = StringUtil.join(myLog, "\n");
@@ -15,7 +15,9 @@
  */
 package org.jetbrains.plugins.groovy.lang.parser
 
+import com.intellij.openapi.application.ApplicationManager
 import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.PsiFileFactory
 import com.intellij.psi.impl.DebugUtil
 import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase
 import org.jetbrains.plugins.groovy.util.TestUtils
@@ -200,5 +202,39 @@ class a {
 ''', '\b'
   }
 
+  private void checkRelexing(String text, String oldText, String newText) {
+    // the Groovy lexer isn't a RestartableLexer, so the reparsed file must be lexed from scratch, as a new one is
+    myFixture.configureByText("a.groovy", text)
+    PsiDocumentManager.getInstance(project).commitAllDocuments()
+    def document = myFixture.editor.document
+    int offset = document.text.indexOf(oldText)
+    ApplicationManager.application.runWriteAction { document.replaceString(offset, offset + oldText.length(), newText) }
+    PsiDocumentManager.getInstance(project).commitAllDocuments()
+
+    def expected = PsiFileFactory.getInstance(project).createFileFromText("a.groovy", myFixture.file.fileType, document.text)
+    assertEquals(DebugUtil.psiToString(expected, false), DebugUtil.psiToString(myFixture.file, false))
+  }
+
+  public void testNewlineSensitiveLexingAfterStringStart() {
+    checkRelexing """
+def foo() {
+  def s = 1
+  bar()
+}
 
+def bar() {
+  '''
+  zoo()
+}
+""", "1", "'''"
+  }
+
+  public void testNewlineSensitiveLexingAfterLineBreak() {
+    checkRelexing """
+def foo() {
+  def s = "a" + "b"
+  bar()
+}
+""", "+ ", "+\n"
+  }
 }
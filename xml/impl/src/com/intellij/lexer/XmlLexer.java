@@ -17,25 +17,45 @@ package com.intellij.lexer;
 
 import com.intellij.psi.tree.TokenSet;
 import com.intellij.psi.xml.XmlTokenType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Reader;
 
-public class XmlLexer extends MergingLexerAdapter {
+public class XmlLexer extends MergingLexerAdapter implements RestartableLexer {
   private final static TokenSet TOKENS_TO_MERGE = TokenSet.create(XmlTokenType.XML_DATA_CHARACTERS,
                                                                   XmlTokenType.XML_TAG_CHARACTERS,
                                                                   XmlTokenType.XML_ATTRIBUTE_VALUE_TOKEN,
                                                                   XmlTokenType.XML_PI_TARGET,
                                                                   XmlTokenType.XML_COMMENT_CHARACTERS);
+  @Nullable private final Boolean myConditionalCommentsSupport;
 
   public XmlLexer() {
     this(false);
   }
 
   public XmlLexer(final boolean conditionalCommentsSupport) {
-    this(new _XmlLexer(new __XmlLexer((Reader)null), conditionalCommentsSupport));
+    this(new _XmlLexer(new __XmlLexer((Reader)null), conditionalCommentsSupport), conditionalCommentsSupport);
   }
 
   public XmlLexer(Lexer baseLexer) {
+    this(baseLexer, null);
+  }
+
+  private XmlLexer(Lexer baseLexer, @Nullable Boolean conditionalCommentsSupport) {
     super(baseLexer, TOKENS_TO_MERGE);
+    myConditionalCommentsSupport = conditionalCommentsSupport;
+  }
+
+  @Override
+  public boolean isRestartableState(int state) {
+    // states of an arbitrary base lexer are unknown
+    return myConditionalCommentsSupport != null && state == 0;
+  }
+
+  @NotNull
+  @Override
+  public Object getConfiguration() {
+    return myConditionalCommentsSupport != null ? myConditionalCommentsSupport : getDelegate();
   }
 }
@@ -133,6 +133,16 @@ public class XmlReparseTest extends AbstractReparseTestCase {
                "</table>");
     insert("=");
   }
+  public void testLexingAfterCommentAndCDataEdits() throws Exception {
+    PsiFile file = prepareFileWithDocument("<root>\n  <a x=\"1\">text</a>\n  <b/>\n  <c><![CDATA[<d>]]></c>\n</root>\n");
+    replaceInDocument(file, "<a x", "<!-- <a x");
+    replaceInDocument(file, "<b/>", "<b/> -->");
+    replaceInDocument(file, "\"1\"", "\"1");
+    replaceInDocument(file, "<!-- ", "");
+    replaceInDocument(file, "]]>", "");
+    replaceInDocument(file, "<c>", "<c>]]>");
+  }
+
   private static final String marker = "<marker>";
   public void testXmlDeclDtd() throws Exception {
     PsiFile file = createFile("x.xml", "<!DOCTYPE name [\n" +